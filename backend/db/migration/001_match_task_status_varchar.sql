@@ -0,0 +1,5 @@
+-- match_task.status was created by ddl-auto as enum('QUEUED','RUNNING','SUCCEEDED','FAILED'), which
+-- rejects CANCELLED ("Data truncated for column 'status'"). ddl-auto=update never changes an existing
+-- column type, so run this once on every database created before the CANCELLED status existed.
+-- Safe to re-run.
+ALTER TABLE match_task MODIFY status varchar(32) NOT NULL;
@@ -1,6 +1,7 @@
 package com.company.fashion.common.exception;
 
 import com.company.fashion.common.api.Result;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -24,6 +25,13 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(status).body(Result.error(ex.getCode(), ex.getMessage()));
   }
 
+  @ExceptionHandler(ServiceOverloadedException.class)
+  public ResponseEntity<Result<Void>> handleOverloaded(ServiceOverloadedException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+        .body(Result.error(ex.getCode(), ex.getMessage()));
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Result<Void>> handleValidation(MethodArgumentNotValidException ex) {
     FieldError first = ex.getBindingResult().getFieldErrors().stream().findFirst().orElse(null);
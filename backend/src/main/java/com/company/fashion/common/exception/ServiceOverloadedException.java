@@ -0,0 +1,18 @@
+package com.company.fashion.common.exception;
+
+/**
+ * 503 rejection that tells the client when to retry; rendered with a {@code Retry-After} header.
+ */
+public class ServiceOverloadedException extends BusinessException {
+
+  private final long retryAfterSeconds;
+
+  public ServiceOverloadedException(String message, long retryAfterSeconds) {
+    super(503, message);
+    this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -1,28 +1,66 @@
 package com.company.fashion.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.core.task.TaskDecorator;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
+  /**
+   * Executor for match tasks.
+   *
+   * <p>{@code platform} (default) uses a fixed pool of {@code app.match.queue.max-in-flight} threads, so
+   * every task the dispatcher claims starts right away. {@code virtual} starts one virtual thread
+   * per task; concurrency is then bounded by {@code app.match.queue.max-in-flight} and the per-provider
+   * limits in {@code AiConcurrencyLimiter}, since tasks mostly block on LLM HTTP calls.</p>
+   */
   @Bean(name = "matchExecutor")
-  public ThreadPoolTaskExecutor matchExecutor() {
+  public AsyncTaskExecutor matchExecutor(
+      @Value("${app.match.executor.mode:platform}") String mode,
+      @Value("${app.match.queue.max-in-flight:8}") int maxInFlight
+  ) {
+    if ("virtual".equalsIgnoreCase(mode == null ? "" : mode.trim())) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("match-task-vt-");
+      executor.setVirtualThreads(true);
+      executor.setTaskDecorator(new SecurityContextTaskDecorator());
+      return executor;
+    }
+
     ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-    executor.setCorePoolSize(4);
-    executor.setMaxPoolSize(8);
-    executor.setQueueCapacity(100);
+    int threads = Math.max(1, maxInFlight);
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    // The dispatcher never holds more than max-in-flight tasks, so nothing waits here longer than a
+    // finishing worker takes to return its thread to the pool.
+    executor.setQueueCapacity(threads);
     executor.setThreadNamePrefix("match-task-");
     executor.setTaskDecorator(new SecurityContextTaskDecorator());
     executor.initialize();
     return executor;
   }
 
+  /**
+   * Executor for outfit preview jobs: one virtual thread per job, since a job mostly waits on image
+   * downloads and the vision call. Provider concurrency is bounded by {@code AiConcurrencyLimiter}.
+   */
+  @Bean(name = "previewExecutor")
+  public AsyncTaskExecutor previewExecutor() {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("outfit-preview-vt-");
+    executor.setVirtualThreads(true);
+    executor.setTaskDecorator(new SecurityContextTaskDecorator());
+    return executor;
+  }
+
   /**
    * TaskDecorator that propagates SecurityContext to async threads.
    * This ensures @Async methods can access the current authentication.
@@ -0,0 +1,8 @@
+package com.company.fashion.modules.clothing.event;
+
+/**
+ * Published after a clothing item's attributes or shelf status change; {@code imageChanged} is
+ * set when the image URL was replaced.
+ */
+public record ClothingChangedEvent(Long clothingId, boolean imageChanged) {
+}
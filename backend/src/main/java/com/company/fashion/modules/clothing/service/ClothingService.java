@@ -9,8 +9,10 @@ import com.company.fashion.modules.clothing.dto.UpdateClothingRequest;
 import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.clothing.entity.ClothingStatus;
 import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.clothing.event.ClothingChangedEvent;
 import com.company.fashion.modules.clothing.repository.ClothingRepository;
 import java.util.List;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -20,9 +22,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class ClothingService {
 
   private final ClothingRepository clothingRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public ClothingService(ClothingRepository clothingRepository) {
+  public ClothingService(ClothingRepository clothingRepository, ApplicationEventPublisher eventPublisher) {
     this.clothingRepository = clothingRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   @Transactional
@@ -69,6 +73,7 @@ public class ClothingService {
     if (request.name() != null && !request.name().isBlank()) {
       clothing.setName(request.name());
     }
+    boolean imageChanged = request.imageUrl() != null && !request.imageUrl().equals(clothing.getImageUrl());
     if (request.imageUrl() != null) {
       clothing.setImageUrl(request.imageUrl());
     }
@@ -79,14 +84,18 @@ public class ClothingService {
     if (request.sizeData() != null) {
       clothing.setSizeData(request.sizeData());
     }
-    return toResponse(clothingRepository.save(clothing));
+    Clothing saved = clothingRepository.save(clothing);
+    eventPublisher.publishEvent(new ClothingChangedEvent(saved.getId(), imageChanged));
+    return toResponse(saved);
   }
 
   @Transactional
   public ClothingItemResponse updateStatus(Long id, ClothingStatus status) {
     Clothing clothing = getActiveEntity(id);
     clothing.setStatus(status);
-    return toResponse(clothingRepository.save(clothing));
+    Clothing saved = clothingRepository.save(clothing);
+    eventPublisher.publishEvent(new ClothingChangedEvent(saved.getId(), false));
+    return toResponse(saved);
   }
 
   @Transactional
@@ -3,36 +3,42 @@ package com.company.fashion.modules.match.ai;
 import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.clothing.entity.ClothingType;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
 import com.company.fashion.modules.member.entity.Member;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import dev.langchain4j.data.image.Image;
 import dev.langchain4j.data.message.ImageContent;
 import dev.langchain4j.http.client.HttpClientBuilder;
 import dev.langchain4j.http.client.jdk.JdkHttpClientBuilder;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
 import dev.langchain4j.model.chat.request.ResponseFormat;
 import dev.langchain4j.model.chat.request.ResponseFormatType;
 import dev.langchain4j.model.chat.request.json.JsonSchema;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
 import dev.langchain4j.service.output.JsonSchemas;
 import dev.langchain4j.service.output.ServiceOutputParser;
-import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.net.InetSocketAddress;
 import java.net.ProxySelector;
-import java.net.URL;
-import java.net.URLConnection;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,21 +46,41 @@ abstract class AbstractLangChainAiClientSupport {
 
   private final PromptBuilder promptBuilder;
   private final StructuredOutputParser structuredOutputParser;
+  private final ReferenceImageCache referenceImageCache;
+  private final StructuredOutputCapabilities structuredOutputCapabilities = new StructuredOutputCapabilities();
   private final Set<String> proxyLogMarkers = ConcurrentHashMap.newKeySet();
 
   protected AbstractLangChainAiClientSupport(PromptBuilder promptBuilder) {
+    this(promptBuilder, ReferenceImageCache.uncached());
+  }
+
+  protected AbstractLangChainAiClientSupport(PromptBuilder promptBuilder, ReferenceImageCache referenceImageCache) {
     this.promptBuilder = promptBuilder;
+    this.referenceImageCache = referenceImageCache;
     this.structuredOutputParser = new StructuredOutputParser();
   }
 
-  protected String buildSuggestionPrompt(
+  protected PromptBuilder.SuggestionPrompt buildSuggestionPrompt(
       Member member,
       List<Clothing> candidates,
       List<com.company.fashion.modules.match.entity.MatchRecord> history,
       String scene,
-      AiLanguage language
+      AiLanguage language,
+      int desiredOutfits
   ) {
-    return promptBuilder.buildPrompt(member, candidates, history, scene, language);
+    return promptBuilder.buildSuggestionPrompt(member, candidates, history, scene, language, desiredOutfits);
+  }
+
+  /**
+   * Output-token cap for a suggestion response of {@code desiredOutfits} items: a fixed allowance
+   * for the envelope (and any reasoning the model spends before answering) plus a per-outfit
+   * budget. Returns null (no cap) when {@code tokensPerOutfit} is not positive.
+   */
+  protected static Integer suggestionOutputTokenCap(int desiredOutfits, int tokensPerOutfit, int overheadTokens) {
+    if (tokensPerOutfit <= 0) {
+      return null;
+    }
+    return Math.max(0, overheadTokens) + tokensPerOutfit * Math.max(1, desiredOutfits);
   }
 
   protected ChatResponse chatWithStructuredFallback(
@@ -63,42 +89,205 @@ abstract class AbstractLangChainAiClientSupport {
       Type responseType,
       String provider,
       String operation,
-      Logger logger
+      Logger logger,
+      AiProgressListener listener
   ) {
-    ResponseFormat responseFormat = structuredOutputParser.buildResponseFormatFor(responseType, provider, operation);
+    return chatWithStructuredFallback(model, messages, responseType, null, provider, operation, logger, listener);
+  }
+
+  protected ChatResponse chatWithStructuredFallback(
+      ChatModel model,
+      List<dev.langchain4j.data.message.ChatMessage> messages,
+      Type responseType,
+      Integer maxOutputTokens,
+      String provider,
+      String operation,
+      Logger logger,
+      AiProgressListener listener
+  ) {
+    AiProgressListener progress = listener == null ? AiProgressListener.NOOP : listener;
+    String modelName = modelName(model.defaultRequestParameters());
+    ResponseFormat responseFormat = responseFormatFor(responseType, provider, modelName, operation, logger);
+    boolean schemaMode = responseFormat.jsonSchema() != null;
     logger.info(
-        "{} {} request: format={}, schema={}, maxOutputTokens=unlimited, messageCount={}",
+        "{} {} request: format={}, schema={}, maxOutputTokens={}, messageCount={}",
         provider,
         operation,
         responseFormat.type(),
         responseFormat.jsonSchema() == null ? "-" : responseFormat.jsonSchema().name(),
+        maxOutputTokens == null ? "unlimited" : maxOutputTokens,
         messages == null ? 0 : messages.size()
     );
 
     ChatRequest schemaRequest = ChatRequest.builder()
         .messages(messages)
         .responseFormat(responseFormat)
+        .maxOutputTokens(maxOutputTokens)
         .build();
 
     try {
+      String mode = schemaMode ? "schema" : "json";
+      progress.onStage(TaskStage.LLM_REQUEST_SENT, Map.of("format", mode));
       ChatResponse schemaResponse = model.chat(schemaRequest);
-      logChatResponseMeta(logger, provider, operation, schemaResponse, "schema");
+      // Blocking chat only surfaces the complete response, so first token == full response here.
+      progress.onStage(TaskStage.FIRST_TOKEN);
+      if (schemaMode) {
+        structuredOutputCapabilities.recordSchemaSupported(provider, modelName);
+      }
+      logChatResponseMeta(logger, provider, operation, schemaResponse, mode);
       return schemaResponse;
     } catch (RuntimeException ex) {
-      if (!isJsonSchemaUnsupported(ex)) {
+      if (!schemaMode || !isJsonSchemaUnsupported(ex)) {
         throw ex;
       }
+      structuredOutputCapabilities.recordSchemaUnsupported(provider, modelName);
       logger.warn("{} {} fallback to JSON mode: {}", provider, operation, ex.getMessage());
       ChatRequest jsonRequest = ChatRequest.builder()
           .messages(messages)
           .responseFormat(structuredOutputParser.jsonOnlyResponseFormat())
+          .maxOutputTokens(maxOutputTokens)
           .build();
+      progress.onStage(TaskStage.LLM_REQUEST_SENT, Map.of("format", "json"));
       ChatResponse jsonResponse = model.chat(jsonRequest);
+      progress.onStage(TaskStage.FIRST_TOKEN);
       logChatResponseMeta(logger, provider, operation, jsonResponse, "json");
       return jsonResponse;
     }
   }
 
+  /**
+   * Streaming variant of the suggestion call. Outfits are parsed out of the {@code outfits} array
+   * as the response arrives, validated against the candidates, and reported through
+   * {@link AiProgressListener#onOutfit} one by one; the returned list is ranked like
+   * {@link #normalizeSuggestions}. The provider stream is cancelled as soon as
+   * {@code desiredOutfits} valid, distinct outfits have arrived, or when the calling thread is
+   * interrupted.
+   */
+  protected List<AiClientRouter.AiOutfitSuggestion> streamSuggestions(
+      StreamingChatModel model,
+      List<dev.langchain4j.data.message.ChatMessage> messages,
+      List<Clothing> candidates,
+      int desiredOutfits,
+      Integer maxOutputTokens,
+      String provider,
+      Logger logger,
+      AiProgressListener listener
+  ) {
+    AiProgressListener progress = listener == null ? AiProgressListener.NOOP : listener;
+    String modelName = modelName(model.defaultRequestParameters());
+    ResponseFormat responseFormat = responseFormatFor(suggestionsType(), provider, modelName, "suggestion", logger);
+    boolean schemaMode = responseFormat.jsonSchema() != null;
+    logger.info(
+        "{} suggestion stream request: format={}, schema={}, desiredOutfits={}, maxOutputTokens={}, messageCount={}",
+        provider,
+        responseFormat.type(),
+        responseFormat.jsonSchema() == null ? "-" : responseFormat.jsonSchema().name(),
+        desiredOutfits,
+        maxOutputTokens == null ? "unlimited" : maxOutputTokens,
+        messages == null ? 0 : messages.size()
+    );
+    StreamLimits limits = new StreamLimits(Math.max(1, desiredOutfits), maxOutputTokens);
+
+    try {
+      List<AiClientRouter.AiOutfitSuggestion> streamed = streamSuggestionsOnce(
+          model,
+          messages,
+          responseFormat,
+          schemaMode ? "schema" : "json",
+          candidates,
+          limits,
+          provider,
+          logger,
+          progress
+      );
+      if (schemaMode) {
+        structuredOutputCapabilities.recordSchemaSupported(provider, modelName);
+      }
+      return streamed;
+    } catch (RuntimeException ex) {
+      if (!schemaMode || !isJsonSchemaUnsupported(ex)) {
+        throw ex;
+      }
+      structuredOutputCapabilities.recordSchemaUnsupported(provider, modelName);
+      logger.warn("{} suggestion stream fallback to JSON mode: {}", provider, ex.getMessage());
+      return streamSuggestionsOnce(
+          model,
+          messages,
+          structuredOutputParser.jsonOnlyResponseFormat(),
+          "json",
+          candidates,
+          limits,
+          provider,
+          logger,
+          progress
+      );
+    }
+  }
+
+  /**
+   * The schema response format for {@code responseType}, or plain JSON mode when this provider and
+   * model are known to reject schemas.
+   */
+  private ResponseFormat responseFormatFor(
+      Type responseType,
+      String provider,
+      String modelName,
+      String operation,
+      Logger logger
+  ) {
+    ResponseFormat responseFormat = structuredOutputParser.buildResponseFormatFor(responseType, provider, operation);
+    if (responseFormat.jsonSchema() != null && !structuredOutputCapabilities.shouldSendSchema(provider, modelName)) {
+      logger.debug("{} {} ({}) rejects JSON schema, sending JSON mode directly", provider, operation, modelName);
+      return structuredOutputParser.jsonOnlyResponseFormat();
+    }
+    return responseFormat;
+  }
+
+  private static String modelName(ChatRequestParameters parameters) {
+    String name = parameters == null ? null : parameters.modelName();
+    return name == null || name.isBlank() ? "default" : name;
+  }
+
+  private List<AiClientRouter.AiOutfitSuggestion> streamSuggestionsOnce(
+      StreamingChatModel model,
+      List<dev.langchain4j.data.message.ChatMessage> messages,
+      ResponseFormat responseFormat,
+      String mode,
+      List<Clothing> candidates,
+      StreamLimits limits,
+      String provider,
+      Logger logger,
+      AiProgressListener progress
+  ) {
+    ChatRequest request = ChatRequest.builder()
+        .messages(messages)
+        .responseFormat(responseFormat)
+        .maxOutputTokens(limits.maxOutputTokens())
+        .build();
+    SuggestionStreamHandler handler = new SuggestionStreamHandler(
+        candidateMap(candidates),
+        limits.desiredOutfits(),
+        progress,
+        provider,
+        logger
+    );
+    progress.onStage(TaskStage.LLM_REQUEST_SENT, Map.of("format", mode, "streaming", true));
+    model.chat(request, handler);
+
+    ChatResponse response = handler.await();
+    List<AiClientRouter.AiOutfitSuggestion> streamed = handler.outfits();
+    if (handler.stoppedEarly()) {
+      logger.info("{} suggestion {} stream stopped after {} outfits", provider, mode, streamed.size());
+      return streamed;
+    }
+    logChatResponseMeta(logger, provider, "suggestion", response, mode + " stream");
+    if (!streamed.isEmpty()) {
+      return streamed;
+    }
+    // Nothing recognisable arrived incrementally; give the full text to the regular parser.
+    return normalizeSuggestions(parseSuggestionPayload(response, provider, logger), candidates);
+  }
+
   protected Type suggestionsType() {
     return structuredOutputParser.suggestionsType();
   }
@@ -170,64 +359,65 @@ abstract class AbstractLangChainAiClientSupport {
       return List.of();
     }
 
-    Map<Long, Clothing> candidateMap = new HashMap<>();
-    for (Clothing candidate : candidates) {
-      candidateMap.put(candidate.getId(), candidate);
-    }
-
-    List<AiClientRouter.AiOutfitSuggestion> parsedSuggestions = new ArrayList<>();
+    Map<Long, Clothing> candidateMap = candidateMap(candidates);
+    List<AiClientRouter.AiOutfitSuggestion> ranked = new ArrayList<>();
     for (AiSuggestionPayload item : parsed) {
-      Long topClothingId = item.getTopClothingId();
-      Long bottomClothingId = item.getBottomClothingId();
-      Integer score = item.getScore();
-      String reason = safe(item.getReason());
-      if (reason.isBlank()) {
-        reason = "AI outfit recommendation";
+      AiClientRouter.AiOutfitSuggestion suggestion = normalizeSuggestion(item, candidateMap);
+      if (suggestion != null) {
+        ranked.add(suggestion);
       }
-
-      if (topClothingId == null || bottomClothingId == null || score == null || topClothingId.equals(bottomClothingId)) {
-        continue;
-      }
-      parsedSuggestions.add(new AiClientRouter.AiOutfitSuggestion(
-          topClothingId,
-          bottomClothingId,
-          clampScore(score),
-          reason
-      ));
     }
+    ranked.sort(Comparator.comparingInt(AiClientRouter.AiOutfitSuggestion::score).reversed());
+    return ranked;
+  }
 
-    parsedSuggestions.sort(Comparator.comparingInt(AiClientRouter.AiOutfitSuggestion::score).reversed());
+  /**
+   * Validates one parsed outfit against the candidates: both ids present and distinct, a score,
+   * and a TOP + BOTTOM pair (swapped when the model reversed them). Returns null when invalid.
+   */
+  protected AiClientRouter.AiOutfitSuggestion normalizeSuggestion(
+      AiSuggestionPayload item,
+      Map<Long, Clothing> candidateMap
+  ) {
+    if (item == null) {
+      return null;
+    }
+    Long topClothingId = item.getTopClothingId();
+    Long bottomClothingId = item.getBottomClothingId();
+    Integer score = item.getScore();
+    if (topClothingId == null || bottomClothingId == null || score == null || topClothingId.equals(bottomClothingId)) {
+      return null;
+    }
+    String reason = safe(item.getReason());
+    if (reason.isBlank()) {
+      reason = "AI outfit recommendation";
+    }
 
-    List<AiClientRouter.AiOutfitSuggestion> ranked = new ArrayList<>();
-    for (AiClientRouter.AiOutfitSuggestion item : parsedSuggestions) {
-      Long topClothingId = item.topClothingId();
-      Long bottomClothingId = item.bottomClothingId();
-
-      Clothing topCandidate = candidateMap.get(topClothingId);
-      Clothing bottomCandidate = candidateMap.get(bottomClothingId);
-      if (topCandidate == null || bottomCandidate == null) {
-        continue;
-      }
-      if (topCandidate.getClothingType() == ClothingType.BOTTOM && bottomCandidate.getClothingType() == ClothingType.TOP) {
-        Clothing temp = topCandidate;
-        topCandidate = bottomCandidate;
-        bottomCandidate = temp;
-        Long tempId = topClothingId;
-        topClothingId = bottomClothingId;
-        bottomClothingId = tempId;
-      }
-      if (topCandidate.getClothingType() != ClothingType.TOP || bottomCandidate.getClothingType() != ClothingType.BOTTOM) {
-        continue;
-      }
+    Clothing topCandidate = candidateMap.get(topClothingId);
+    Clothing bottomCandidate = candidateMap.get(bottomClothingId);
+    if (topCandidate == null || bottomCandidate == null) {
+      return null;
+    }
+    if (topCandidate.getClothingType() == ClothingType.BOTTOM && bottomCandidate.getClothingType() == ClothingType.TOP) {
+      Clothing temp = topCandidate;
+      topCandidate = bottomCandidate;
+      bottomCandidate = temp;
+      Long tempId = topClothingId;
+      topClothingId = bottomClothingId;
+      bottomClothingId = tempId;
+    }
+    if (topCandidate.getClothingType() != ClothingType.TOP || bottomCandidate.getClothingType() != ClothingType.BOTTOM) {
+      return null;
+    }
+    return new AiClientRouter.AiOutfitSuggestion(topClothingId, bottomClothingId, clampScore(score), reason);
+  }
 
-      ranked.add(new AiClientRouter.AiOutfitSuggestion(
-          topClothingId,
-          bottomClothingId,
-          item.score(),
-          safe(item.reason())
-      ));
+  protected Map<Long, Clothing> candidateMap(List<Clothing> candidates) {
+    Map<Long, Clothing> candidateMap = new HashMap<>();
+    for (Clothing candidate : candidates) {
+      candidateMap.put(candidate.getId(), candidate);
     }
-    return ranked;
+    return candidateMap;
   }
 
   protected OutfitPreviewResponse normalizePreview(AiPreviewPayload parsed, String provider) {
@@ -258,7 +448,7 @@ abstract class AbstractLangChainAiClientSupport {
       Logger logger
   ) {
     JdkHttpClientBuilder httpClientBuilder = new JdkHttpClientBuilder()
-        .httpClientBuilder(java.net.http.HttpClient.newBuilder())
+        .httpClientBuilder(java.net.http.HttpClient.newBuilder().version(java.net.http.HttpClient.Version.HTTP_2))
         .connectTimeout(Duration.ofMillis(Math.max(1000, connectTimeoutMs)))
         .readTimeout(Duration.ofMillis(Math.max(1000, readTimeoutMs)));
 
@@ -282,27 +472,41 @@ abstract class AbstractLangChainAiClientSupport {
     return httpClientBuilder;
   }
 
-  protected ImageContent toImageContent(
-      String imageUrl,
+  /**
+   * Image contents for the member photo followed by each selected garment, in that order. With
+   * {@code asDataUrl} the images are fetched concurrently under one shared deadline (see
+   * {@link ReferenceImageCache#loadAll}); missing or failed images are reported together in a
+   * {@link ReferenceImageLoadException}.
+   */
+  protected List<ImageContent> toPreviewImageContents(
+      Member member,
+      List<Clothing> selected,
       boolean asDataUrl,
       int connectTimeoutMs,
       int readTimeoutMs,
       String providerErrorPrefix
   ) {
-    if (imageUrl == null || imageUrl.isBlank()) {
-      throw new IllegalStateException(providerErrorPrefix + ": image URL is missing");
+    List<ReferenceImageCache.ImageReference> references = new ArrayList<>(selected.size() + 1);
+    references.add(new ReferenceImageCache.ImageReference("member_photo", member.getPhotoUrl()));
+    for (Clothing clothing : selected) {
+      references.add(new ReferenceImageCache.ImageReference("clothing id=" + safe(clothing.getId()), clothing.getImageUrl()));
+    }
+
+    List<ReferenceImageLoadException.Failure> missing = references.stream()
+        .filter(reference -> reference.url() == null || reference.url().isBlank())
+        .map(reference -> new ReferenceImageLoadException.Failure(reference.label(), reference.url(), "image URL is missing", false))
+        .toList();
+    if (!missing.isEmpty()) {
+      throw new ReferenceImageLoadException(providerErrorPrefix, references.size(), missing);
     }
     if (!asDataUrl) {
-      return ImageContent.from(imageUrl, ImageContent.DetailLevel.HIGH);
+      return references.stream()
+          .map(reference -> ImageContent.from(reference.url(), ImageContent.DetailLevel.HIGH))
+          .toList();
     }
-
-    ImageAttachment attachment = downloadImageAttachment(imageUrl, connectTimeoutMs, readTimeoutMs, providerErrorPrefix);
-    String base64 = Base64.getEncoder().encodeToString(attachment.bytes());
-    Image image = Image.builder()
-        .base64Data(base64)
-        .mimeType(attachment.mimeType())
-        .build();
-    return ImageContent.from(image, ImageContent.DetailLevel.HIGH);
+    return referenceImageCache.loadAll(references, connectTimeoutMs, readTimeoutMs, providerErrorPrefix).stream()
+        .map(image -> ImageContent.from(image, ImageContent.DetailLevel.HIGH))
+        .toList();
   }
 
   protected String safe(Object value) {
@@ -366,50 +570,293 @@ abstract class AbstractLangChainAiClientSupport {
     return false;
   }
 
-  private ImageAttachment downloadImageAttachment(
-      String imageUrl,
-      int connectTimeoutMs,
-      int readTimeoutMs,
-      String providerErrorPrefix
-  ) {
-    try {
-      URL url = new URL(imageUrl);
-      URLConnection connection = url.openConnection();
-      connection.setConnectTimeout(connectTimeoutMs);
-      connection.setReadTimeout(readTimeoutMs);
-      String mimeType = normalizeMimeType(connection.getContentType(), imageUrl);
-      try (InputStream inputStream = connection.getInputStream()) {
-        byte[] bytes = inputStream.readAllBytes();
-        if (bytes.length == 0) {
-          throw new IllegalStateException(providerErrorPrefix + ": empty image content");
+  private record StreamLimits(int desiredOutfits, Integer maxOutputTokens) {
+  }
+
+  /**
+   * Collects one suggestion stream: feeds partial text to an {@link OutfitStreamParser}, reports
+   * each new valid outfit, and hands the final response (or error) to the waiting caller thread.
+   * Once {@code stopAfter} outfits are in, the provider stream is cancelled and the caller is
+   * released with a null response.
+   */
+  private final class SuggestionStreamHandler implements StreamingChatResponseHandler {
+
+    private final Map<Long, Clothing> candidateMap;
+    private final int stopAfter;
+    private final AiProgressListener progress;
+    private final String provider;
+    private final Logger logger;
+    private final OutfitStreamParser parser = new OutfitStreamParser();
+    private final CompletableFuture<ChatResponse> completion = new CompletableFuture<>();
+    private final List<AiClientRouter.AiOutfitSuggestion> outfits = new ArrayList<>();
+    private final Set<String> seenPairs = new HashSet<>();
+    private volatile StreamingHandle streamingHandle;
+    private volatile boolean stoppedEarly;
+    private boolean firstToken = true;
+
+    private SuggestionStreamHandler(
+        Map<Long, Clothing> candidateMap,
+        int stopAfter,
+        AiProgressListener progress,
+        String provider,
+        Logger logger
+    ) {
+      this.candidateMap = candidateMap;
+      this.stopAfter = stopAfter;
+      this.progress = progress;
+      this.provider = provider;
+      this.logger = logger;
+    }
+
+    @Override
+    public void onPartialResponse(String partialResponse) {
+      handlePartial(partialResponse);
+    }
+
+    @Override
+    public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+      streamingHandle = context.streamingHandle();
+      handlePartial(partialResponse.text());
+    }
+
+    @Override
+    public void onCompleteResponse(ChatResponse completeResponse) {
+      completion.complete(completeResponse);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      completion.completeExceptionally(error);
+    }
+
+    private void handlePartial(String text) {
+      if (stoppedEarly) {
+        return;
+      }
+      try {
+        if (firstToken) {
+          firstToken = false;
+          progress.onStage(TaskStage.FIRST_TOKEN);
+        }
+        for (AiSuggestionPayload payload : parser.feed(text)) {
+          AiClientRouter.AiOutfitSuggestion outfit = normalizeSuggestion(payload, candidateMap);
+          if (outfit == null || !seenPairs.add(outfit.topClothingId() + ":" + outfit.bottomClothingId())) {
+            continue;
+          }
+          int sequence;
+          synchronized (outfits) {
+            outfits.add(outfit);
+            sequence = outfits.size();
+          }
+          progress.onOutfit(outfit, sequence);
+          if (sequence >= stopAfter) {
+            stop();
+            return;
+          }
         }
-        return new ImageAttachment(bytes, mimeType);
+      } catch (RuntimeException ex) {
+        // A listener or parser problem must not tear down the provider stream.
+        logger.warn("{} suggestion stream chunk handling failed: {}", provider, ex.getMessage());
       }
-    } catch (IllegalStateException ex) {
-      throw ex;
-    } catch (Exception ex) {
-      throw new IllegalStateException(providerErrorPrefix + ": unable to load image: " + ex.getMessage(), ex);
+    }
+
+    /**
+     * Enough outfits are in: stop paying for the rest of the generation. Providers that do not
+     * expose a streaming handle keep streaming in the background, but the caller no longer waits.
+     */
+    private void stop() {
+      stoppedEarly = true;
+      StreamingHandle handle = streamingHandle;
+      if (handle != null) {
+        try {
+          handle.cancel();
+        } catch (RuntimeException ex) {
+          logger.debug("{} suggestion stream cancel failed: {}", provider, ex.getMessage());
+        }
+      }
+      completion.complete(null);
+    }
+
+    boolean stoppedEarly() {
+      return stoppedEarly;
+    }
+
+    ChatResponse await() {
+      try {
+        return completion.get();
+      } catch (InterruptedException ex) {
+        StreamingHandle handle = streamingHandle;
+        if (handle != null) {
+          handle.cancel();
+        }
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(provider + " suggestion stream interrupted", ex);
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+        if (cause instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw new IllegalStateException(provider + " suggestion stream failed: " + cause.getMessage(), cause);
+      }
+    }
+
+    List<AiClientRouter.AiOutfitSuggestion> outfits() {
+      List<AiClientRouter.AiOutfitSuggestion> ranked;
+      synchronized (outfits) {
+        ranked = new ArrayList<>(outfits);
+      }
+      ranked.sort(Comparator.comparingInt(AiClientRouter.AiOutfitSuggestion::score).reversed());
+      return ranked;
     }
   }
 
-  private String normalizeMimeType(String contentType, String imageUrl) {
-    String raw = contentType == null ? "" : contentType.trim().toLowerCase();
-    if (raw.startsWith("image/")) {
-      int separatorIdx = raw.indexOf(';');
-      return separatorIdx > 0 ? raw.substring(0, separatorIdx) : raw;
+  /**
+   * Per provider and model: whether JSON-schema response formats are accepted. Once a gateway has
+   * rejected a schema, calls go out in JSON mode straight away instead of paying a failed schema
+   * round trip every time; the rejection is re-probed after {@code recheckAfter} in case the
+   * gateway has been upgraded.
+   */
+  static final class StructuredOutputCapabilities {
+
+    enum SchemaSupport {
+      UNKNOWN,
+      SUPPORTED,
+      UNSUPPORTED
+    }
+
+    private static final Duration DEFAULT_RECHECK_AFTER = Duration.ofHours(1);
+    private static final Logger log = LoggerFactory.getLogger(StructuredOutputCapabilities.class);
+
+    private final Map<String, Observation> observations = new ConcurrentHashMap<>();
+    private final Duration recheckAfter;
+
+    StructuredOutputCapabilities() {
+      this(DEFAULT_RECHECK_AFTER);
+    }
+
+    StructuredOutputCapabilities(Duration recheckAfter) {
+      this.recheckAfter = recheckAfter;
+    }
+
+    boolean shouldSendSchema(String provider, String modelName) {
+      Observation observation = observations.get(key(provider, modelName));
+      return observation == null
+          || observation.support() != SchemaSupport.UNSUPPORTED
+          || System.nanoTime() - observation.observedAtNanos() >= recheckAfter.toNanos();
+    }
+
+    SchemaSupport schemaSupport(String provider, String modelName) {
+      Observation observation = observations.get(key(provider, modelName));
+      return observation == null ? SchemaSupport.UNKNOWN : observation.support();
+    }
+
+    void recordSchemaSupported(String provider, String modelName) {
+      Observation previous = observations.put(
+          key(provider, modelName),
+          new Observation(SchemaSupport.SUPPORTED, System.nanoTime())
+      );
+      if (previous == null || previous.support() != SchemaSupport.SUPPORTED) {
+        log.info("{} ({}) accepts JSON schema response format", provider, modelName);
+      }
     }
 
-    String lowerUrl = imageUrl.toLowerCase();
-    if (lowerUrl.endsWith(".png")) {
-      return "image/png";
+    void recordSchemaUnsupported(String provider, String modelName) {
+      observations.put(key(provider, modelName), new Observation(SchemaSupport.UNSUPPORTED, System.nanoTime()));
+      log.info("{} ({}) rejects JSON schema response format, using JSON mode for {}", provider, modelName, recheckAfter);
     }
-    if (lowerUrl.endsWith(".webp")) {
-      return "image/webp";
+
+    private static String key(String provider, String modelName) {
+      return provider + "|" + modelName;
     }
-    if (lowerUrl.endsWith(".gif")) {
-      return "image/gif";
+
+    private record Observation(SchemaSupport support, long observedAtNanos) {
+    }
+  }
+
+  /**
+   * Incremental scanner over a suggestion response that yields each item of the outfits array
+   * (the root object's array field, or a bare root array) as soon as its closing brace arrives.
+   * Not thread-safe; a stream delivers its chunks sequentially.
+   */
+  static final class OutfitStreamParser {
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final StringBuilder item = new StringBuilder();
+    private int depth;
+    private int itemDepth = -1;
+    private boolean inString;
+    private boolean escaped;
+    private boolean capturing;
+    private boolean finished;
+
+    List<AiSuggestionPayload> feed(String chunk) {
+      if (chunk == null || chunk.isEmpty() || finished) {
+        return List.of();
+      }
+      List<AiSuggestionPayload> completed = new ArrayList<>();
+      for (int i = 0; i < chunk.length() && !finished; i++) {
+        char c = chunk.charAt(i);
+        if (capturing) {
+          item.append(c);
+        }
+        if (inString) {
+          if (escaped) {
+            escaped = false;
+          } else if (c == '\\') {
+            escaped = true;
+          } else if (c == '"') {
+            inString = false;
+          }
+          continue;
+        }
+        switch (c) {
+          case '"' -> inString = true;
+          case '[' -> {
+            if (itemDepth < 0 && depth <= 1) {
+              itemDepth = depth + 1;
+            }
+            depth++;
+          }
+          case '{' -> {
+            if (!capturing && depth == itemDepth) {
+              capturing = true;
+              item.setLength(0);
+              item.append(c);
+            }
+            depth++;
+          }
+          case '}' -> {
+            depth--;
+            if (capturing && depth == itemDepth) {
+              capturing = false;
+              AiSuggestionPayload payload = parseItem(item.toString());
+              if (payload != null) {
+                completed.add(payload);
+              }
+            }
+          }
+          case ']' -> {
+            depth--;
+            if (itemDepth >= 0 && depth == itemDepth - 1) {
+              finished = true;
+            }
+          }
+          default -> {
+          }
+        }
+      }
+      return completed;
+    }
+
+    private AiSuggestionPayload parseItem(String json) {
+      try {
+        return mapper.readValue(json, AiSuggestionPayload.class);
+      } catch (Exception ex) {
+        return null;
+      }
     }
-    return "image/jpeg";
   }
 
   static final class StructuredOutputParser {
@@ -420,7 +867,12 @@ abstract class AbstractLangChainAiClientSupport {
     private static final Logger log = LoggerFactory.getLogger(StructuredOutputParser.class);
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    private static final ResponseFormat JSON_ONLY_RESPONSE_FORMAT = ResponseFormat.builder()
+        .type(ResponseFormatType.JSON)
+        .build();
+
     private final ServiceOutputParser outputParser = new ServiceOutputParser();
+    private final Map<String, ResponseFormat> responseFormats = new ConcurrentHashMap<>();
 
     Type suggestionsType() {
       return SUGGESTIONS_TYPE;
@@ -446,12 +898,28 @@ abstract class AbstractLangChainAiClientSupport {
           return Arrays.asList(rawArray);
         } catch (Exception fallbackEx) {
           fallbackEx.addSuppressed(ex);
+          List<AiSuggestionPayload> salvaged = salvageCompleteItems(response);
+          if (!salvaged.isEmpty()) {
+            // Typically the output-token cap cut the response mid-item; keep the complete ones.
+            externalLogger.warn(
+                "{} suggestion output incomplete (finishReason={}), using {} complete items",
+                provider,
+                response == null ? null : response.finishReason(),
+                salvaged.size()
+            );
+            return salvaged;
+          }
           logStructuredParseFailure(provider, "suggestion", response, fallbackEx, externalLogger);
           throw new IllegalStateException(provider + " suggestion failed: invalid structured output: " + fallbackEx.getMessage(), fallbackEx);
         }
       }
     }
 
+    private List<AiSuggestionPayload> salvageCompleteItems(ChatResponse response) {
+      String text = response == null || response.aiMessage() == null ? null : response.aiMessage().text();
+      return new OutfitStreamParser().feed(text);
+    }
+
     AiPreviewPayload parsePreview(ChatResponse response, String provider, Logger externalLogger) {
       try {
         AiPreviewPayload result = (AiPreviewPayload) outputParser.parse(response, PREVIEW_TYPE);
@@ -468,7 +936,15 @@ abstract class AbstractLangChainAiClientSupport {
       }
     }
 
+    /** Memoized: the schema for a response type never changes, so it is derived once. */
     ResponseFormat buildResponseFormatFor(Type type, String provider, String operation) {
+      return responseFormats.computeIfAbsent(
+          type.getTypeName() + "|" + provider + "|" + operation,
+          ignored -> createResponseFormat(type, provider, operation)
+      );
+    }
+
+    private ResponseFormat createResponseFormat(Type type, String provider, String operation) {
       JsonSchema schema = JsonSchemas.jsonSchemaFrom(type)
           .map(item -> JsonSchema.builder()
               .name(sanitizeSchemaName(item.name(), provider, operation))
@@ -487,9 +963,7 @@ abstract class AbstractLangChainAiClientSupport {
     }
 
     ResponseFormat jsonOnlyResponseFormat() {
-      return ResponseFormat.builder()
-          .type(ResponseFormatType.JSON)
-          .build();
+      return JSON_ONLY_RESPONSE_FORMAT;
     }
 
     private String sanitizeSchemaName(String raw, String provider, String operation) {
@@ -634,6 +1108,4 @@ abstract class AbstractLangChainAiClientSupport {
     }
   }
 
-  private record ImageAttachment(byte[] bytes, String mimeType) {
-  }
 }
@@ -4,23 +4,83 @@ import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.member.entity.Member;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Routes suggestion and preview calls to the AI providers.
+ *
+ * <p>{@code app.ai.provider} is the preferred provider. With {@code app.ai.routing.enabled} and
+ * both providers configured, {@link AiProviderHealth} decides the order (an open circuit or a much
+ * slower/failing preferred provider moves traffic to the other one), a failed call is retried on
+ * the other provider, and once the provider's latency for that operation has been measured, a call
+ * that has a fallback is bounded by an attempt timeout derived from that average instead of the full
+ * read timeout. The attempt timeout never exceeds what the provider's own timeouts allow for the
+ * operation (previews include their internal retries). With
+ * {@code app.ai.hedging.enabled}, suggestion calls go through {@link AiRequestHedger} instead, which
+ * also hedges slow calls; each hedged attempt keeps its attempt timeout.</p>
+ */
 @Component
 public class AiClientRouter {
 
+  private static final Logger log = LoggerFactory.getLogger(AiClientRouter.class);
+  private static final String OPENAI = "openai";
+  private static final String GEMINI = "gemini";
+  private static final String SUGGESTION = "suggestion";
+  private static final String PREVIEW = "preview";
+
   private final GeminiClient geminiClient;
   private final OpenaiClient openaiClient;
+  private final AiConcurrencyLimiter concurrencyLimiter;
+  private final AiRequestHedger requestHedger;
+  private final AiLatencyTracker latencyTracker;
+  private final AiProviderHealth providerHealth;
+  private final MeterRegistry meterRegistry;
+  private final ExecutorService attemptExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
   @Value("${app.ai.provider:gemini}")
   private String provider;
 
-  public AiClientRouter(GeminiClient geminiClient, OpenaiClient openaiClient) {
+  @Value("${app.ai.routing.enabled:true}")
+  private boolean routingEnabled;
+
+  @Value("${app.ai.routing.timeout-multiplier:3.0}")
+  private double timeoutMultiplier;
+
+  @Value("${app.ai.routing.min-attempt-timeout-ms:5000}")
+  private long minAttemptTimeoutMs;
+
+  public AiClientRouter(
+      GeminiClient geminiClient,
+      OpenaiClient openaiClient,
+      AiConcurrencyLimiter concurrencyLimiter,
+      AiRequestHedger requestHedger,
+      AiLatencyTracker latencyTracker,
+      AiProviderHealth providerHealth,
+      MeterRegistry meterRegistry
+  ) {
     this.geminiClient = geminiClient;
     this.openaiClient = openaiClient;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.requestHedger = requestHedger;
+    this.latencyTracker = latencyTracker;
+    this.providerHealth = providerHealth;
+    this.meterRegistry = meterRegistry;
   }
 
   public List<AiOutfitSuggestion> suggest(
@@ -28,12 +88,37 @@ public class AiClientRouter {
       List<Clothing> candidates,
       List<MatchRecord> history,
       String scene,
-      AiLanguage language
+      AiLanguage language,
+      int desiredOutfits,
+      AiProgressListener listener
   ) {
-    if (isOpenaiProvider()) {
-      return openaiClient.suggest(member, candidates, history, scene, language);
+    List<String> targets = routeOrder(SUGGESTION);
+    if (requestHedger.isEnabled() && targets.size() > 1) {
+      String primary = targets.get(0);
+      String secondary = targets.get(1);
+      // Each attempt keeps the per-operation timeout a plain failover attempt would get.
+      long primaryTimeoutMs = attemptTimeoutMs(primary, SUGGESTION);
+      long secondaryTimeoutMs = attemptTimeoutMs(secondary, SUGGESTION);
+      return requestHedger.call(
+          SUGGESTION,
+          new AiRequestHedger.Attempt<>(primary, progress -> attempt(primary, SUGGESTION, primaryTimeoutMs, () ->
+              suggestVia(primary, member, candidates, history, scene, language, desiredOutfits, progress))),
+          new AiRequestHedger.Attempt<>(secondary, progress -> attempt(secondary, SUGGESTION, secondaryTimeoutMs, () ->
+              suggestVia(secondary, member, candidates, history, scene, language, desiredOutfits, progress))),
+          listener
+      );
     }
-    return geminiClient.suggest(member, candidates, history, scene, language);
+
+    MergedAiProgress progress = new MergedAiProgress(listener);
+    return failover(SUGGESTION, targets, (target, timeoutMs) -> {
+      try {
+        return attempt(target, SUGGESTION, timeoutMs, () ->
+            suggestVia(target, member, candidates, history, scene, language, desiredOutfits, progress.forAttempt(target)));
+      } catch (RuntimeException ex) {
+        progress.attemptFailed(target);
+        throw ex;
+      }
+    });
   }
 
   public OutfitPreviewResponse generateOutfitPreview(
@@ -42,23 +127,185 @@ public class AiClientRouter {
       String scene,
       AiLanguage language
   ) {
-    if (isOpenaiProvider()) {
-      return openaiClient.generateOutfitPreview(member, selected, scene, language);
+    return failover(PREVIEW, routeOrder(PREVIEW), (target, timeoutMs) -> attempt(target, PREVIEW, timeoutMs, () ->
+        OPENAI.equals(target)
+            ? openaiClient.generateOutfitPreview(member, selected, scene, language)
+            : geminiClient.generateOutfitPreview(member, selected, scene, language)));
+  }
+
+  /**
+   * Providers to try, best first. Without routing (or with only one provider configured) this is
+   * just the preferred provider.
+   */
+  private List<String> routeOrder(String operation) {
+    String preferred = isOpenaiProvider() ? OPENAI : GEMINI;
+    String alternative = isOpenaiProvider() ? GEMINI : OPENAI;
+    if (!isConfigured(alternative)) {
+      return List.of(preferred);
+    }
+    if (!routingEnabled) {
+      // Hedging may still use the alternative; plain calls stay on the preferred provider.
+      return requestHedger.isEnabled() ? List.of(preferred, alternative) : List.of(preferred);
+    }
+    if (!isConfigured(preferred)) {
+      return List.of(alternative);
+    }
+    return providerHealth.shouldPrefer(alternative, preferred, operation)
+        ? List.of(alternative, preferred)
+        : List.of(preferred, alternative);
+  }
+
+  private <T> T failover(String operation, List<String> targets, BiFunction<String, Long, T> call) {
+    RuntimeException lastError = null;
+    for (int i = 0; i < targets.size(); i++) {
+      String target = targets.get(i);
+      boolean hasFallback = i < targets.size() - 1;
+      try {
+        return call.apply(target, hasFallback ? attemptTimeoutMs(target, operation) : 0L);
+      } catch (AiInputException ex) {
+        throw ex;
+      } catch (RuntimeException ex) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw ex;
+        }
+        lastError = ex;
+        if (hasFallback) {
+          log.warn("AI {} via {} failed, failing over to {}: {}", operation, target, targets.get(i + 1), ex.getMessage());
+          meterRegistry.counter("match.ai.failover", "provider", target, "operation", operation).increment();
+        }
+      }
+    }
+    throw lastError;
+  }
+
+  /**
+   * One call to one provider under its concurrency limit and circuit breaker, reporting the
+   * outcome to {@link AiProviderHealth}. {@code timeoutMs > 0} abandons the call after that long.
+   */
+  private <T> T attempt(String target, String operation, long timeoutMs, Supplier<T> call) {
+    return concurrencyLimiter.call(target, () -> {
+      if (routingEnabled && !providerHealth.tryAcquire(target, operation)) {
+        throw new IllegalStateException(displayName(target) + " " + operation + " skipped: circuit open");
+      }
+      long startNanos = System.nanoTime();
+      try {
+        T result = timeoutMs > 0 ? callWithTimeout(target, operation, timeoutMs, call) : call.get();
+        Duration latency = Duration.ofNanos(System.nanoTime() - startNanos);
+        providerHealth.recordSuccess(target, operation, latency);
+        latencyTracker.record(target, operation, latency);
+        return result;
+      } catch (RuntimeException ex) {
+        if (ex instanceof AiInputException || wasInterrupted(ex)) {
+          providerHealth.release(target, operation);
+        } else {
+          providerHealth.recordFailure(target, operation, Duration.ofNanos(System.nanoTime() - startNanos), isTimeout(ex));
+        }
+        throw ex;
+      }
+    });
+  }
+
+  private <T> T callWithTimeout(String target, String operation, long timeoutMs, Supplier<T> call) {
+    Future<T> future = attemptExecutor.submit(call::get);
+    try {
+      return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      future.cancel(true);
+      throw new IllegalStateException(displayName(target) + " " + operation + " timed out after " + timeoutMs + "ms", ex);
+    } catch (InterruptedException ex) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(displayName(target) + " " + operation + " interrupted", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(displayName(target) + " " + operation + " failed: " + cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * A multiple of the provider's latency average, at least {@code min-attempt-timeout-ms} and at most
+   * the provider's own limit for the operation. 0 (no attempt timeout) until latency has been measured.
+   */
+  private long attemptTimeoutMs(String target, String operation) {
+    long latencyMs = providerHealth.latencyMillis(target, operation);
+    if (latencyMs < 0) {
+      return 0L;
+    }
+    long timeoutMs = Math.max(minAttemptTimeoutMs, Math.round(latencyMs * timeoutMultiplier));
+    boolean preview = PREVIEW.equals(operation);
+    long ceilingMs = OPENAI.equals(target) ? openaiClient.maxCallMs(preview) : geminiClient.maxCallMs(preview);
+    return ceilingMs > 0 ? Math.min(timeoutMs, ceilingMs) : timeoutMs;
+  }
+
+  private boolean wasInterrupted(Throwable ex) {
+    if (Thread.currentThread().isInterrupted()) {
+      return true;
+    }
+    for (Throwable cursor = ex; cursor != null; cursor = cursor.getCause()) {
+      if (cursor instanceof InterruptedException || cursor instanceof java.nio.channels.ClosedByInterruptException) {
+        return true;
+      }
     }
-    return geminiClient.generateOutfitPreview(member, selected, scene, language);
+    return false;
+  }
+
+  private boolean isTimeout(Throwable ex) {
+    for (Throwable cursor = ex; cursor != null; cursor = cursor.getCause()) {
+      if (cursor instanceof TimeoutException
+          || cursor instanceof java.net.http.HttpTimeoutException
+          || cursor instanceof java.net.SocketTimeoutException) {
+        return true;
+      }
+      String message = cursor.getMessage();
+      if (message != null && message.toLowerCase(Locale.ROOT).contains("timed out")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<AiOutfitSuggestion> suggestVia(
+      String target,
+      Member member,
+      List<Clothing> candidates,
+      List<MatchRecord> history,
+      String scene,
+      AiLanguage language,
+      int desiredOutfits,
+      AiProgressListener listener
+  ) {
+    return OPENAI.equals(target)
+        ? openaiClient.suggest(member, candidates, history, scene, language, desiredOutfits, listener)
+        : geminiClient.suggest(member, candidates, history, scene, language, desiredOutfits, listener);
+  }
+
+  private boolean isConfigured(String target) {
+    return OPENAI.equals(target) ? openaiClient.isConfigured() : geminiClient.isConfigured();
+  }
+
+  private String displayName(String target) {
+    return OPENAI.equals(target) ? "OpenAI" : "Gemini";
   }
 
   private boolean isOpenaiProvider() {
-    return "openai".equalsIgnoreCase(valueOrDefault(provider));
+    return OPENAI.equals(valueOrDefault(provider));
   }
 
   private String valueOrDefault(String raw) {
     if (raw == null) {
-      return "gemini";
+      return GEMINI;
     }
     return raw.trim().toLowerCase(Locale.ROOT);
   }
 
+  @PreDestroy
+  void shutdown() {
+    attemptExecutor.shutdownNow();
+  }
+
   public record AiOutfitSuggestion(Long topClothingId, Long bottomClothingId, int score, String reason) {
   }
 }
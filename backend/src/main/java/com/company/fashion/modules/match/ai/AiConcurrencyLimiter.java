@@ -0,0 +1,55 @@
+package com.company.fashion.modules.match.ai;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caps concurrent in-flight calls per AI provider.
+ *
+ * <p>With virtual-thread execution the worker count is no longer the throughput limit, so this is
+ * what keeps a burst of tasks from exceeding the provider's rate or concurrency quota.</p>
+ */
+@Component
+public class AiConcurrencyLimiter {
+
+  private final Map<String, Semaphore> permitsByProvider = new ConcurrentHashMap<>();
+
+  @Value("${app.ai.openai.max-concurrency:8}")
+  private int openaiMaxConcurrency;
+
+  @Value("${app.ai.gemini.max-concurrency:8}")
+  private int geminiMaxConcurrency;
+
+  public <T> T call(String provider, Supplier<T> action) {
+    Semaphore semaphore = semaphore(provider);
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(provider + " call interrupted while waiting for a concurrency permit", ex);
+    }
+    try {
+      return action.get();
+    } finally {
+      semaphore.release();
+    }
+  }
+
+  public int availablePermits(String provider) {
+    return semaphore(provider).availablePermits();
+  }
+
+  private Semaphore semaphore(String provider) {
+    String key = provider == null ? "" : provider.trim().toLowerCase(Locale.ROOT);
+    return permitsByProvider.computeIfAbsent(key, ignored -> new Semaphore(Math.max(1, maxConcurrency(key)), true));
+  }
+
+  private int maxConcurrency(String provider) {
+    return "openai".equals(provider) ? openaiMaxConcurrency : geminiMaxConcurrency;
+  }
+}
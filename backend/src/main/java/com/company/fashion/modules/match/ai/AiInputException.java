@@ -0,0 +1,17 @@
+package com.company.fashion.modules.match.ai;
+
+/**
+ * A problem with the request itself (missing or unreadable images, nothing selected) rather than
+ * with the provider. Another provider would fail the same way, so it is neither retried elsewhere
+ * nor counted against the provider's health.
+ */
+class AiInputException extends IllegalStateException {
+
+  AiInputException(String message) {
+    super(message);
+  }
+
+  AiInputException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,68 @@
+package com.company.fashion.modules.match.ai;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency of recent successful provider calls, kept per provider and operation in a fixed-size
+ * window so percentiles follow the provider's current behaviour rather than its lifetime average.
+ */
+@Component
+public class AiLatencyTracker {
+
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+  @Value("${app.ai.latency-window:200}")
+  private int windowSize;
+
+  public void record(String provider, String operation, Duration latency) {
+    windows.computeIfAbsent(key(provider, operation), ignored -> new Window(Math.max(1, windowSize)))
+        .add(Math.max(0, latency.toMillis()));
+  }
+
+  /**
+   * Latency percentile ({@code quantile} in (0, 1]) in milliseconds, empty until at least
+   * {@code minSamples} calls have been recorded.
+   */
+  public OptionalLong percentileMillis(String provider, String operation, double quantile, int minSamples) {
+    Window window = windows.get(key(provider, operation));
+    return window == null ? OptionalLong.empty() : window.percentile(quantile, Math.max(1, minSamples));
+  }
+
+  private static String key(String provider, String operation) {
+    return (provider == null ? "" : provider.trim().toLowerCase(Locale.ROOT)) + ":" + operation;
+  }
+
+  private static final class Window {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    private Window(int capacity) {
+      this.samples = new long[capacity];
+    }
+
+    synchronized void add(long millis) {
+      samples[next] = millis;
+      next = (next + 1) % samples.length;
+      size = Math.min(size + 1, samples.length);
+    }
+
+    synchronized OptionalLong percentile(double quantile, int minSamples) {
+      if (size < minSamples) {
+        return OptionalLong.empty();
+      }
+      long[] sorted = Arrays.copyOf(samples, size);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * size) - 1;
+      return OptionalLong.of(sorted[Math.max(0, index)]);
+    }
+  }
+}
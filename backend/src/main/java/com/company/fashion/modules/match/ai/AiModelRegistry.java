@@ -0,0 +1,133 @@
+package com.company.fashion.modules.match.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Long-lived chat models, one per provider and model kind, so every call reuses the same pooled
+ * HTTP/2 connections instead of building a new {@code HttpClient} and paying the TCP/TLS handshake.
+ *
+ * <p>Entries are keyed by everything the model is built from (base URL, model, credentials,
+ * timeouts, proxy). When the settings a client resolves no longer match the cached key, the entry
+ * is rebuilt and swapped in place; calls already running keep the old model until they finish,
+ * after which its idle {@code HttpClient} is released with it.
+ * Lookup time is exported as {@code match.ai.client.setup} tagged {@code outcome=reused|created}.</p>
+ */
+@Component
+public class AiModelRegistry {
+
+  private static final Logger log = LoggerFactory.getLogger(AiModelRegistry.class);
+
+  public enum Kind {
+    CHAT,
+    STREAMING
+  }
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  public AiModelRegistry(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /** The cached model for {@code key}, built with {@code factory} when missing or stale. */
+  @SuppressWarnings("unchecked")
+  public <M> M get(ModelKey key, Function<ModelKey, M> factory) {
+    long startNanos = System.nanoTime();
+    boolean[] created = new boolean[1];
+    Entry entry = entries.compute(key.slot(), (slot, current) -> {
+      if (current != null && current.key().equals(key)) {
+        return current;
+      }
+      if (current != null) {
+        log.info("{} {} model settings changed, replacing cached client", key.provider(), key.kind());
+      }
+      created[0] = true;
+      return new Entry(key, factory.apply(key));
+    });
+    Timer.builder("match.ai.client.setup")
+        .description("Time to obtain a chat model for an AI call")
+        .tag("provider", key.provider())
+        .tag("kind", key.kind().name().toLowerCase(Locale.ROOT))
+        .tag("outcome", created[0] ? "created" : "reused")
+        .register(meterRegistry)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    return (M) entry.model();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * What a model is built from. The API key is kept only as a digest so the key can be logged and
+   * compared without holding the secret.
+   */
+  public record ModelKey(
+      String provider,
+      Kind kind,
+      String baseUrl,
+      String model,
+      String credentialDigest,
+      int connectTimeoutMs,
+      int readTimeoutMs,
+      String proxyHost,
+      int proxyPort
+  ) {
+
+    public static ModelKey of(
+        String provider,
+        Kind kind,
+        String baseUrl,
+        String model,
+        String apiKey,
+        int connectTimeoutMs,
+        int readTimeoutMs,
+        String proxyHost,
+        int proxyPort
+    ) {
+      return new ModelKey(
+          provider,
+          kind,
+          baseUrl == null ? "" : baseUrl.trim(),
+          model == null ? "" : model.trim(),
+          digest(apiKey),
+          connectTimeoutMs,
+          readTimeoutMs,
+          proxyHost == null ? "" : proxyHost.trim(),
+          proxyPort
+      );
+    }
+
+    private String slot() {
+      return provider + ":" + kind;
+    }
+
+    private static String digest(String secret) {
+      if (secret == null || secret.isBlank()) {
+        return "";
+      }
+      try {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 8);
+      } catch (NoSuchAlgorithmException ex) {
+        throw new IllegalStateException("SHA-256 unavailable", ex);
+      }
+    }
+  }
+
+  private record Entry(ModelKey key, Object model) {
+  }
+}
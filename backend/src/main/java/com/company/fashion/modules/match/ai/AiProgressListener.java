@@ -0,0 +1,39 @@
+package com.company.fashion.modules.match.ai;
+
+import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives pipeline stage notifications, and in streaming mode each validated outfit as soon as it
+ * is parsed, from the AI call path. In progressive mode it also receives the rule-based outfits
+ * that stand in until the AI result arrives.
+ *
+ * <p>Implementations must be thread-safe: streaming providers report from their own I/O threads.</p>
+ */
+@FunctionalInterface
+public interface AiProgressListener {
+
+  AiProgressListener NOOP = (stage, details) -> {
+  };
+
+  void onStage(TaskStage stage, Map<String, Object> details);
+
+  default void onStage(TaskStage stage) {
+    onStage(stage, Map.of());
+  }
+
+  /**
+   * Called once per outfit that completed in the response stream and passed candidate validation,
+   * in arrival order ({@code sequence} starts at 1). The final result is still ranked by score.
+   */
+  default void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+  }
+
+  /**
+   * Called once, before the AI call, with locally computed outfits the final result will replace.
+   */
+  default void onProvisionalResult(String strategyName, List<OutfitRecommendationResponse> outfits) {
+  }
+}
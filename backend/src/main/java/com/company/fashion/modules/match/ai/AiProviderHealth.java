@@ -0,0 +1,242 @@
+package com.company.fashion.modules.match.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runtime health of each provider per operation ({@code suggestion}, {@code preview}): moving
+ * averages (EWMA) of latency, error rate and timeout rate, plus a circuit breaker.
+ *
+ * <p>The circuit opens after {@code consecutive-failures} failures in a row, or once the error
+ * EWMA reaches {@code failure-rate-threshold} over at least {@code min-calls} calls. An open
+ * circuit sheds all calls for {@code open-duration-ms}, then lets a single half-open probe through:
+ * success closes it, failure re-opens it.</p>
+ */
+@Component
+public class AiProviderHealth {
+
+  private static final Logger log = LoggerFactory.getLogger(AiProviderHealth.class);
+
+  public enum CircuitState {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+  }
+
+  private final Map<String, ProviderStats> statsByKey = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  @Value("${app.ai.routing.ewma-alpha:0.3}")
+  private double alpha;
+
+  @Value("${app.ai.routing.min-calls:5}")
+  private int minCalls;
+
+  @Value("${app.ai.routing.failure-rate-threshold:0.5}")
+  private double failureRateThreshold;
+
+  @Value("${app.ai.routing.consecutive-failures:3}")
+  private int consecutiveFailuresToOpen;
+
+  @Value("${app.ai.routing.open-duration-ms:10000}")
+  private long openDurationMs;
+
+  @Value("${app.ai.routing.latency-switch-ratio:2.0}")
+  private double latencySwitchRatio;
+
+  @Value("${app.ai.routing.stale-after-ms:60000}")
+  private long staleAfterMs;
+
+  public AiProviderHealth(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Whether a call may be sent now. For an open circuit whose open period has passed this claims
+   * the half-open probe, so callers must report the outcome through {@link #recordSuccess} or
+   * {@link #recordFailure} (or {@link #release} if the call was abandoned).
+   */
+  public boolean tryAcquire(String provider, String operation) {
+    return stats(provider, operation).tryAcquire(System.currentTimeMillis());
+  }
+
+  public boolean isAvailable(String provider, String operation) {
+    return stats(provider, operation).isAvailable(System.currentTimeMillis());
+  }
+
+  public void recordSuccess(String provider, String operation, Duration latency) {
+    stats(provider, operation).record(System.currentTimeMillis(), latency.toMillis(), false, false);
+  }
+
+  public void recordFailure(String provider, String operation, Duration latency, boolean timeout) {
+    stats(provider, operation).record(System.currentTimeMillis(), latency.toMillis(), true, timeout);
+  }
+
+  /** The call was cancelled before it produced an outcome; frees a claimed half-open probe. */
+  public void release(String provider, String operation) {
+    stats(provider, operation).release();
+  }
+
+  public CircuitState state(String provider, String operation) {
+    return stats(provider, operation).state;
+  }
+
+  /** Smoothed latency in milliseconds, or -1 before the first call. */
+  public long latencyMillis(String provider, String operation) {
+    ProviderStats stats = stats(provider, operation);
+    return stats.calls == 0 ? -1 : Math.round(stats.latencyMs);
+  }
+
+  /**
+   * Whether {@code preferred} should be skipped in favour of {@code alternative}: its circuit sheds
+   * calls, or its recent success-adjusted latency is {@code latency-switch-ratio} times worse.
+   * Stale numbers (no call within {@code stale-after-ms}) never demote the preferred provider,
+   * which is how it gets re-measured after traffic moved away.
+   */
+  public boolean shouldPrefer(String alternative, String preferred, String operation) {
+    long now = System.currentTimeMillis();
+    ProviderStats preferredStats = stats(preferred, operation);
+    ProviderStats alternativeStats = stats(alternative, operation);
+    if (!alternativeStats.isAvailable(now)) {
+      return false;
+    }
+    if (!preferredStats.isAvailable(now)) {
+      return true;
+    }
+    if (preferredStats.calls < minCalls || alternativeStats.calls < minCalls
+        || now - preferredStats.lastUpdatedAt > staleAfterMs) {
+      return false;
+    }
+    return preferredStats.cost() > alternativeStats.cost() * latencySwitchRatio;
+  }
+
+  private ProviderStats stats(String provider, String operation) {
+    String normalized = provider == null ? "" : provider.trim().toLowerCase(Locale.ROOT);
+    return statsByKey.computeIfAbsent(normalized + ":" + operation, ignored -> register(normalized, operation));
+  }
+
+  private ProviderStats register(String provider, String operation) {
+    ProviderStats stats = new ProviderStats(provider, operation);
+    Tags tags = Tags.of("provider", provider, "operation", operation);
+    Gauge.builder("match.ai.provider.latency", stats, item -> item.latencyMs)
+        .description("EWMA of AI provider call latency")
+        .baseUnit("milliseconds")
+        .tags(tags)
+        .register(meterRegistry);
+    Gauge.builder("match.ai.provider.error.rate", stats, item -> item.errorRate)
+        .description("EWMA of AI provider call failures")
+        .tags(tags)
+        .register(meterRegistry);
+    Gauge.builder("match.ai.provider.timeout.rate", stats, item -> item.timeoutRate)
+        .description("EWMA of AI provider call timeouts")
+        .tags(tags)
+        .register(meterRegistry);
+    Gauge.builder("match.ai.provider.circuit", stats, item -> item.state.ordinal())
+        .description("Circuit state: 0 closed, 1 half-open, 2 open")
+        .tags(tags)
+        .register(meterRegistry);
+    return stats;
+  }
+
+  private final class ProviderStats {
+
+    private final String provider;
+    private final String operation;
+    private volatile double latencyMs;
+    private volatile double errorRate;
+    private volatile double timeoutRate;
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private long calls;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long lastUpdatedAt;
+    private boolean probeInFlight;
+
+    private ProviderStats(String provider, String operation) {
+      this.provider = provider;
+      this.operation = operation;
+    }
+
+    synchronized boolean tryAcquire(long now) {
+      if (state == CircuitState.CLOSED) {
+        return true;
+      }
+      if (state == CircuitState.OPEN) {
+        if (now - openedAt < openDurationMs) {
+          return false;
+        }
+        transition(CircuitState.HALF_OPEN);
+      } else if (probeInFlight) {
+        return false;
+      }
+      probeInFlight = true;
+      return true;
+    }
+
+    synchronized boolean isAvailable(long now) {
+      return switch (state) {
+        case CLOSED -> true;
+        case OPEN -> now - openedAt >= openDurationMs;
+        case HALF_OPEN -> !probeInFlight;
+      };
+    }
+
+    synchronized void record(long now, long latency, boolean failed, boolean timeout) {
+      double weight = calls == 0 ? 1.0 : alpha;
+      latencyMs += weight * (Math.max(0, latency) - latencyMs);
+      errorRate += weight * ((failed ? 1.0 : 0.0) - errorRate);
+      timeoutRate += weight * ((timeout ? 1.0 : 0.0) - timeoutRate);
+      calls++;
+      lastUpdatedAt = now;
+      consecutiveFailures = failed ? consecutiveFailures + 1 : 0;
+
+      if (state == CircuitState.HALF_OPEN) {
+        probeInFlight = false;
+        if (failed) {
+          open(now);
+        } else {
+          transition(CircuitState.CLOSED);
+        }
+        return;
+      }
+      if (state == CircuitState.CLOSED && failed
+          && (consecutiveFailures >= consecutiveFailuresToOpen || (calls >= minCalls && errorRate >= failureRateThreshold))) {
+        open(now);
+      }
+    }
+
+    synchronized void release() {
+      probeInFlight = false;
+    }
+
+    /** Latency inflated by the error rate: a fast provider that mostly fails is not cheap. */
+    double cost() {
+      return latencyMs / Math.max(0.05, 1.0 - errorRate);
+    }
+
+    private void open(long now) {
+      openedAt = now;
+      transition(CircuitState.OPEN);
+    }
+
+    private void transition(CircuitState next) {
+      if (state != next) {
+        log.info("AI provider {} {} circuit {} -> {} (errorRate={}, timeoutRate={}, latencyMs={})",
+            provider, operation, state, next,
+            String.format(Locale.ROOT, "%.2f", errorRate),
+            String.format(Locale.ROOT, "%.2f", timeoutRate),
+            Math.round(latencyMs));
+        state = next;
+      }
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package com.company.fashion.modules.match.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hedged provider calls: the primary provider is called first and, if it has not answered after a
+ * delay derived from its recent latency percentile, the same request is sent to the secondary
+ * provider. The first attempt that returns normally wins and the other one is cancelled. A primary
+ * that fails while no hedge is in flight is retried on the secondary straight away.
+ *
+ * <p>Hedges are paid for with credits earned at {@code app.ai.hedging.max-hedge-ratio} per call,
+ * so over time at most that fraction of calls is duplicated.</p>
+ */
+@Component
+public class AiRequestHedger {
+
+  private static final Logger log = LoggerFactory.getLogger(AiRequestHedger.class);
+  private static final double MAX_HEDGE_CREDITS = 1.0;
+
+  private final AiLatencyTracker latencyTracker;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Counter fired;
+  private final Counter won;
+  private final Counter budgetExhausted;
+  private final Counter failedOver;
+  private double hedgeCredits = MAX_HEDGE_CREDITS;
+
+  @Value("${app.ai.hedging.enabled:false}")
+  private boolean enabled;
+
+  @Value("${app.ai.hedging.delay-percentile:0.9}")
+  private double delayPercentile;
+
+  @Value("${app.ai.hedging.min-samples:20}")
+  private int minSamples;
+
+  @Value("${app.ai.hedging.initial-delay-ms:5000}")
+  private long initialDelayMs;
+
+  @Value("${app.ai.hedging.min-delay-ms:500}")
+  private long minDelayMs;
+
+  @Value("${app.ai.hedging.max-delay-ms:30000}")
+  private long maxDelayMs;
+
+  @Value("${app.ai.hedging.max-hedge-ratio:0.1}")
+  private double maxHedgeRatio;
+
+  public AiRequestHedger(AiLatencyTracker latencyTracker, MeterRegistry meterRegistry) {
+    this.latencyTracker = latencyTracker;
+    this.fired = hedgeCounter(meterRegistry, "fired");
+    this.won = hedgeCounter(meterRegistry, "won");
+    this.budgetExhausted = hedgeCounter(meterRegistry, "budget_exhausted");
+    this.failedOver = hedgeCounter(meterRegistry, "failover");
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Runs {@code primary}, hedging with {@code secondary} once the primary is slower than its usual
+   * {@code delay-percentile} latency. Progress from both attempts is merged so each stage and
+   * each streamed outfit is reported once. A failed primary fails over to {@code secondary} unless
+   * the input itself was rejected. Interrupting the caller cancels every attempt.
+   */
+  public <T> T call(String operation, Attempt<T> primary, Attempt<T> secondary, AiProgressListener listener) {
+    MergedAiProgress progress = new MergedAiProgress(listener);
+    BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+    List<Future<?>> running = new ArrayList<>();
+    long delayMs = hedgeDelayMs(primary.provider(), operation);
+    earnHedgeCredit();
+
+    try {
+      running.add(submit(primary, progress, outcomes));
+      int pending = 1;
+      boolean hedged = false;
+      boolean secondaryStarted = false;
+      Outcome<T> outcome = outcomes.poll(delayMs, TimeUnit.MILLISECONDS);
+      if (outcome == null) {
+        if (trySpendHedgeCredit()) {
+          log.info("{} {} slower than {}ms, hedging with {}", primary.provider(), operation, delayMs, secondary.provider());
+          fired.increment();
+          hedged = true;
+          secondaryStarted = true;
+          running.add(submit(secondary, progress, outcomes));
+          pending++;
+        } else {
+          budgetExhausted.increment();
+        }
+        outcome = outcomes.take();
+      }
+      // A failed attempt only fails the call once no other attempt is still in flight. A primary
+      // that fails with nothing else in flight fails over to the secondary; that is not a hedge
+      // and costs no credit.
+      while (outcome.error() != null) {
+        pending--;
+        if (!secondaryStarted && !(outcome.error() instanceof AiInputException)) {
+          log.warn("AI {} via {} failed, failing over to {}: {}",
+              operation, primary.provider(), secondary.provider(), outcome.error().getMessage());
+          failedOver.increment();
+          secondaryStarted = true;
+          running.add(submit(secondary, progress, outcomes));
+          pending++;
+        } else if (pending == 0) {
+          throw outcome.error();
+        }
+        outcome = outcomes.take();
+      }
+      if (hedged && outcome.provider().equals(secondary.provider())) {
+        won.increment();
+      }
+      return outcome.value();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("AI " + operation + " interrupted", ex);
+    } finally {
+      running.forEach(future -> future.cancel(true));
+    }
+  }
+
+  long hedgeDelayMs(String provider, String operation) {
+    OptionalLong percentile = latencyTracker.percentileMillis(provider, operation, delayPercentile, minSamples);
+    long delay = percentile.isPresent() ? percentile.getAsLong() : initialDelayMs;
+    return Math.max(minDelayMs, Math.min(maxDelayMs, delay));
+  }
+
+  /** Every call earns {@code max-hedge-ratio} of a hedge; a hedge spends one whole credit. */
+  private synchronized void earnHedgeCredit() {
+    hedgeCredits = Math.min(MAX_HEDGE_CREDITS, hedgeCredits + Math.max(0.0, maxHedgeRatio));
+  }
+
+  private synchronized boolean trySpendHedgeCredit() {
+    if (hedgeCredits < 1.0) {
+      return false;
+    }
+    hedgeCredits -= 1.0;
+    return true;
+  }
+
+  private <T> Future<?> submit(
+      Attempt<T> attempt,
+      MergedAiProgress progress,
+      BlockingQueue<Outcome<T>> outcomes
+  ) {
+    AiProgressListener attemptProgress = progress.forAttempt(attempt.provider());
+    return executor.submit(() -> {
+      try {
+        T value = attempt.call().apply(attemptProgress);
+        outcomes.add(new Outcome<>(attempt.provider(), value, null));
+      } catch (RuntimeException ex) {
+        progress.attemptFailed(attempt.provider());
+        outcomes.add(new Outcome<>(attempt.provider(), null, ex));
+      } catch (Throwable ex) {
+        progress.attemptFailed(attempt.provider());
+        outcomes.add(new Outcome<>(attempt.provider(), null, new IllegalStateException(ex.getMessage(), ex)));
+      }
+    });
+  }
+
+  private static Counter hedgeCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("match.ai.hedge")
+        .description("Hedged AI provider calls")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public record Attempt<T>(String provider, Function<AiProgressListener, T> call) {
+  }
+
+  private record Outcome<T>(String provider, T value, RuntimeException error) {
+  }
+}
@@ -0,0 +1,122 @@
+package com.company.fashion.modules.match.ai;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.member.model.BodyMeasurements;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local relevance of candidates to a member and scene: +10 per style tag shared with the member,
+ * +6 when a tag appears in the scene, plus size fit of the garment's size label and measurements
+ * against the member's {@link BodyMeasurements}. Ranks the shortlist in front of the LLM and the
+ * candidates trimmed from an over-budget prompt, so both agree on what matters.
+ */
+public final class CandidateRelevance {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private CandidateRelevance() {
+  }
+
+  /** Relevance per candidate id; higher is better. {@code body} may be null (no size fit). */
+  public static Map<Long, Integer> scores(List<Clothing> candidates, String memberStyleTags, String scene, BodyMeasurements body) {
+    Set<String> memberTags = tags(memberStyleTags);
+    String normalizedScene = scene == null ? "" : scene.toLowerCase(Locale.ROOT);
+
+    Map<Long, Integer> result = new HashMap<>();
+    for (Clothing clothing : candidates) {
+      Set<String> clothingTags = tags(clothing.getStyleTags());
+      int score = 0;
+      for (String tag : clothingTags) {
+        if (memberTags.contains(tag)) {
+          score += 10;
+        }
+      }
+      if (!normalizedScene.isBlank() && clothingTags.stream().anyMatch(normalizedScene::contains)) {
+        score += 6;
+      }
+      score += sizeFit(clothing, body);
+      result.put(clothing.getId(), score);
+    }
+    return result;
+  }
+
+  /** Highest score first; ties keep the lower id ahead. */
+  public static Comparator<Clothing> mostRelevantFirst(Map<Long, Integer> scores) {
+    return Comparator
+        .comparingInt((Clothing item) -> scores.getOrDefault(item.getId(), 0)).reversed()
+        .thenComparing(Clothing::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+  }
+
+  /**
+   * +4 for a matching size label and for each measurement within its ease range, -4 for each
+   * measurement smaller than the body needs; looser garments score 0.
+   */
+  private static int sizeFit(Clothing clothing, BodyMeasurements body) {
+    JsonNode size = sizeData(clothing.getSizeData());
+    if (body == null || size == null) {
+      return 0;
+    }
+    if (clothing.getClothingType() == ClothingType.TOP) {
+      return labelFit(size.path("topSize").asText(null), body.getTopSize())
+          + measurementFit(size, "shoulderWidthCm", body.getShoulderWidthCm(), -1, 3)
+          + measurementFit(size, "bustCm", body.getBustCm(), 2, 14);
+    }
+    if (clothing.getClothingType() == ClothingType.BOTTOM) {
+      return labelFit(size.path("bottomSize").asText(null), body.getBottomSize())
+          + measurementFit(size, "waistCm", body.getWaistCm(), 0, 8)
+          + measurementFit(size, "hipCm", body.getHipCm(), 2, 14);
+    }
+    return 0;
+  }
+
+  private static int labelFit(String garment, String member) {
+    return garment != null && member != null && garment.trim().equalsIgnoreCase(member.trim()) ? 4 : 0;
+  }
+
+  private static int measurementFit(JsonNode size, String field, Double body, double minEase, double maxEase) {
+    JsonNode value = size.get(field);
+    if (body == null || value == null || !value.isNumber()) {
+      return 0;
+    }
+    double ease = value.asDouble() - body;
+    if (ease < minEase) {
+      return -4;
+    }
+    return ease <= maxEase ? 4 : 0;
+  }
+
+  private static JsonNode sizeData(String sizeData) {
+    if (sizeData == null || sizeData.isBlank()) {
+      return null;
+    }
+    try {
+      JsonNode node = OBJECT_MAPPER.readTree(sizeData);
+      return node != null && node.isObject() ? node : null;
+    } catch (Exception ex) {
+      return null;
+    }
+  }
+
+  private static Set<String> tags(String commaText) {
+    if (commaText == null || commaText.isBlank()) {
+      return Set.of();
+    }
+    Set<String> result = new HashSet<>();
+    for (String item : commaText.split(",")) {
+      String normalized = item.trim().toLowerCase(Locale.ROOT);
+      if (!normalized.isBlank()) {
+        result.add(normalized);
+      }
+    }
+    return result;
+  }
+}
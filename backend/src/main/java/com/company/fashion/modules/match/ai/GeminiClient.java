@@ -2,20 +2,25 @@ package com.company.fashion.modules.match.ai;
 
 import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.member.entity.Member;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
 import dev.langchain4j.data.message.TextContent;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.http.client.HttpClientBuilder;
 import dev.langchain4j.model.chat.Capability;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -44,14 +49,26 @@ public class GeminiClient extends AbstractLangChainAiClientSupport {
   @Value("${app.ai.gemini.read-timeout-ms:8000}")
   private int readTimeoutMs;
 
+  @Value("${app.ai.gemini.stream-suggestions:true}")
+  private boolean streamSuggestions;
+
+  @Value("${app.ai.gemini.output-tokens-per-outfit:160}")
+  private int outputTokensPerOutfit;
+
+  @Value("${app.ai.gemini.output-token-overhead:1024}")
+  private int outputTokenOverhead;
+
   @Value("${app.ai.gemini.proxy.host:}")
   private String proxyHost;
 
   @Value("${app.ai.gemini.proxy.port:0}")
   private int proxyPort;
 
-  public GeminiClient(PromptBuilder promptBuilder) {
-    super(promptBuilder);
+  private final AiModelRegistry modelRegistry;
+
+  public GeminiClient(PromptBuilder promptBuilder, AiModelRegistry modelRegistry, ReferenceImageCache referenceImageCache) {
+    super(promptBuilder, referenceImageCache);
+    this.modelRegistry = modelRegistry;
   }
 
   public List<AiClientRouter.AiOutfitSuggestion> suggest(
@@ -59,29 +76,47 @@ public class GeminiClient extends AbstractLangChainAiClientSupport {
       List<Clothing> candidates,
       List<MatchRecord> history,
       String scene,
-      AiLanguage language
+      AiLanguage language,
+      int desiredOutfits,
+      AiProgressListener listener
   ) {
     assertSuggestionReady();
+    AiProgressListener progress = listener == null ? AiProgressListener.NOOP : listener;
 
     try {
-      ChatModel model = buildChatModel();
-      String prompt = buildSuggestionPrompt(member, candidates, history, scene, language);
-      List<ChatMessage> messages = List.of(UserMessage.from(prompt));
+      PromptBuilder.SuggestionPrompt prompt = buildSuggestionPrompt(member, candidates, history, scene, language, desiredOutfits);
+      progress.onStage(TaskStage.PROMPT_BUILT, prompt.details());
+      Integer maxOutputTokens = suggestionOutputTokenCap(desiredOutfits, outputTokensPerOutfit, outputTokenOverhead);
+      List<ChatMessage> messages = List.of(UserMessage.from(prompt.text()));
+      if (streamSuggestions) {
+        List<AiClientRouter.AiOutfitSuggestion> streamed =
+            streamSuggestions(
+                streamingChatModel(),
+                messages,
+                candidates,
+                desiredOutfits,
+                maxOutputTokens,
+                "Gemini",
+                log,
+                progress
+            );
+        return requireSuggestions(streamed, progress);
+      }
+
+      ChatModel model = chatModel();
       ChatResponse response = chatWithStructuredFallback(
           model,
           messages,
           suggestionsType(),
+          maxOutputTokens,
           "Gemini",
           "suggestion",
-          log
+          log,
+          progress
       );
       List<AbstractLangChainAiClientSupport.AiSuggestionPayload> payloads =
           parseSuggestionPayload(response, "Gemini", log);
-      List<AiClientRouter.AiOutfitSuggestion> normalized = normalizeSuggestions(payloads, candidates);
-      if (normalized.isEmpty()) {
-        throw new IllegalStateException("Gemini suggestion failed: response contains no valid outfit recommendations");
-      }
-      return normalized;
+      return requireSuggestions(normalizeSuggestions(payloads, candidates), progress);
     } catch (IllegalStateException ex) {
       throw ex;
     } catch (Exception ex) {
@@ -98,7 +133,7 @@ public class GeminiClient extends AbstractLangChainAiClientSupport {
     assertPreviewReady(selected);
 
     try {
-      ChatModel model = buildChatModel();
+      ChatModel model = chatModel();
       List<ChatMessage> previewMessages = List.of(buildPreviewUserMessage(member, selected, scene, language));
       ChatResponse response = chatWithStructuredFallback(
           model,
@@ -106,7 +141,8 @@ public class GeminiClient extends AbstractLangChainAiClientSupport {
           previewType(),
           "Gemini",
           "preview generation",
-          log
+          log,
+          AiProgressListener.NOOP
       );
       AbstractLangChainAiClientSupport.AiPreviewPayload payload = parsePreviewPayload(response, "Gemini", log);
       return normalizePreview(payload, "Gemini");
@@ -117,6 +153,27 @@ public class GeminiClient extends AbstractLangChainAiClientSupport {
     }
   }
 
+  private List<AiClientRouter.AiOutfitSuggestion> requireSuggestions(
+      List<AiClientRouter.AiOutfitSuggestion> normalized,
+      AiProgressListener progress
+  ) {
+    if (normalized.isEmpty()) {
+      throw new IllegalStateException("Gemini suggestion failed: response contains no valid outfit recommendations");
+    }
+    progress.onStage(TaskStage.PARSED, Map.of("outfitCount", normalized.size()));
+    return normalized;
+  }
+
+  /** Whether AI is enabled and a key is set, i.e. suggestion calls can be attempted at all. */
+  public boolean isConfigured() {
+    return aiEnabled && apiKey != null && !apiKey.isBlank();
+  }
+
+  /** Longest a healthy call can take under the configured timeouts. */
+  public long maxCallMs(boolean preview) {
+    return (long) connectTimeoutMs + readTimeoutMs;
+  }
+
   private void assertSuggestionReady() {
     if (!aiEnabled) {
       throw new IllegalStateException("Gemini suggestion failed: AI is disabled");
@@ -134,58 +191,100 @@ public class GeminiClient extends AbstractLangChainAiClientSupport {
       throw new IllegalStateException("Gemini preview generation failed: API key is missing");
     }
     if (selected == null || selected.isEmpty()) {
-      throw new IllegalStateException("Gemini preview generation failed: no selected clothing");
+      throw new AiInputException("Gemini preview generation failed: no selected clothing");
     }
   }
 
-  private ChatModel buildChatModel() {
+  private ChatModel chatModel() {
+    return modelRegistry.get(modelKey(AiModelRegistry.Kind.CHAT), this::buildChatModel);
+  }
+
+  private StreamingChatModel streamingChatModel() {
+    return modelRegistry.get(modelKey(AiModelRegistry.Kind.STREAMING), this::buildStreamingChatModel);
+  }
+
+  private AiModelRegistry.ModelKey modelKey(AiModelRegistry.Kind kind) {
+    return AiModelRegistry.ModelKey.of(
+        "gemini",
+        kind,
+        aiBaseUrl,
+        aiModel,
+        apiKey,
+        connectTimeoutMs,
+        readTimeoutMs,
+        proxyHost,
+        proxyPort
+    );
+  }
+
+  private ChatModel buildChatModel(AiModelRegistry.ModelKey key) {
     GoogleAiGeminiChatModel.GoogleAiGeminiChatModelBuilder builder = GoogleAiGeminiChatModel.builder()
         .httpClientBuilder(buildHttpClientBuilder(
             "Gemini",
-            proxyHost,
-            proxyPort,
-            connectTimeoutMs,
-            readTimeoutMs,
+            key.proxyHost(),
+            key.proxyPort(),
+            key.connectTimeoutMs(),
+            key.readTimeoutMs(),
             log
         ))
         .apiKey(apiKey)
-        .modelName(aiModel)
-        .timeout(Duration.ofMillis(Math.max(1000, readTimeoutMs)))
+        .modelName(key.model())
+        .timeout(Duration.ofMillis(Math.max(1000, key.readTimeoutMs())))
         .temperature(0.2)
         .maxRetries(0)
         .supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA);
 
-    if (aiBaseUrl != null && !aiBaseUrl.isBlank()) {
-      builder.baseUrl(aiBaseUrl.trim());
+    if (!key.baseUrl().isEmpty()) {
+      builder.baseUrl(key.baseUrl());
+    }
+    return builder.build();
+  }
+
+  private StreamingChatModel buildStreamingChatModel(AiModelRegistry.ModelKey key) {
+    GoogleAiGeminiStreamingChatModel.GoogleAiGeminiStreamingChatModelBuilder builder =
+        GoogleAiGeminiStreamingChatModel.builder()
+            .httpClientBuilder(buildHttpClientBuilder(
+                "Gemini",
+                key.proxyHost(),
+                key.proxyPort(),
+                key.connectTimeoutMs(),
+                key.readTimeoutMs(),
+                log
+            ))
+            .apiKey(apiKey)
+            .modelName(key.model())
+            .timeout(Duration.ofMillis(Math.max(1000, key.readTimeoutMs())))
+            .temperature(0.2);
+
+    if (!key.baseUrl().isEmpty()) {
+      builder.baseUrl(key.baseUrl());
     }
     return builder.build();
   }
 
   private UserMessage buildPreviewUserMessage(Member member, List<Clothing> selected, String scene, AiLanguage language) {
     String prompt = buildPreviewPrompt(member, selected, scene, language);
-    List<Content> contents = new ArrayList<>();
-    contents.add(TextContent.from(prompt));
-    contents.add(TextContent.from("Reference image [member_photo]: keep identity and body shape."));
-    contents.add(toImageContent(
-        member.getPhotoUrl(),
+    // All reference images are fetched together; the message is assembled once the slowest arrives.
+    List<ImageContent> images = toPreviewImageContents(
+        member,
+        selected,
         true,
         connectTimeoutMs,
         readTimeoutMs,
         "Gemini preview generation failed"
-    ));
+    );
+    List<Content> contents = new ArrayList<>();
+    contents.add(TextContent.from(prompt));
+    contents.add(TextContent.from("Reference image [member_photo]: keep identity and body shape."));
+    contents.add(images.get(0));
 
-    for (Clothing clothing : selected) {
+    for (int i = 0; i < selected.size(); i++) {
+      Clothing clothing = selected.get(i);
       contents.add(TextContent.from(
           "Reference image [clothing] id=%s, type=%s, name=%s. Preserve garment details."
               .formatted(safe(clothing.getId()), safe(clothing.getClothingType()), safe(clothing.getName()))
       ));
-      contents.add(toImageContent(
-          clothing.getImageUrl(),
-          true,
-          connectTimeoutMs,
-          readTimeoutMs,
-          "Gemini preview generation failed"
-      ));
+      contents.add(images.get(i + 1));
     }
 
     return UserMessage.from(contents);
@@ -0,0 +1,65 @@
+package com.company.fashion.modules.match.ai;
+
+import com.company.fashion.modules.match.dto.TaskStage;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges progress from several attempts at the same call (hedged or failed over) into one
+ * listener: each stage is forwarded once, whichever attempt reaches it first, and streamed outfits
+ * only from the attempt that produced the first one, so the client sees a single consistent
+ * sequence. When that attempt fails, the next attempt to stream takes over and restarts at
+ * sequence 1, which tells the client to drop the outfits it has so far.
+ */
+final class MergedAiProgress {
+
+  private final AiProgressListener delegate;
+  private final Set<TaskStage> reported = EnumSet.noneOf(TaskStage.class);
+  private final Set<String> failed = new HashSet<>();
+  private String outfitOwner;
+
+  MergedAiProgress(AiProgressListener delegate) {
+    this.delegate = delegate == null ? AiProgressListener.NOOP : delegate;
+  }
+
+  /** Stops streaming outfits of {@code provider}'s attempt, including late ones from a cancelled call. */
+  void attemptFailed(String provider) {
+    synchronized (reported) {
+      failed.add(provider);
+      if (provider.equals(outfitOwner)) {
+        outfitOwner = null;
+      }
+    }
+  }
+
+  AiProgressListener forAttempt(String provider) {
+    return new AiProgressListener() {
+      @Override
+      public void onStage(TaskStage stage, Map<String, Object> details) {
+        synchronized (reported) {
+          if (!reported.add(stage)) {
+            return;
+          }
+        }
+        delegate.onStage(stage, details);
+      }
+
+      @Override
+      public void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+        synchronized (reported) {
+          if (failed.contains(provider)) {
+            return;
+          }
+          if (outfitOwner == null) {
+            outfitOwner = provider;
+          } else if (!outfitOwner.equals(provider)) {
+            return;
+          }
+        }
+        delegate.onOutfit(outfit, sequence);
+      }
+    };
+  }
+}
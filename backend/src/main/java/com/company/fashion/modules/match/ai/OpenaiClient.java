@@ -2,20 +2,25 @@ package com.company.fashion.modules.match.ai;
 
 import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.member.entity.Member;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
 import dev.langchain4j.data.message.TextContent;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.http.client.HttpClientBuilder;
 import dev.langchain4j.model.chat.Capability;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -44,6 +49,15 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
   @Value("${app.ai.openai.read-timeout-ms:120000}")
   private int readTimeoutMs;
 
+  @Value("${app.ai.openai.stream-suggestions:true}")
+  private boolean streamSuggestions;
+
+  @Value("${app.ai.openai.output-tokens-per-outfit:160}")
+  private int outputTokensPerOutfit;
+
+  @Value("${app.ai.openai.output-token-overhead:256}")
+  private int outputTokenOverhead;
+
   @Value("${app.ai.openai.proxy.host:}")
   private String proxyHost;
 
@@ -65,8 +79,11 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
   @Value("${app.ai.openai.preview-retry-backoff-ms:600}")
   private long previewRetryBackoffMs;
 
-  public OpenaiClient(PromptBuilder promptBuilder) {
-    super(promptBuilder);
+  private final AiModelRegistry modelRegistry;
+
+  public OpenaiClient(PromptBuilder promptBuilder, AiModelRegistry modelRegistry, ReferenceImageCache referenceImageCache) {
+    super(promptBuilder, referenceImageCache);
+    this.modelRegistry = modelRegistry;
   }
 
   public List<AiClientRouter.AiOutfitSuggestion> suggest(
@@ -74,31 +91,49 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
       List<Clothing> candidates,
       List<MatchRecord> history,
       String scene,
-      AiLanguage language
+      AiLanguage language,
+      int desiredOutfits,
+      AiProgressListener listener
   ) {
     assertSuggestionReady();
+    AiProgressListener progress = listener == null ? AiProgressListener.NOOP : listener;
 
     try {
-      ChatModel model = buildChatModel(readTimeoutMs);
-      String prompt = buildSuggestionPrompt(member, candidates, history, scene, language);
-      List<ChatMessage> messages = List.of(UserMessage.from(prompt));
+      PromptBuilder.SuggestionPrompt prompt = buildSuggestionPrompt(member, candidates, history, scene, language, desiredOutfits);
+      progress.onStage(TaskStage.PROMPT_BUILT, prompt.details());
+      Integer maxOutputTokens = suggestionOutputTokenCap(desiredOutfits, outputTokensPerOutfit, outputTokenOverhead);
+      List<ChatMessage> messages = List.of(UserMessage.from(prompt.text()));
+      if (streamSuggestions) {
+        List<AiClientRouter.AiOutfitSuggestion> streamed =
+            streamSuggestions(
+                streamingChatModel(),
+                messages,
+                candidates,
+                desiredOutfits,
+                maxOutputTokens,
+                "OpenAI",
+                log,
+                progress
+            );
+        return requireSuggestions(streamed, progress);
+      }
+
+      ChatModel model = chatModel();
       ChatResponse response = chatWithStructuredFallback(
           model,
           messages,
           suggestionsType(),
+          maxOutputTokens,
           "OpenAI",
           "suggestion",
-          log
+          log,
+          progress
       );
       logResponsePreview(log, "OpenAI", "suggestion", response, logResponse, logResponseMaxChars);
 
       List<AbstractLangChainAiClientSupport.AiSuggestionPayload> payloads =
           parseSuggestionPayload(response, "OpenAI", log);
-      List<AiClientRouter.AiOutfitSuggestion> normalized = normalizeSuggestions(payloads, candidates);
-      if (normalized.isEmpty()) {
-        throw new IllegalStateException("OpenAI suggestion failed: response contains no valid outfit recommendations");
-      }
-      return normalized;
+      return requireSuggestions(normalizeSuggestions(payloads, candidates), progress);
     } catch (IllegalStateException ex) {
       throw ex;
     } catch (Exception ex) {
@@ -115,7 +150,7 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
     assertPreviewReady(selected);
 
     try {
-      ChatModel model = buildChatModel(readTimeoutMs);
+      ChatModel model = chatModel();
       List<ChatMessage> previewMessages = List.of(buildPreviewUserMessage(member, selected, scene, language));
       int maxAttempts = Math.max(1, previewMaxRetries + 1);
 
@@ -128,7 +163,8 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
               previewType(),
               "OpenAI",
               "preview generation",
-              log
+              log,
+              AiProgressListener.NOOP
           );
           logResponsePreview(log, "OpenAI", "preview generation", response, logResponse, logResponseMaxChars);
 
@@ -159,6 +195,32 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
     }
   }
 
+  private List<AiClientRouter.AiOutfitSuggestion> requireSuggestions(
+      List<AiClientRouter.AiOutfitSuggestion> normalized,
+      AiProgressListener progress
+  ) {
+    if (normalized.isEmpty()) {
+      throw new IllegalStateException("OpenAI suggestion failed: response contains no valid outfit recommendations");
+    }
+    progress.onStage(TaskStage.PARSED, Map.of("outfitCount", normalized.size()));
+    return normalized;
+  }
+
+  /** Whether AI is enabled and a key is set, i.e. suggestion calls can be attempted at all. */
+  public boolean isConfigured() {
+    return aiEnabled && openaiApiKey != null && !openaiApiKey.isBlank();
+  }
+
+  /** Longest a healthy call can take under the configured timeouts, including preview retries. */
+  public long maxCallMs(boolean preview) {
+    long single = (long) connectTimeoutMs + readTimeoutMs;
+    if (!preview) {
+      return single;
+    }
+    int retries = Math.max(0, previewMaxRetries);
+    return single * (retries + 1) + previewRetryBackoffMs * retries;
+  }
+
   private void assertSuggestionReady() {
     if (!aiEnabled) {
       throw new IllegalStateException("OpenAI suggestion failed: AI is disabled");
@@ -176,25 +238,47 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
       throw new IllegalStateException("OpenAI preview generation failed: API key is missing");
     }
     if (selected == null || selected.isEmpty()) {
-      throw new IllegalStateException("OpenAI preview generation failed: no selected clothing");
+      throw new AiInputException("OpenAI preview generation failed: no selected clothing");
     }
   }
 
-  private ChatModel buildChatModel(int timeoutMs) {
+  private ChatModel chatModel() {
+    return modelRegistry.get(modelKey(AiModelRegistry.Kind.CHAT), this::buildChatModel);
+  }
+
+  private StreamingChatModel streamingChatModel() {
+    return modelRegistry.get(modelKey(AiModelRegistry.Kind.STREAMING), this::buildStreamingChatModel);
+  }
+
+  private AiModelRegistry.ModelKey modelKey(AiModelRegistry.Kind kind) {
+    return AiModelRegistry.ModelKey.of(
+        "openai",
+        kind,
+        normalizeOpenAiBaseUrl(openaiBaseUrl),
+        openaiModel,
+        openaiApiKey,
+        connectTimeoutMs,
+        readTimeoutMs,
+        proxyHost,
+        proxyPort
+    );
+  }
+
+  private ChatModel buildChatModel(AiModelRegistry.ModelKey key) {
     HttpClientBuilder httpClientBuilder = buildHttpClientBuilder(
         "OpenAI",
-        proxyHost,
-        proxyPort,
-        connectTimeoutMs,
-        timeoutMs,
+        key.proxyHost(),
+        key.proxyPort(),
+        key.connectTimeoutMs(),
+        key.readTimeoutMs(),
         log
     );
     return OpenAiChatModel.builder()
         .httpClientBuilder(httpClientBuilder)
         .apiKey(openaiApiKey)
-        .baseUrl(normalizeOpenAiBaseUrl(openaiBaseUrl))
-        .modelName(openaiModel)
-        .timeout(Duration.ofMillis(Math.max(1000, timeoutMs)))
+        .baseUrl(key.baseUrl())
+        .modelName(key.model())
+        .timeout(Duration.ofMillis(Math.max(1000, key.readTimeoutMs())))
         .temperature(0.2)
         .maxRetries(0)
         .supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA)
@@ -204,6 +288,27 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
         .build();
   }
 
+  private StreamingChatModel buildStreamingChatModel(AiModelRegistry.ModelKey key) {
+    return OpenAiStreamingChatModel.builder()
+        .httpClientBuilder(buildHttpClientBuilder(
+            "OpenAI",
+            key.proxyHost(),
+            key.proxyPort(),
+            key.connectTimeoutMs(),
+            key.readTimeoutMs(),
+            log
+        ))
+        .apiKey(openaiApiKey)
+        .baseUrl(key.baseUrl())
+        .modelName(key.model())
+        .timeout(Duration.ofMillis(Math.max(1000, key.readTimeoutMs())))
+        .temperature(0.2)
+        .strictJsonSchema(true)
+        .logRequests(logResponse)
+        .logResponses(logResponse)
+        .build();
+  }
+
   private String normalizeOpenAiBaseUrl(String raw) {
     if (raw == null || raw.isBlank()) {
       return "https://api.openai.com/v1";
@@ -220,29 +325,27 @@ public class OpenaiClient extends AbstractLangChainAiClientSupport {
 
   private UserMessage buildPreviewUserMessage(Member member, List<Clothing> selected, String scene, AiLanguage language) {
     String prompt = buildPreviewPrompt(member, selected, scene, language);
-    List<Content> contents = new ArrayList<>();
-    contents.add(TextContent.from(prompt));
-    contents.add(TextContent.from("Reference image [member_photo]: keep identity and body shape."));
-    contents.add(toImageContent(
-        member.getPhotoUrl(),
+    // All reference images are fetched together; the message is assembled once the slowest arrives.
+    List<ImageContent> images = toPreviewImageContents(
+        member,
+        selected,
         useDataUrlImages,
         connectTimeoutMs,
         readTimeoutMs,
         "OpenAI preview generation failed"
-    ));
+    );
+    List<Content> contents = new ArrayList<>();
+    contents.add(TextContent.from(prompt));
+    contents.add(TextContent.from("Reference image [member_photo]: keep identity and body shape."));
+    contents.add(images.get(0));
 
-    for (Clothing clothing : selected) {
+    for (int i = 0; i < selected.size(); i++) {
+      Clothing clothing = selected.get(i);
       contents.add(TextContent.from(
           "Reference image [clothing] id=%s, type=%s, name=%s. Preserve garment details."
               .formatted(safe(clothing.getId()), safe(clothing.getClothingType()), safe(clothing.getName()))
       ));
-      contents.add(toImageContent(
-          clothing.getImageUrl(),
-          useDataUrlImages,
-          connectTimeoutMs,
-          readTimeoutMs,
-          "OpenAI preview generation failed"
-      ));
+      contents.add(images.get(i + 1));
     }
 
     return UserMessage.from(contents);
@@ -1,22 +1,53 @@
 package com.company.fashion.modules.match.ai;
 
 import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.clothing.entity.ClothingType;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.member.entity.Member;
 import com.company.fashion.modules.member.model.BodyMeasurements;
 import com.company.fashion.modules.member.service.BodyProfileService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.stream.IntStream;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Renders the suggestion and preview prompts.
+ *
+ * <p>Suggestion candidates are encoded per {@code app.ai.prompt.candidate-format}: {@code compact}
+ * (default) writes a header row plus one {@code |}-delimited row per item with short size keys,
+ * {@code verbose} one pseudo-JSON object per item. When the estimated input
+ * ({@link PromptTokenEstimator}) exceeds {@code app.ai.prompt.max-input-tokens}, the least relevant
+ * candidates are dropped until it fits (see {@link RecommendationTemplate#trim}).</p>
+ */
 @Component
 public class PromptBuilder {
 
+  /** Upper bound (and default) for the number of outfits a suggestion prompt asks for. */
+  public static final int MAX_OUTFITS = 8;
+
   private final RecommendationTemplate recommendationTemplate;
   private final PreviewTemplate previewTemplate;
 
+  @Value("${app.ai.prompt.candidate-format:compact}")
+  private String candidateFormat;
+
+  @Value("${app.ai.prompt.max-input-tokens:12000}")
+  private int maxInputTokens;
+
   public PromptBuilder(BodyProfileService bodyProfileService) {
     this.recommendationTemplate = new RecommendationTemplate(bodyProfileService);
     this.previewTemplate = new PreviewTemplate(bodyProfileService);
@@ -27,9 +58,23 @@ public class PromptBuilder {
       List<Clothing> candidates,
       List<MatchRecord> history,
       String scene,
-      AiLanguage language
+      AiLanguage language,
+      int desiredOutfits
   ) {
-    return recommendationTemplate.build(member, candidates, history, scene, language);
+    return buildSuggestionPrompt(member, candidates, history, scene, language, desiredOutfits).text();
+  }
+
+  /** The suggestion prompt together with its token estimate and any trimmed candidates. */
+  public SuggestionPrompt buildSuggestionPrompt(
+      Member member,
+      List<Clothing> candidates,
+      List<MatchRecord> history,
+      String scene,
+      AiLanguage language,
+      int desiredOutfits
+  ) {
+    boolean compact = !"verbose".equalsIgnoreCase(candidateFormat);
+    return recommendationTemplate.build(member, candidates, history, scene, language, desiredOutfits, compact, maxInputTokens);
   }
 
   public String buildPreviewPrompt(Member member, List<Clothing> selected, String scene, AiLanguage language) {
@@ -38,6 +83,15 @@ public class PromptBuilder {
 
   static final class RecommendationTemplate {
 
+    private static final String VERBOSE_INTRO =
+        "Candidate clothing (evaluate style and size fitness against member measurements)";
+    private static final String COMPACT_HEADER = "id|type|name|styleTags|size";
+    // Insertion order is the column order of the size cell.
+    private static final Map<String, String> COMPACT_SIZE_KEYS = orderedSizeKeys();
+    private static final String COMPACT_INTRO = "Candidate clothing, one row per item after the header row "
+        + "(evaluate style and size fitness against member measurements; size keys: "
+        + String.join(", ", COMPACT_SIZE_KEYS.entrySet().stream().map(e -> e.getValue() + "=" + e.getKey()).toList()) + ")";
+
     private final BodyProfileService bodyProfileService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -45,25 +99,111 @@ public class PromptBuilder {
       this.bodyProfileService = bodyProfileService;
     }
 
-    String build(
+    SuggestionPrompt build(
         Member member,
         List<Clothing> candidates,
         List<MatchRecord> history,
         String scene,
-        AiLanguage language
+        AiLanguage language,
+        int desiredOutfits,
+        boolean compact,
+        int maxInputTokens
     ) {
       BodyMeasurements measurements = resolveMeasurements(member);
 
-      StringJoiner clothingJoiner = new StringJoiner("\n");
-      for (Clothing clothing : candidates) {
-        clothingJoiner.add(buildClothingLine(clothing));
-      }
-
       StringJoiner historyJoiner = new StringJoiner("\n");
       for (MatchRecord record : history) {
         historyJoiner.add("- {clothingId:" + record.getClothingId() + ", score:" + safe(record.getPerformanceScore()) + "}");
       }
+      String historySection = history.isEmpty() ? "- none" : historyJoiner.toString();
 
+      List<String> rows = new ArrayList<>(candidates.size());
+      int rowTokens = 0;
+      for (Clothing clothing : candidates) {
+        String row = compact ? buildClothingRow(clothing) : buildClothingLine(clothing);
+        rows.add(row);
+        rowTokens += PromptTokenEstimator.estimate(row);
+      }
+      int fixedTokens = PromptTokenEstimator.estimate(
+          render(member, measurements, compact ? COMPACT_HEADER : "", historySection, scene, language, desiredOutfits, compact)
+      );
+      int untrimmedTokens = fixedTokens + rowTokens;
+
+      Set<Integer> dropped = maxInputTokens > 0 && untrimmedTokens > maxInputTokens
+          ? trim(member, measurements, candidates, rows, scene, untrimmedTokens - maxInputTokens)
+          : Set.of();
+      StringJoiner clothingJoiner = new StringJoiner("\n");
+      if (compact) {
+        clothingJoiner.add(COMPACT_HEADER);
+      }
+      for (int i = 0; i < rows.size(); i++) {
+        if (!dropped.contains(i)) {
+          clothingJoiner.add(rows.get(i));
+        }
+      }
+      String text = render(member, measurements, clothingJoiner.toString(), historySection, scene, language, desiredOutfits, compact);
+      return new SuggestionPrompt(
+          text,
+          PromptTokenEstimator.estimate(text),
+          untrimmedTokens,
+          candidates.size() - dropped.size(),
+          dropped.size()
+      );
+    }
+
+    /**
+     * Indexes of the candidates to drop so the prompt shrinks by at least {@code excessTokens}.
+     * Items that are neither TOP nor BOTTOM go first, then the least relevant item (lowest
+     * {@link CandidateRelevance} score, then highest id) of whichever of tops and bottoms has more
+     * left. At least one top and one bottom are always kept.
+     */
+    private Set<Integer> trim(
+        Member member,
+        BodyMeasurements measurements,
+        List<Clothing> candidates,
+        List<String> rows,
+        String scene,
+        int excessTokens
+    ) {
+      Map<Long, Integer> scores = CandidateRelevance.scores(candidates, member.getStyleTags(), scene, measurements);
+      Comparator<Integer> leastRelevantFirst =
+          Comparator.comparing(candidates::get, CandidateRelevance.mostRelevantFirst(scores).reversed());
+      List<Integer> others = new ArrayList<>();
+      Deque<Integer> tops = new ArrayDeque<>();
+      Deque<Integer> bottoms = new ArrayDeque<>();
+      IntStream.range(0, candidates.size()).boxed().sorted(leastRelevantFirst).forEach(i -> {
+        ClothingType type = candidates.get(i).getClothingType();
+        (type == ClothingType.TOP ? tops : type == ClothingType.BOTTOM ? bottoms : others).add(i);
+      });
+
+      Set<Integer> dropped = new LinkedHashSet<>();
+      int saved = 0;
+      Iterator<Integer> otherIterator = others.iterator();
+      while (saved < excessTokens) {
+        Integer next;
+        if (otherIterator.hasNext()) {
+          next = otherIterator.next();
+        } else if (Math.max(tops.size(), bottoms.size()) > 1) {
+          next = (tops.size() >= bottoms.size() ? tops : bottoms).poll();
+        } else {
+          break;
+        }
+        dropped.add(next);
+        saved += PromptTokenEstimator.estimate(rows.get(next));
+      }
+      return dropped;
+    }
+
+    private String render(
+        Member member,
+        BodyMeasurements measurements,
+        String clothingSection,
+        String historySection,
+        String scene,
+        AiLanguage language,
+        int desiredOutfits,
+        boolean compact
+    ) {
       return """
           You are a fashion recommendation assistant for livestream styling.
           Output JSON object only, no markdown.
@@ -83,7 +223,7 @@ public class PromptBuilder {
           - styleTags: %s
           - scene: %s
 
-          Candidate clothing (evaluate style and size fitness against member measurements):
+          %s:
           %s
 
           Recent history:
@@ -92,7 +232,7 @@ public class PromptBuilder {
           Rules:
           1) Use candidate IDs listed above only.
           2) Every recommendation must be a valid TOP + BOTTOM pair.
-          3) Return up to 8 valid outfits, ranked by score descending.
+          3) Return up to %s valid outfits, ranked by score descending.
           4) Clothing items can be reused across different outfits to provide more options.
           5) Keep score in [0, 100].
           6) Prioritize diverse style combinations and good size fit.
@@ -112,12 +252,39 @@ public class PromptBuilder {
           safe(measurements.getBottomSize()),
           safe(member.getStyleTags()),
           safe(scene),
-          clothingJoiner,
-          history.isEmpty() ? "- none" : historyJoiner.toString(),
+          compact ? COMPACT_INTRO : VERBOSE_INTRO,
+          clothingSection,
+          historySection,
+          Math.max(1, Math.min(MAX_OUTFITS, desiredOutfits)),
           (language == null ? AiLanguage.EN : language).promptLabel()
       );
     }
 
+    /** One {@link #COMPACT_HEADER} row; delimiters inside values are replaced. */
+    private String buildClothingRow(Clothing clothing) {
+      StringJoiner sizeJoiner = new StringJoiner(" ");
+      Map<String, Object> sizeMap = parseSizeData(clothing.getSizeData());
+      COMPACT_SIZE_KEYS.forEach((field, key) -> {
+        Object value = sizeMap.get(field);
+        if (value != null) {
+          sizeJoiner.add(key + ":" + cell(compactNumber(value)));
+        }
+      });
+      return clothing.getId() + "|" + safe(clothing.getClothingType()) + "|" + cell(clothing.getName())
+          + "|" + cell(clothing.getStyleTags()) + "|" + sizeJoiner;
+    }
+
+    private String cell(Object value) {
+      return safe(value).replace('|', '/').replace('\n', ' ').replace('\r', ' ').trim();
+    }
+
+    private static Object compactNumber(Object value) {
+      if (value instanceof Number number && number.doubleValue() == Math.rint(number.doubleValue())) {
+        return number.longValue();
+      }
+      return value;
+    }
+
     private String buildClothingLine(Clothing clothing) {
       StringBuilder sb = new StringBuilder();
       sb.append("- {id:").append(clothing.getId())
@@ -147,6 +314,20 @@ public class PromptBuilder {
       return sb.toString();
     }
 
+    private static Map<String, String> orderedSizeKeys() {
+      Map<String, String> keys = new LinkedHashMap<>();
+      keys.put("shoulderWidthCm", "sh");
+      keys.put("bustCm", "bu");
+      keys.put("waistCm", "wa");
+      keys.put("hipCm", "hi");
+      keys.put("lengthCm", "len");
+      keys.put("sleeveLengthCm", "sl");
+      keys.put("inseamCm", "ins");
+      keys.put("topSize", "ts");
+      keys.put("bottomSize", "bs");
+      return Collections.unmodifiableMap(keys);
+    }
+
     private void addSizeField(StringJoiner joiner, Map<String, Object> sizeMap, String field) {
       Object value = sizeMap.get(field);
       if (value != null) {
@@ -266,4 +447,33 @@ public class PromptBuilder {
       return value == null ? "" : String.valueOf(value);
     }
   }
+
+  /**
+   * A rendered suggestion prompt. {@code untrimmedTokens} is the estimate before candidates were
+   * dropped for the input budget; {@code candidateCount} counts the candidates actually sent.
+   */
+  public record SuggestionPrompt(
+      String text,
+      int estimatedTokens,
+      int untrimmedTokens,
+      int candidateCount,
+      int trimmedCandidates
+  ) {
+
+    /** Keys of {@link #details()}. */
+    public static final String PROMPT_TOKENS = "promptTokens";
+    public static final String PROMPT_TOKENS_BEFORE_TRIM = "promptTokensBeforeTrim";
+    public static final String PROMPT_CANDIDATES = "promptCandidates";
+    public static final String TRIMMED_CANDIDATES = "trimmedCandidates";
+
+    /** Token figures for the {@code PROMPT_BUILT} progress event of the task. */
+    public Map<String, Object> details() {
+      Map<String, Object> details = new HashMap<>();
+      details.put(PROMPT_TOKENS, estimatedTokens);
+      details.put(PROMPT_TOKENS_BEFORE_TRIM, untrimmedTokens);
+      details.put(PROMPT_CANDIDATES, candidateCount);
+      details.put(TRIMMED_CANDIDATES, trimmedCandidates);
+      return details;
+    }
+  }
 }
@@ -0,0 +1,36 @@
+package com.company.fashion.modules.match.ai;
+
+/**
+ * Local estimate of the input tokens a prompt costs, without a provider tokenizer. Approximates
+ * BPE vocabularies: every CJK, kana or Hangul character is one token, a run of ASCII letters or
+ * digits costs one token per four characters (rounded up), other symbols one token each, and
+ * whitespace is free. Deliberately errs high for dense identifiers so budgets are conservative.
+ */
+final class PromptTokenEstimator {
+
+  private PromptTokenEstimator() {
+  }
+
+  static int estimate(CharSequence text) {
+    if (text == null) {
+      return 0;
+    }
+    int tokens = 0;
+    int run = 0;
+    for (int i = 0; i < text.length(); ) {
+      int codePoint = Character.codePointAt(text, i);
+      i += Character.charCount(codePoint);
+      if (codePoint < 128 && Character.isLetterOrDigit(codePoint)) {
+        run++;
+        continue;
+      }
+      tokens += (run + 3) / 4;
+      run = 0;
+      if (!Character.isWhitespace(codePoint)) {
+        // Wide scripts, accented letters and punctuation: about one token per character.
+        tokens++;
+      }
+    }
+    return tokens + (run + 3) / 4;
+  }
+}
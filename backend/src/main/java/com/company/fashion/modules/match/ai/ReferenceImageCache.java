@@ -0,0 +1,697 @@
+package com.company.fashion.modules.match.ai;
+
+import dev.langchain4j.data.image.Image;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache for the reference images (member photo, clothing images) that are inlined into vision
+ * requests as Base64, so the same photo is not downloaded and encoded again for every outfit.
+ *
+ * <p>Two tiers, both content-addressed by the SHA-256 of the image bytes: an in-memory LRU of
+ * encoded {@link Image}s bounded by {@code memory-max-bytes}, and a disk tier under
+ * {@code disk-dir} read through memory-mapped files and bounded by {@code disk-max-bytes}. A URL
+ * maps to the content hash together with its {@code ETag}/{@code Last-Modified}; after
+ * {@code fresh-for-ms} the URL is revalidated with a conditional GET, and a {@code 304} keeps the
+ * cached bytes. Only http(s) URLs are cached.</p>
+ *
+ * <p>{@link #loadAll} fetches the images of one request concurrently under a shared
+ * {@code fetch-deadline-ms}, so a request waits for its slowest image rather than the sum.
+ * {@link #contentHashes} exposes the content address of each image, e.g. for result caches
+ * keyed by image content rather than URL.</p>
+ *
+ * <p>Metrics: {@code match.ai.image.cache} tagged
+ * {@code outcome=memory_hit|disk_hit|revalidated|miss|coalesced} (coalesced: joined a concurrent load),
+ * {@code match.ai.image.cache.bytes.saved} (bytes not downloaded) and
+ * {@code match.ai.image.cache.memory.bytes}.</p>
+ */
+@Component
+public class ReferenceImageCache {
+
+  private static final Logger log = LoggerFactory.getLogger(ReferenceImageCache.class);
+  private static final String CONTENT_SUFFIX = ".img";
+  private static final String META_SUFFIX = ".properties";
+
+  private final MeterRegistry meterRegistry;
+  private final ReferenceImageNormalizer normalizer;
+  private final Map<String, UrlEntry> urlIndex = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<Image>> inFlightLoads = new ConcurrentHashMap<>();
+  private final LinkedHashMap<String, Image> memory = new LinkedHashMap<>(64, 0.75f, true);
+  private final Map<Integer, HttpClient> httpClients = new ConcurrentHashMap<>();
+  private final AtomicLong diskBytes = new AtomicLong(-1);
+  private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Counter bytesSaved;
+  private long memoryBytes;
+
+  @Value("${app.ai.image-cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.ai.image-cache.memory-max-bytes:67108864}")
+  private long memoryMaxBytes;
+
+  @Value("${app.ai.image-cache.disk-enabled:true}")
+  private boolean diskEnabled;
+
+  @Value("${app.ai.image-cache.disk-dir:${java.io.tmpdir}/fashion-image-cache}")
+  private String diskDir;
+
+  @Value("${app.ai.image-cache.disk-max-bytes:536870912}")
+  private long diskMaxBytes;
+
+  @Value("${app.ai.image-cache.fresh-for-ms:300000}")
+  private long freshForMs;
+
+  @Value("${app.ai.image-cache.fetch-deadline-ms:30000}")
+  private long fetchDeadlineMs;
+
+  public ReferenceImageCache(MeterRegistry meterRegistry, ReferenceImageNormalizer normalizer) {
+    this.meterRegistry = meterRegistry;
+    this.normalizer = normalizer;
+    this.bytesSaved = Counter.builder("match.ai.image.cache.bytes.saved")
+        .description("Reference image bytes served from cache instead of downloaded")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("match.ai.image.cache.memory.bytes", this, ReferenceImageCache::memoryBytes)
+        .description("Encoded reference images held in memory")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  /** A cache that always downloads; used where no Spring-managed cache is available. */
+  static ReferenceImageCache uncached() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    return new ReferenceImageCache(meterRegistry, new ReferenceImageNormalizer(meterRegistry));
+  }
+
+  /**
+   * The image at {@code imageUrl}, normalized (see {@link ReferenceImageNormalizer}) and
+   * Base64-encoded. Load failures are reported as {@link AiInputException} prefixed with
+   * {@code errorPrefix}. Concurrent loads of the same URL (e.g. the member photo of every preview in
+   * a batch) share one download, which runs on its own thread: a caller that is interrupted stops
+   * waiting without failing the others.
+   */
+  public Image load(String imageUrl, int connectTimeoutMs, int readTimeoutMs, String errorPrefix) {
+    if (imageUrl == null || imageUrl.isBlank()) {
+      return loadOnce(imageUrl, connectTimeoutMs, readTimeoutMs, errorPrefix);
+    }
+    CompletableFuture<Image> mine = new CompletableFuture<>();
+    CompletableFuture<Image> shared = inFlightLoads.putIfAbsent(imageUrl, mine);
+    if (shared != null) {
+      count("coalesced");
+      return await(shared, errorPrefix);
+    }
+    try {
+      fetchExecutor.execute(() -> {
+        try {
+          Image image = loadOnce(imageUrl, connectTimeoutMs, readTimeoutMs, errorPrefix);
+          // Removed before completing, so a failure is never handed to a later caller.
+          inFlightLoads.remove(imageUrl, mine);
+          mine.complete(image);
+        } catch (Throwable ex) {
+          inFlightLoads.remove(imageUrl, mine);
+          mine.completeExceptionally(ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      inFlightLoads.remove(imageUrl, mine);
+      mine.completeExceptionally(new IllegalStateException(errorPrefix + ": image cache is shut down", ex));
+    }
+    return await(mine, errorPrefix);
+  }
+
+  private static Image await(CompletableFuture<Image> load, String errorPrefix) {
+    try {
+      return load.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(errorPrefix + ": interrupted while loading image", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new AiInputException(errorPrefix + ": unable to load image: " + ex.getCause().getMessage(), ex.getCause());
+    }
+  }
+
+  private Image loadOnce(String imageUrl, int connectTimeoutMs, int readTimeoutMs, String errorPrefix) {
+    if (!enabled || !isHttp(imageUrl)) {
+      Download download = downloadDirect(imageUrl, connectTimeoutMs, readTimeoutMs, errorPrefix);
+      try {
+        ReferenceImageNormalizer.NormalizedImage normalized = normalizer.normalize(download.file(), download.mimeType());
+        return encode(normalized.bytes(), normalized.mimeType());
+      } catch (IOException ex) {
+        throw new AiInputException(errorPrefix + ": unable to load image: " + ex.getMessage(), ex);
+      } finally {
+        deleteQuietly(download.file());
+      }
+    }
+
+    long now = System.currentTimeMillis();
+    String variant = normalizer.variant();
+    UrlEntry entry = urlIndex.get(imageUrl);
+    if (entry == null && diskEnabled) {
+      entry = readMeta(imageUrl);
+    }
+    if (entry != null && !variant.equals(entry.variant())) {
+      // Normalization settings changed; the cached output no longer applies.
+      entry = null;
+    }
+    if (entry != null && now - entry.validatedAt() < freshForMs) {
+      Image cached = cachedImage(entry, false);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    Download download = fetch(imageUrl, entry, connectTimeoutMs, readTimeoutMs, errorPrefix);
+    if (download == null) {
+      // 304: the cached bytes are still current.
+      UrlEntry revalidated = entry.validatedAt(now);
+      Image cached = cachedImage(revalidated, true);
+      if (cached != null) {
+        urlIndex.put(imageUrl, revalidated);
+        writeMeta(imageUrl, revalidated);
+        return cached;
+      }
+      download = fetch(imageUrl, null, connectTimeoutMs, readTimeoutMs, errorPrefix);
+    }
+
+    try {
+      count("miss");
+      // Content address: the source bytes plus the normalization variant, so identical images
+      // behind different URLs share one normalized entry.
+      String hash = sha256((sha256(download.file()) + "|" + variant).getBytes(StandardCharsets.UTF_8));
+      UrlEntry known = new UrlEntry(hash, download.mimeType(), variant, download.etag(), download.lastModified(), now);
+      Image image = cachedImage(known, null);
+      String mimeType = image == null ? null : image.mimeType();
+      if (image == null) {
+        ReferenceImageNormalizer.NormalizedImage normalized = normalizer.normalize(download.file(), download.mimeType());
+        image = encode(normalized.bytes(), normalized.mimeType());
+        mimeType = normalized.mimeType();
+        putMemory(hash, image);
+        if (diskEnabled) {
+          writeContent(hash, normalized.bytes());
+        }
+      }
+      UrlEntry stored = new UrlEntry(hash, mimeType, variant, download.etag(), download.lastModified(), now);
+      writeMeta(imageUrl, stored);
+      urlIndex.put(imageUrl, stored);
+      return image;
+    } catch (IOException ex) {
+      throw new AiInputException(errorPrefix + ": unable to load image: " + ex.getMessage(), ex);
+    } finally {
+      deleteQuietly(download.file());
+    }
+  }
+
+  /**
+   * All {@code references} loaded concurrently, in order. Every load shares one deadline of
+   * {@code fetch-deadline-ms}; images still outstanding then are no longer waited for (their
+   * downloads finish in the background and warm the cache). If any image fails, a
+   * {@link ReferenceImageLoadException} lists each failed reference.
+   */
+  public List<Image> loadAll(List<ImageReference> references, int connectTimeoutMs, int readTimeoutMs, String errorPrefix) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(1, fetchDeadlineMs));
+    List<Future<Image>> futures = new ArrayList<>(references.size());
+    for (ImageReference reference : references) {
+      futures.add(fetchExecutor.submit(() -> load(reference.url(), connectTimeoutMs, readTimeoutMs, errorPrefix)));
+    }
+    List<Image> images = new ArrayList<>(references.size());
+    List<ReferenceImageLoadException.Failure> failures = new ArrayList<>();
+    try {
+      for (int i = 0; i < references.size(); i++) {
+        ImageReference reference = references.get(i);
+        try {
+          images.add(futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException ex) {
+          failures.add(new ReferenceImageLoadException.Failure(
+              reference.label(), reference.url(), "not loaded within " + fetchDeadlineMs + "ms", true
+          ));
+        } catch (ExecutionException ex) {
+          failures.add(failure(reference, ex.getCause(), errorPrefix));
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(errorPrefix + ": interrupted while loading images", ex);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    if (!failures.isEmpty()) {
+      throw new ReferenceImageLoadException(errorPrefix, references.size(), failures);
+    }
+    return images;
+  }
+
+  /**
+   * Content hashes of {@code references}, in order: the SHA-256 of each image's cached entry
+   * (source bytes plus normalization variant), or of the encoded image where the URL is not
+   * cached. Loads through {@link #loadAll}, so the images are warm for a request that follows.
+   */
+  public List<String> contentHashes(List<ImageReference> references, int connectTimeoutMs, int readTimeoutMs, String errorPrefix) {
+    List<Image> images = loadAll(references, connectTimeoutMs, readTimeoutMs, errorPrefix);
+    List<String> hashes = new ArrayList<>(images.size());
+    for (int i = 0; i < images.size(); i++) {
+      UrlEntry entry = urlIndex.get(references.get(i).url());
+      hashes.add(entry != null
+          ? entry.hash()
+          : sha256(images.get(i).base64Data().getBytes(StandardCharsets.ISO_8859_1)));
+    }
+    return hashes;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    fetchExecutor.shutdownNow();
+  }
+
+  long memoryBytes() {
+    synchronized (memory) {
+      return memoryBytes;
+    }
+  }
+
+  /**
+   * The cached image for {@code entry} from memory or disk. Counted as a hit of that tier, as
+   * {@code revalidated}, or not at all when {@code revalidated} is null (content found again under
+   * a new URL after a download).
+   */
+  private Image cachedImage(UrlEntry entry, Boolean revalidated) {
+    Image image;
+    synchronized (memory) {
+      image = memory.get(entry.hash());
+    }
+    String outcome = "memory_hit";
+    if (image == null && diskEnabled) {
+      image = readContent(entry.hash(), entry.mimeType());
+      if (image != null) {
+        putMemory(entry.hash(), image);
+      }
+      outcome = "disk_hit";
+    }
+    if (image != null && revalidated != null) {
+      count(revalidated ? "revalidated" : outcome);
+      bytesSaved.increment(decodedSize(image));
+    }
+    return image;
+  }
+
+  private Download fetch(String imageUrl, UrlEntry known, int connectTimeoutMs, int readTimeoutMs, String errorPrefix) {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(imageUrl))
+        .timeout(Duration.ofMillis(Math.max(1000, readTimeoutMs)))
+        .GET();
+    if (known != null && known.etag() != null) {
+      request.header("If-None-Match", known.etag());
+    }
+    if (known != null && known.lastModified() != null) {
+      request.header("If-Modified-Since", known.lastModified());
+    }
+    Path file = null;
+    try {
+      file = Files.createTempFile("reference-image", ".tmp");
+      Path target = file;
+      // The body streams to a temp file, so large uploads never sit in the heap as one array.
+      HttpResponse<Path> response = httpClient(connectTimeoutMs).send(
+          request.build(),
+          info -> info.statusCode() / 100 == 2
+              ? HttpResponse.BodySubscribers.ofFile(target)
+              : HttpResponse.BodySubscribers.replacing(null)
+      );
+      if (response.statusCode() == 304 && known != null) {
+        deleteQuietly(file);
+        return null;
+      }
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        throw new AiInputException(errorPrefix + ": unable to load image: HTTP " + response.statusCode());
+      }
+      if (Files.size(file) == 0) {
+        throw new AiInputException(errorPrefix + ": empty image content");
+      }
+      return new Download(
+          file,
+          normalizeMimeType(response.headers().firstValue("Content-Type").orElse(null), imageUrl),
+          response.headers().firstValue("ETag").orElse(null),
+          response.headers().firstValue("Last-Modified").orElse(null)
+      );
+    } catch (IllegalStateException ex) {
+      deleteQuietly(file);
+      throw ex;
+    } catch (InterruptedException ex) {
+      deleteQuietly(file);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(errorPrefix + ": interrupted while loading image", ex);
+    } catch (Exception ex) {
+      deleteQuietly(file);
+      throw new AiInputException(errorPrefix + ": unable to load image: " + ex.getMessage(), ex);
+    }
+  }
+
+  private Download downloadDirect(String imageUrl, int connectTimeoutMs, int readTimeoutMs, String errorPrefix) {
+    if (imageUrl == null || imageUrl.isBlank()) {
+      throw new AiInputException(errorPrefix + ": image URL is missing");
+    }
+    Path file = null;
+    try {
+      URLConnection connection = new URL(imageUrl).openConnection();
+      connection.setConnectTimeout(connectTimeoutMs);
+      connection.setReadTimeout(readTimeoutMs);
+      String mimeType = normalizeMimeType(connection.getContentType(), imageUrl);
+      file = Files.createTempFile("reference-image", ".tmp");
+      try (InputStream inputStream = connection.getInputStream()) {
+        if (Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING) == 0) {
+          throw new AiInputException(errorPrefix + ": empty image content");
+        }
+      }
+      return new Download(file, mimeType, null, null);
+    } catch (IllegalStateException ex) {
+      deleteQuietly(file);
+      throw ex;
+    } catch (Exception ex) {
+      deleteQuietly(file);
+      throw new AiInputException(errorPrefix + ": unable to load image: " + ex.getMessage(), ex);
+    }
+  }
+
+  private HttpClient httpClient(int connectTimeoutMs) {
+    return httpClients.computeIfAbsent(Math.max(1000, connectTimeoutMs), timeout -> HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(Duration.ofMillis(timeout))
+        .build());
+  }
+
+  private void putMemory(String hash, Image image) {
+    long size = image.base64Data().length();
+    if (size > memoryMaxBytes) {
+      return;
+    }
+    synchronized (memory) {
+      Image previous = memory.put(hash, image);
+      if (previous != null) {
+        memoryBytes -= previous.base64Data().length();
+      }
+      memoryBytes += size;
+      Iterator<Map.Entry<String, Image>> eldest = memory.entrySet().iterator();
+      while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+        memoryBytes -= eldest.next().getValue().base64Data().length();
+        eldest.remove();
+      }
+    }
+  }
+
+  private Image readContent(String hash, String mimeType) {
+    Path path = contentPath(hash);
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      mimeType = sniffMimeType(mapped, mimeType);
+      ByteBuffer encoded = Base64.getEncoder().encode(mapped);
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+      String base64 = new String(encoded.array(), 0, encoded.limit(), StandardCharsets.ISO_8859_1);
+      return Image.builder().base64Data(base64).mimeType(mimeType).build();
+    } catch (IOException ex) {
+      log.warn("Unable to read cached reference image {}: {}", path, ex.getMessage());
+      return null;
+    }
+  }
+
+  private void writeContent(String hash, byte[] bytes) {
+    Path path = contentPath(hash);
+    try {
+      if (Files.isRegularFile(path)) {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        return;
+      }
+      Files.createDirectories(path.getParent());
+      Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+      Files.write(temp, bytes);
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      if (diskBytes.get() >= 0) {
+        diskBytes.addAndGet(bytes.length);
+      }
+      trimDisk();
+    } catch (IOException ex) {
+      log.warn("Unable to write reference image cache {}: {}", path, ex.getMessage());
+    }
+  }
+
+  /** Deletes least recently used content files until the disk tier fits {@code disk-max-bytes}. */
+  private synchronized void trimDisk() throws IOException {
+    Path root = Path.of(diskDir);
+    List<Path> contents = new ArrayList<>();
+    try (Stream<Path> files = Files.list(root)) {
+      files.filter(path -> path.getFileName().toString().endsWith(CONTENT_SUFFIX)).forEach(contents::add);
+    }
+    if (diskBytes.get() < 0) {
+      long total = 0;
+      for (Path path : contents) {
+        total += Files.size(path);
+      }
+      diskBytes.set(total);
+    }
+    if (diskBytes.get() <= diskMaxBytes) {
+      return;
+    }
+    contents.sort(Comparator.comparing(ReferenceImageCache::lastModified));
+    for (Path path : contents) {
+      if (diskBytes.get() <= diskMaxBytes) {
+        break;
+      }
+      long size = Files.size(path);
+      if (Files.deleteIfExists(path)) {
+        diskBytes.addAndGet(-size);
+      }
+    }
+  }
+
+  private UrlEntry readMeta(String imageUrl) {
+    Path path = metaPath(imageUrl);
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (IOException ex) {
+      return null;
+    }
+    if (!imageUrl.equals(properties.getProperty("url")) || properties.getProperty("hash") == null) {
+      return null;
+    }
+    // Entries from an earlier run are always revalidated before use.
+    return new UrlEntry(
+        properties.getProperty("hash"),
+        properties.getProperty("mimeType", "image/jpeg"),
+        properties.getProperty("variant", ""),
+        properties.getProperty("etag"),
+        properties.getProperty("lastModified"),
+        0L
+    );
+  }
+
+  private void writeMeta(String imageUrl, UrlEntry entry) {
+    if (!diskEnabled) {
+      return;
+    }
+    Properties properties = new Properties();
+    properties.setProperty("url", imageUrl);
+    properties.setProperty("hash", entry.hash());
+    properties.setProperty("mimeType", entry.mimeType());
+    properties.setProperty("variant", entry.variant());
+    if (entry.etag() != null) {
+      properties.setProperty("etag", entry.etag());
+    }
+    if (entry.lastModified() != null) {
+      properties.setProperty("lastModified", entry.lastModified());
+    }
+    Path path = metaPath(imageUrl);
+    try {
+      Files.createDirectories(path.getParent());
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        properties.store(writer, null);
+      }
+    } catch (IOException ex) {
+      log.warn("Unable to write reference image metadata {}: {}", path, ex.getMessage());
+    }
+  }
+
+  private Path contentPath(String hash) {
+    return Path.of(diskDir, hash + CONTENT_SUFFIX);
+  }
+
+  private Path metaPath(String imageUrl) {
+    return Path.of(diskDir, "urls", sha256(imageUrl.getBytes(StandardCharsets.UTF_8)) + META_SUFFIX);
+  }
+
+  private void count(String outcome) {
+    meterRegistry.counter("match.ai.image.cache", "outcome", outcome).increment();
+  }
+
+  private static ReferenceImageLoadException.Failure failure(ImageReference reference, Throwable cause, String errorPrefix) {
+    String reason = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+    if (reason.startsWith(errorPrefix + ": ")) {
+      reason = reason.substring(errorPrefix.length() + 2);
+    }
+    return new ReferenceImageLoadException.Failure(reference.label(), reference.url(), reason, false);
+  }
+
+  private static Image encode(byte[] bytes, String mimeType) {
+    return Image.builder()
+        .base64Data(Base64.getEncoder().encodeToString(bytes))
+        .mimeType(mimeType)
+        .build();
+  }
+
+  private static long decodedSize(Image image) {
+    return image.base64Data().length() / 4L * 3L;
+  }
+
+  private static boolean isHttp(String imageUrl) {
+    if (imageUrl == null) {
+      return false;
+    }
+    String lower = imageUrl.trim().toLowerCase(Locale.ROOT);
+    return lower.startsWith("http://") || lower.startsWith("https://");
+  }
+
+  private static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException ex) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  private static String sha256(Path file) throws IOException {
+    try (DigestInputStream input = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+      input.transferTo(OutputStream.nullOutputStream());
+      return HexFormat.of().formatHex(input.getMessageDigest().digest());
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 unavailable", ex);
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ex) {
+      log.debug("Unable to delete temp file {}: {}", file, ex.getMessage());
+    }
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 unavailable", ex);
+    }
+  }
+
+  /** Image type from the magic bytes, since content files are stored without their type. */
+  private static String sniffMimeType(ByteBuffer content, String fallback) {
+    if (content.remaining() >= 3 && (content.get(0) & 0xFF) == 0xFF && (content.get(1) & 0xFF) == 0xD8) {
+      return "image/jpeg";
+    }
+    if (content.remaining() >= 8 && (content.get(0) & 0xFF) == 0x89 && content.get(1) == 'P' && content.get(2) == 'N') {
+      return "image/png";
+    }
+    if (content.remaining() >= 4 && content.get(0) == 'G' && content.get(1) == 'I' && content.get(2) == 'F') {
+      return "image/gif";
+    }
+    if (content.remaining() >= 12 && content.get(0) == 'R' && content.get(8) == 'W' && content.get(9) == 'E') {
+      return "image/webp";
+    }
+    return fallback;
+  }
+
+  static String normalizeMimeType(String contentType, String imageUrl) {
+    String raw = contentType == null ? "" : contentType.trim().toLowerCase(Locale.ROOT);
+    if (raw.startsWith("image/")) {
+      int separatorIdx = raw.indexOf(';');
+      return separatorIdx > 0 ? raw.substring(0, separatorIdx) : raw;
+    }
+
+    String lowerUrl = imageUrl.toLowerCase(Locale.ROOT);
+    if (lowerUrl.endsWith(".png")) {
+      return "image/png";
+    }
+    if (lowerUrl.endsWith(".webp")) {
+      return "image/webp";
+    }
+    if (lowerUrl.endsWith(".gif")) {
+      return "image/gif";
+    }
+    return "image/jpeg";
+  }
+
+  /** An image to load; {@code label} names it in failure reports (e.g. {@code member_photo}). */
+  public record ImageReference(String label, String url) {
+  }
+
+  private record UrlEntry(String hash, String mimeType, String variant, String etag, String lastModified, long validatedAt) {
+
+    UrlEntry validatedAt(long now) {
+      return new UrlEntry(hash, mimeType, variant, etag, lastModified, now);
+    }
+  }
+
+  private record Download(Path file, String mimeType, String etag, String lastModified) {
+  }
+}
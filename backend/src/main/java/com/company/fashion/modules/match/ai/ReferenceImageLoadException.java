@@ -0,0 +1,34 @@
+package com.company.fashion.modules.match.ai;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One or more reference images of a request could not be loaded. Lists every failed image, not
+ * just the first, so the caller can tell a missing garment from a slow image host.
+ */
+class ReferenceImageLoadException extends AiInputException {
+
+  private final List<Failure> failures;
+
+  ReferenceImageLoadException(String errorPrefix, int requested, List<Failure> failures) {
+    super(errorPrefix + ": " + failures.size() + " of " + requested + " reference images failed: "
+        + failures.stream().map(Failure::describe).collect(Collectors.joining("; ")));
+    this.failures = List.copyOf(failures);
+  }
+
+  List<Failure> failures() {
+    return failures;
+  }
+
+  /**
+   * A single failed image; {@code timedOut} is set when the shared deadline passed before the
+   * image arrived.
+   */
+  record Failure(String label, String url, String reason, boolean timedOut) {
+
+    String describe() {
+      return "[" + label + "] " + reason;
+    }
+  }
+}
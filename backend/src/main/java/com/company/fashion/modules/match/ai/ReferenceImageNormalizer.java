@@ -0,0 +1,301 @@
+package com.company.fashion.modules.match.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shrinks reference images before they are inlined into vision requests: decodes, applies the
+ * EXIF orientation, center-crops extreme aspect ratios to {@code max-aspect-ratio}, resizes to
+ * {@code max-edge-px} and re-encodes as JPEG at {@code jpeg-quality}.
+ *
+ * <p>Decoding reads from the file through an {@link ImageInputStream} with a source region and
+ * subsampling, so a large upload is never fully rasterised. Images that cannot be decoded (e.g.
+ * WebP, CMYK JPEG) and JPEGs that are already within bounds are passed through unchanged.</p>
+ */
+@Component
+public class ReferenceImageNormalizer {
+
+  private static final Logger log = LoggerFactory.getLogger(ReferenceImageNormalizer.class);
+  private static final String JPEG = "image/jpeg";
+  private static final int EXIF_SCAN_BYTES = 128 * 1024;
+
+  private final MeterRegistry meterRegistry;
+
+  @Value("${app.ai.image-normalization.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.ai.image-normalization.max-edge-px:1024}")
+  private int maxEdgePx;
+
+  @Value("${app.ai.image-normalization.max-aspect-ratio:3.0}")
+  private double maxAspectRatio;
+
+  @Value("${app.ai.image-normalization.jpeg-quality:0.85}")
+  private float jpegQuality;
+
+  public ReferenceImageNormalizer(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /** Identifies the output for the current settings; part of the cache key of normalized images. */
+  public String variant() {
+    if (!enabled) {
+      return "original";
+    }
+    return String.format(Locale.ROOT, "jpeg-%dpx-q%.2f-ar%.2f", maxEdgePx, jpegQuality, maxAspectRatio);
+  }
+
+  /** The image in {@code source} (as served with {@code mimeType}), normalized or passed through. */
+  public NormalizedImage normalize(Path source, String mimeType) throws IOException {
+    if (!enabled) {
+      return passThrough(source, mimeType, "disabled");
+    }
+    try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+      Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+      if (readers == null || !readers.hasNext()) {
+        return passThrough(source, mimeType, "undecodable");
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        boolean jpeg = "jpeg".equalsIgnoreCase(reader.getFormatName());
+        int orientation = jpeg ? exifOrientation(source) : 1;
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        Rectangle region = cropRegion(width, height);
+        int longEdge = Math.max(region.width, region.height);
+        if (jpeg && orientation == 1 && longEdge <= maxEdgePx && region.width == width && region.height == height) {
+          return passThrough(source, JPEG, "within_bounds");
+        }
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(region);
+        int subsampling = Math.max(1, longEdge / Math.max(1, maxEdgePx));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        BufferedImage decoded = reader.read(0, param);
+        BufferedImage normalized = resize(orient(decoded, orientation));
+        byte[] encoded = encodeJpeg(normalized);
+        long sourceBytes = Files.size(source);
+        if (jpeg && orientation == 1 && encoded.length >= sourceBytes) {
+          return passThrough(source, JPEG, "no_gain");
+        }
+        count("normalized");
+        log.debug(
+            "Normalized reference image {}x{} ({} bytes) -> {}x{} ({} bytes)",
+            width, height, sourceBytes, normalized.getWidth(), normalized.getHeight(), encoded.length
+        );
+        return new NormalizedImage(encoded, JPEG);
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException | RuntimeException ex) {
+      log.debug("Reference image not normalized, sending original: {}", ex.getMessage());
+      return passThrough(source, mimeType, "failed");
+    }
+  }
+
+  private NormalizedImage passThrough(Path source, String mimeType, String reason) throws IOException {
+    count(reason);
+    return new NormalizedImage(Files.readAllBytes(source), mimeType);
+  }
+
+  /** Center crop of the longer axis when the image is more elongated than {@code max-aspect-ratio}. */
+  private Rectangle cropRegion(int width, int height) {
+    if (maxAspectRatio < 1.0) {
+      return new Rectangle(0, 0, width, height);
+    }
+    if (width > height * maxAspectRatio) {
+      int cropped = (int) Math.round(height * maxAspectRatio);
+      return new Rectangle((width - cropped) / 2, 0, cropped, height);
+    }
+    if (height > width * maxAspectRatio) {
+      int cropped = (int) Math.round(width * maxAspectRatio);
+      return new Rectangle(0, (height - cropped) / 2, width, cropped);
+    }
+    return new Rectangle(0, 0, width, height);
+  }
+
+  /** Applies EXIF orientation 2-8 (mirror and/or 90/180/270 rotation). */
+  private static BufferedImage orient(BufferedImage image, int orientation) {
+    if (orientation <= 1 || orientation > 8) {
+      return image;
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean swap = orientation >= 5;
+    AffineTransform transform = new AffineTransform();
+    switch (orientation) {
+      case 2 -> {
+        transform.translate(width, 0);
+        transform.scale(-1, 1);
+      }
+      case 3 -> {
+        transform.translate(width, height);
+        transform.rotate(Math.PI);
+      }
+      case 4 -> {
+        transform.translate(0, height);
+        transform.scale(1, -1);
+      }
+      case 5 -> {
+        transform.rotate(Math.PI / 2);
+        transform.scale(1, -1);
+      }
+      case 6 -> {
+        transform.translate(height, 0);
+        transform.rotate(Math.PI / 2);
+      }
+      case 7 -> {
+        transform.scale(-1, 1);
+        transform.translate(-height, 0);
+        transform.translate(0, width);
+        transform.rotate(3 * Math.PI / 2);
+      }
+      default -> {
+        transform.translate(0, width);
+        transform.rotate(3 * Math.PI / 2);
+      }
+    }
+    BufferedImage oriented = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = oriented.createGraphics();
+    try {
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, oriented.getWidth(), oriented.getHeight());
+      graphics.drawImage(image, transform, null);
+    } finally {
+      graphics.dispose();
+    }
+    return oriented;
+  }
+
+  /** Fits the image into {@code max-edge-px} on an opaque RGB canvas (transparency becomes white). */
+  private BufferedImage resize(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    double scale = Math.min(1.0, (double) maxEdgePx / Math.max(width, height));
+    int targetWidth = Math.max(1, (int) Math.round(width * scale));
+    int targetHeight = Math.max(1, (int) Math.round(height * scale));
+    if (scale == 1.0 && image.getType() == BufferedImage.TYPE_INT_RGB) {
+      return image;
+    }
+    BufferedImage resized = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = resized.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(image, 0, 0, targetWidth, targetHeight, Color.WHITE, null);
+    } finally {
+      graphics.dispose();
+    }
+    return resized;
+  }
+
+  private byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+      writer.setOutput(stream);
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(Math.max(0.1f, Math.min(1.0f, jpegQuality)));
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return output.toByteArray();
+  }
+
+  /** EXIF orientation tag (0x0112) from the JPEG APP1 segment, or 1 if absent. */
+  static int exifOrientation(Path jpeg) {
+    byte[] head;
+    try (InputStream input = Files.newInputStream(jpeg)) {
+      head = input.readNBytes(EXIF_SCAN_BYTES);
+    } catch (IOException ex) {
+      return 1;
+    }
+    if (head.length < 4 || (head[0] & 0xFF) != 0xFF || (head[1] & 0xFF) != 0xD8) {
+      return 1;
+    }
+    int offset = 2;
+    while (offset + 4 <= head.length && (head[offset] & 0xFF) == 0xFF) {
+      int marker = head[offset + 1] & 0xFF;
+      int length = ((head[offset + 2] & 0xFF) << 8) | (head[offset + 3] & 0xFF);
+      if (marker == 0xDA || length < 2) {
+        return 1;
+      }
+      if (marker == 0xE1 && offset + 10 <= head.length && "Exif".equals(new String(head, offset + 4, 4, StandardCharsets.US_ASCII))) {
+        return tiffOrientation(head, offset + 10, Math.min(head.length, offset + 2 + length));
+      }
+      offset += 2 + length;
+    }
+    return 1;
+  }
+
+  private static int tiffOrientation(byte[] data, int tiffStart, int end) {
+    if (tiffStart + 8 > end) {
+      return 1;
+    }
+    boolean littleEndian = data[tiffStart] == 'I' && data[tiffStart + 1] == 'I';
+    int ifdOffset = readInt(data, tiffStart + 4, littleEndian);
+    int ifd = tiffStart + ifdOffset;
+    if (ifdOffset < 8 || ifd + 2 > end) {
+      return 1;
+    }
+    int entries = readShort(data, ifd, littleEndian);
+    for (int i = 0; i < entries; i++) {
+      int entry = ifd + 2 + i * 12;
+      if (entry + 12 > end) {
+        return 1;
+      }
+      if (readShort(data, entry, littleEndian) == 0x0112) {
+        int value = readShort(data, entry + 8, littleEndian);
+        return value >= 1 && value <= 8 ? value : 1;
+      }
+    }
+    return 1;
+  }
+
+  private static int readShort(byte[] data, int offset, boolean littleEndian) {
+    int first = data[offset] & 0xFF;
+    int second = data[offset + 1] & 0xFF;
+    return littleEndian ? (second << 8) | first : (first << 8) | second;
+  }
+
+  private static int readInt(byte[] data, int offset, boolean littleEndian) {
+    int high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+    int low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+    return (high << 16) | low;
+  }
+
+  private void count(String outcome) {
+    meterRegistry.counter("match.ai.image.normalize", "outcome", outcome).increment();
+  }
+
+  public record NormalizedImage(byte[] bytes, String mimeType) {
+  }
+}
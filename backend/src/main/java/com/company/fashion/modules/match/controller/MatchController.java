@@ -2,8 +2,11 @@ package com.company.fashion.modules.match.controller;
 
 import com.company.fashion.common.api.PageResponse;
 import com.company.fashion.common.api.Result;
+import com.company.fashion.modules.match.dto.CreateMatchTaskBatchRequest;
+import com.company.fashion.modules.match.dto.CreateMatchTaskBatchResponse;
 import com.company.fashion.modules.match.dto.CreateMatchTaskRequest;
 import com.company.fashion.modules.match.dto.CreateMatchTaskResponse;
+import com.company.fashion.modules.match.dto.GenerateOutfitPreviewsRequest;
 import com.company.fashion.modules.match.dto.MatchTaskResultResponse;
 import com.company.fashion.modules.match.dto.MatchTaskSummaryResponse;
 import com.company.fashion.modules.match.service.MatchTaskService;
@@ -18,6 +21,8 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.security.Principal;
+import java.util.List;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -61,6 +66,30 @@ public class MatchController {
     return Result.ok(matchTaskService.createTask(request, principal.getName(), acceptLanguage));
   }
 
+  @PostMapping("/batch")
+  @Operation(
+      summary = "Create match tasks for many members",
+      description = "All entries share one candidate list. Entries whose candidates are all filtered by the "
+          + "7-day rule are skipped and reported. Reason language follows Accept-Language (zh/en/ko)."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "Tasks created"),
+      @ApiResponse(responseCode = "400", description = "Invalid request or dedup filtered all candidates for every entry"),
+      @ApiResponse(responseCode = "404", description = "Member not found"),
+      @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+  })
+  public Result<CreateMatchTaskBatchResponse> createTasks(
+      @Valid @RequestBody CreateMatchTaskBatchRequest request,
+      @Parameter(description = "Response language (zh/en/ko), defaults to en")
+      @RequestHeader(value = "Accept-Language", required = false) String acceptLanguage,
+      Principal principal
+  ) {
+    if (principal == null) {
+      throw new com.company.fashion.common.exception.BusinessException(401, "Unauthorized");
+    }
+    return Result.ok(matchTaskService.createTasks(request, principal.getName(), acceptLanguage));
+  }
+
   @GetMapping("/{taskId}")
   @Operation(summary = "Get task detail and result")
   @ApiResponses({
@@ -73,11 +102,30 @@ public class MatchController {
     return Result.ok(matchTaskService.getTask(taskId));
   }
 
+  @DeleteMapping("/{taskId}")
+  @Operation(
+      summary = "Cancel a task",
+      description = "Queued tasks are never started; a running task has its provider call interrupted."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "Task cancelled"),
+      @ApiResponse(responseCode = "400", description = "Task already finished"),
+      @ApiResponse(responseCode = "404", description = "Task not found")
+  })
+  public Result<Void> cancelTask(
+      @Parameter(description = "Task ID", required = true) @PathVariable String taskId
+  ) {
+    matchTaskService.cancelTask(taskId);
+    return Result.ok(null);
+  }
+
   @PostMapping("/{taskId}/outfits/{outfitNo}/preview")
   @Operation(summary = "Generate preview prompt for one outfit",
-      description = "Preview language follows current Accept-Language (zh/en/ko).")
+      description = "Starts an asynchronous preview job and returns the task with the outfit's previewStatus RUNNING; "
+          + "the result follows as preview_completed / preview_failed SSE events. "
+          + "Preview language follows current Accept-Language (zh/en/ko).")
   @ApiResponses({
-      @ApiResponse(responseCode = "200", description = "Preview generated or degraded for this outfit"),
+      @ApiResponse(responseCode = "200", description = "Preview job started for this outfit"),
       @ApiResponse(responseCode = "400", description = "Task not succeeded or outfit references invalid"),
       @ApiResponse(responseCode = "404", description = "Task or outfit not found")
   })
@@ -90,6 +138,26 @@ public class MatchController {
     return Result.ok(matchTaskService.generateOutfitPreview(taskId, outfitNo, acceptLanguage));
   }
 
+  @PostMapping("/{taskId}/previews")
+  @Operation(summary = "Generate previews for several outfits",
+      description = "Starts one preview job per outfit (all outfits when outfitNos is empty or the body is omitted); "
+          + "the jobs run concurrently and each reports preview_completed / preview_failed over SSE as it finishes. "
+          + "Preview language follows current Accept-Language (zh/en/ko).")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "Preview jobs started"),
+      @ApiResponse(responseCode = "400", description = "Task not succeeded or outfit references invalid"),
+      @ApiResponse(responseCode = "404", description = "Task or outfit not found")
+  })
+  public Result<MatchTaskResultResponse> generateOutfitPreviews(
+      @Parameter(description = "Task ID", required = true) @PathVariable String taskId,
+      @Valid @RequestBody(required = false) GenerateOutfitPreviewsRequest request,
+      @Parameter(description = "Preview language (zh/en/ko), defaults to en")
+      @RequestHeader(value = "Accept-Language", required = false) String acceptLanguage
+  ) {
+    List<Integer> outfitNos = request == null ? null : request.outfitNos();
+    return Result.ok(matchTaskService.generateOutfitPreviews(taskId, outfitNos, acceptLanguage));
+  }
+
   @GetMapping
   @Operation(summary = "List tasks")
   public Result<PageResponse<MatchTaskSummaryResponse>> listTasks(
@@ -103,7 +171,9 @@ public class MatchController {
   @GetMapping("/{taskId}/events")
   @Operation(
       summary = "Subscribe task events via SSE",
-      description = "Event types: task_started, task_progress, task_completed, task_failed"
+      description = "Event types: task_started, task_progress (one per stage), task_provisional (rule-based outfits in "
+          + "progressive mode), outfit_ready (one per streamed outfit), "
+          + "task_completed, task_failed, task_cancelled, preview_started, preview_completed, preview_failed"
   )
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "SSE stream opened",
@@ -0,0 +1,27 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@Schema(description = "Create match tasks for several members sharing one candidate list")
+public record CreateMatchTaskBatchRequest(
+    @Schema(description = "One entry per task, max 50")
+    @NotEmpty @Size(max = 50) List<@Valid @NotNull MatchTaskBatchEntry> entries,
+    @Schema(description = "Candidate clothing IDs shared by all entries, max 1000", example = "[1,2,4]")
+    @NotEmpty @Size(max = 1000) List<Long> clothingIds,
+    @Schema(description = "Skip the recommendation result cache and force fresh AI calls", example = "false")
+    Boolean bypassCache,
+    @Schema(description = "Scheduling priority, defaults to NORMAL; LIVE is claimed ahead of other tasks")
+    TaskPriority priority,
+    @Schema(description = "Optional end-to-end deadline in seconds; the task fails if not finished in time", example = "90")
+    @Min(1) @Max(3600) Integer deadlineSeconds,
+    @Schema(description = "Number of outfits to generate, defaults to 8; fewer outfits finish sooner and cost fewer tokens", example = "3")
+    @Min(1) @Max(8) Integer desiredOutfits
+) {
+}
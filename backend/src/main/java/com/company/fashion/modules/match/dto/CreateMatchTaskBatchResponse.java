@@ -0,0 +1,11 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "Create task batch response")
+public record CreateMatchTaskBatchResponse(
+    @Schema(description = "Per-entry result, in request order")
+    List<MatchTaskBatchItemResponse> tasks
+) {
+}
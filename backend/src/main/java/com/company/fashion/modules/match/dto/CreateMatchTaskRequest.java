@@ -1,6 +1,8 @@
 package com.company.fashion.modules.match.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -10,9 +12,17 @@ import java.util.List;
 public record CreateMatchTaskRequest(
     @Schema(description = "Member ID", example = "1")
     @NotNull Long memberId,
-    @Schema(description = "Candidate clothing IDs, max 20", example = "[1,2,4]")
-    @NotEmpty @Size(max = 20) List<Long> clothingIds,
+    @Schema(description = "Candidate clothing IDs, max 1000; large lists are shortlisted locally before the AI call", example = "[1,2,4]")
+    @NotEmpty @Size(max = 1000) List<Long> clothingIds,
     @Schema(description = "Scene label", example = "daily-live")
-    String scene
+    String scene,
+    @Schema(description = "Skip the recommendation result cache and force a fresh AI call", example = "false")
+    Boolean bypassCache,
+    @Schema(description = "Scheduling priority, defaults to NORMAL; LIVE is claimed ahead of other tasks")
+    TaskPriority priority,
+    @Schema(description = "Optional end-to-end deadline in seconds; the task fails if not finished in time", example = "90")
+    @Min(1) @Max(3600) Integer deadlineSeconds,
+    @Schema(description = "Number of outfits to generate, defaults to 8; fewer outfits finish sooner and cost fewer tokens", example = "3")
+    @Min(1) @Max(8) Integer desiredOutfits
 ) {
 }
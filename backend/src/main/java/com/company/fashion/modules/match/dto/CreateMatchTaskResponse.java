@@ -1,12 +1,15 @@
 package com.company.fashion.modules.match.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
 
 @Schema(description = "Create task response")
 public record CreateMatchTaskResponse(
     @Schema(description = "Task ID")
     String taskId,
     @Schema(description = "Initial task status")
-    TaskStatus status
+    TaskStatus status,
+    @Schema(description = "Estimated time the task starts running, from current queue depth and recent task duration")
+    LocalDateTime estimatedStartAt
 ) {
 }
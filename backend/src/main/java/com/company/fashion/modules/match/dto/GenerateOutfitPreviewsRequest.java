@@ -0,0 +1,13 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@Schema(description = "Generate previews for several outfits of one task")
+public record GenerateOutfitPreviewsRequest(
+    @Schema(description = "Outfit numbers to preview; all outfits of the task when empty or omitted", example = "[1,2,3]")
+    @Size(max = 8) List<@NotNull Integer> outfitNos
+) {
+}
@@ -0,0 +1,13 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+@Schema(description = "Batch task entry")
+public record MatchTaskBatchEntry(
+    @Schema(description = "Member ID", example = "1")
+    @NotNull Long memberId,
+    @Schema(description = "Scene label", example = "daily-live")
+    String scene
+) {
+}
@@ -0,0 +1,25 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
+
+@Schema(description = "Batch task entry result")
+public record MatchTaskBatchItemResponse(
+    @Schema(description = "Member ID")
+    Long memberId,
+    @Schema(description = "Scene label")
+    String scene,
+    @Schema(description = "Task ID, null when the entry was skipped")
+    String taskId,
+    @Schema(description = "Initial task status, null when the entry was skipped")
+    TaskStatus status,
+    @Schema(description = "Estimated start time of the batch's last task, null when the entry was skipped")
+    LocalDateTime estimatedStartAt,
+    @Schema(description = "Why the entry was skipped")
+    String error
+) {
+
+  public MatchTaskBatchItemResponse withEstimatedStartAt(LocalDateTime value) {
+    return taskId == null ? this : new MatchTaskBatchItemResponse(memberId, scene, taskId, status, value, error);
+  }
+}
@@ -20,6 +20,8 @@ public record MatchTaskResultResponse(
     @Schema(description = "Legacy preview from first outfit", deprecated = true)
     OutfitPreviewResponse preview,
     @Schema(description = "Error message for failed task, or warning message for successful degraded preview")
-    String errorMessage
+    String errorMessage,
+    @Schema(description = "True while outfits are provisional rule-based results awaiting the AI result")
+    boolean provisional
 ) {
 }
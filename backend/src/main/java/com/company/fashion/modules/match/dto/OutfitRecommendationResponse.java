@@ -1,6 +1,7 @@
 package com.company.fashion.modules.match.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
 
 @Schema(description = "One outfit recommendation (TOP + BOTTOM pair)")
 public record OutfitRecommendationResponse(
@@ -17,6 +18,23 @@ public record OutfitRecommendationResponse(
     @Schema(description = "Preview for this outfit, null when preview is skipped")
     OutfitPreviewResponse preview,
     @Schema(description = "Warning for this outfit, null when no warning")
-    String warning
+    String warning,
+    @Schema(description = "Preview job status, null when no preview was requested")
+    PreviewStatus previewStatus,
+    @Schema(description = "When the current preview job started, null unless previewStatus is RUNNING")
+    LocalDateTime previewStartedAt
 ) {
+
+  public OutfitRecommendationResponse withPreviewStatus(PreviewStatus status) {
+    LocalDateTime startedAt = status == PreviewStatus.RUNNING ? LocalDateTime.now() : null;
+    return new OutfitRecommendationResponse(
+        outfitNo, topClothingId, bottomClothingId, score, reason, preview, warning, status, startedAt
+    );
+  }
+
+  public OutfitRecommendationResponse withPreview(OutfitPreviewResponse newPreview, String newWarning, PreviewStatus status) {
+    return new OutfitRecommendationResponse(
+        outfitNo, topClothingId, bottomClothingId, score, reason, newPreview, newWarning, status, null
+    );
+  }
 }
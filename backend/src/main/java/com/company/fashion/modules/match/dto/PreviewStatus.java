@@ -0,0 +1,13 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Status of the preview job of one outfit")
+public enum PreviewStatus {
+  @Schema(description = "Preview is being generated")
+  RUNNING,
+  @Schema(description = "Preview generated")
+  SUCCEEDED,
+  @Schema(description = "Preview skipped or failed, see the outfit warning")
+  FAILED
+}
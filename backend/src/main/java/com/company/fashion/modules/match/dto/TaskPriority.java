@@ -0,0 +1,24 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Task scheduling priority")
+public enum TaskPriority {
+  @Schema(description = "Scheduled fairly with other operators' tasks")
+  NORMAL(0),
+  @Schema(description = "Live-now task, claimed ahead of all NORMAL tasks")
+  LIVE(10);
+
+  private final int level;
+
+  TaskPriority(int level) {
+    this.level = level;
+  }
+
+  /**
+   * Value stored in {@code match_task.priority}; higher is claimed first.
+   */
+  public int level() {
+    return level;
+  }
+}
@@ -0,0 +1,29 @@
+package com.company.fashion.modules.match.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Pipeline stage reported by task_progress events")
+public enum TaskStage {
+  @Schema(description = "Task, member, candidates and history loaded")
+  CONTEXT_LOADED(20),
+  @Schema(description = "LLM prompt built")
+  PROMPT_BUILT(35),
+  @Schema(description = "Request sent to the LLM provider")
+  LLM_REQUEST_SENT(45),
+  @Schema(description = "First response data received from the LLM provider")
+  FIRST_TOKEN(70),
+  @Schema(description = "LLM output parsed and validated")
+  PARSED(85),
+  @Schema(description = "Result persisted")
+  PERSISTED(95);
+
+  private final int progress;
+
+  TaskStage(int progress) {
+    this.progress = progress;
+  }
+
+  public int progress() {
+    return progress;
+  }
+}
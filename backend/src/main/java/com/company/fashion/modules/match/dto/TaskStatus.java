@@ -11,5 +11,23 @@ public enum TaskStatus {
   @Schema(description = "Task completed successfully")
   SUCCEEDED,
   @Schema(description = "Task completed with failure")
-  FAILED
+  FAILED,
+  @Schema(description = "Task cancelled by an operator")
+  CANCELLED;
+
+  /**
+   * Allowed lifecycle moves. RUNNING may go back to QUEUED when a claimed task is released
+   * before it starts; SUCCEEDED, FAILED and CANCELLED are terminal.
+   */
+  public boolean canTransitionTo(TaskStatus target) {
+    return switch (this) {
+      case QUEUED -> target == RUNNING || target == FAILED || target == CANCELLED;
+      case RUNNING -> target == SUCCEEDED || target == FAILED || target == QUEUED || target == CANCELLED;
+      case SUCCEEDED, FAILED, CANCELLED -> false;
+    };
+  }
+
+  public boolean isTerminal() {
+    return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+  }
 }
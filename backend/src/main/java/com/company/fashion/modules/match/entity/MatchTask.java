@@ -10,11 +10,15 @@ import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 /**
  * Persistent task aggregate for asynchronous match execution.
  *
- * <p>This table stores candidate inputs, strategy name, status transitions, and final result JSON.</p>
+ * <p>This table stores candidate inputs, strategy name, status transitions, and final result JSON.
+ * It also acts as the durable work queue: workers claim QUEUED rows by taking a lease
+ * ({@code lease_owner} + {@code lease_expires_at}) and keep it alive with heartbeats.</p>
  */
 @Entity
 @Table(name = "match_task")
@@ -36,8 +40,10 @@ public class MatchTask {
   @Column(name = "language", length = 8)
   private String language;
 
+  // Plain varchar, not a native MySQL enum, so adding a status needs no column change.
   @Enumerated(EnumType.STRING)
-  @Column(nullable = false)
+  @JdbcTypeCode(SqlTypes.VARCHAR)
+  @Column(nullable = false, length = 32)
   private TaskStatus status;
 
   @Column(name = "strategy_name")
@@ -55,9 +61,39 @@ public class MatchTask {
   // Serialized OutfitPreviewResponse.
   private String previewJson;
 
+  @Column(name = "priority", nullable = false)
+  // TaskPriority.level(); higher is claimed first.
+  private int priority;
+
+  @Column(name = "deadline_at")
+  // Optional end-to-end deadline; the task fails if it has not finished by then.
+  private LocalDateTime deadlineAt;
+
+  @Column(name = "bypass_cache", nullable = false)
+  // Skip the recommendation result cache and force a fresh AI call.
+  private boolean bypassCache;
+
+  @Column(name = "desired_outfits")
+  // Requested outfit count, null means the default (see RecommendationService).
+  private Integer desiredOutfits;
+
   @Column(name = "error_message", length = 1000)
   private String errorMessage;
 
+  @Column(name = "lease_owner", length = 128)
+  // Worker node currently holding the task lease, null when not claimed.
+  private String leaseOwner;
+
+  @Column(name = "lease_expires_at")
+  private LocalDateTime leaseExpiresAt;
+
+  @Column(name = "attempt_count", nullable = false)
+  private int attemptCount;
+
+  @Column(name = "version", nullable = false)
+  // Bumped by every status transition; transition UPDATEs are guarded on the version the worker read.
+  private long version;
+
   @Column(name = "created_at", nullable = false)
   private LocalDateTime createdAt;
 
@@ -164,6 +200,66 @@ public class MatchTask {
     this.language = language;
   }
 
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  public LocalDateTime getDeadlineAt() {
+    return deadlineAt;
+  }
+
+  public void setDeadlineAt(LocalDateTime deadlineAt) {
+    this.deadlineAt = deadlineAt;
+  }
+
+  public Integer getDesiredOutfits() {
+    return desiredOutfits;
+  }
+
+  public void setDesiredOutfits(Integer desiredOutfits) {
+    this.desiredOutfits = desiredOutfits;
+  }
+
+  public boolean isBypassCache() {
+    return bypassCache;
+  }
+
+  public void setBypassCache(boolean bypassCache) {
+    this.bypassCache = bypassCache;
+  }
+
+  public String getLeaseOwner() {
+    return leaseOwner;
+  }
+
+  public void setLeaseOwner(String leaseOwner) {
+    this.leaseOwner = leaseOwner;
+  }
+
+  public LocalDateTime getLeaseExpiresAt() {
+    return leaseExpiresAt;
+  }
+
+  public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+    this.leaseExpiresAt = leaseExpiresAt;
+  }
+
+  public int getAttemptCount() {
+    return attemptCount;
+  }
+
+  public void setAttemptCount(int attemptCount) {
+    this.attemptCount = attemptCount;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
   public LocalDateTime getCreatedAt() {
     return createdAt;
   }
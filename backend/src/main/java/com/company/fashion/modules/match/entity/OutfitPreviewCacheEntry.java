@@ -0,0 +1,88 @@
+package com.company.fashion.modules.match.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A generated outfit preview, stored under the content key computed by
+ * {@code OutfitPreviewCache}. {@code clothing_ids} is a comma-delimited list with leading and
+ * trailing commas (e.g. {@code ,12,34,}) so one garment can be matched with {@code like}.
+ */
+@Entity
+@Table(
+    name = "outfit_preview_cache",
+    indexes = {
+        @Index(name = "idx_outfit_preview_cache_member", columnList = "member_id"),
+        @Index(name = "idx_outfit_preview_cache_created", columnList = "created_at")
+    }
+)
+public class OutfitPreviewCacheEntry {
+
+  @Id
+  @Column(name = "cache_key", length = 64)
+  private String cacheKey;
+
+  @Column(name = "member_id", nullable = false)
+  private Long memberId;
+
+  @Column(name = "clothing_ids", nullable = false, length = 512)
+  private String clothingIds;
+
+  @Column(name = "preview_json", nullable = false, columnDefinition = "TEXT")
+  private String previewJson;
+
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+
+  @PrePersist
+  public void prePersist() {
+    if (this.createdAt == null) {
+      this.createdAt = LocalDateTime.now();
+    }
+  }
+
+  public String getCacheKey() {
+    return cacheKey;
+  }
+
+  public void setCacheKey(String cacheKey) {
+    this.cacheKey = cacheKey;
+  }
+
+  public Long getMemberId() {
+    return memberId;
+  }
+
+  public void setMemberId(Long memberId) {
+    this.memberId = memberId;
+  }
+
+  public String getClothingIds() {
+    return clothingIds;
+  }
+
+  public void setClothingIds(String clothingIds) {
+    this.clothingIds = clothingIds;
+  }
+
+  public String getPreviewJson() {
+    return previewJson;
+  }
+
+  public void setPreviewJson(String previewJson) {
+    this.previewJson = previewJson;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+}
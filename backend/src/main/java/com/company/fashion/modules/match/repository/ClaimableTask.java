@@ -0,0 +1,15 @@
+package com.company.fashion.modules.match.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row locked by a claim query.
+ */
+public interface ClaimableTask {
+
+  String getId();
+
+  String getOperatorUsername();
+
+  LocalDateTime getCreatedAt();
+}
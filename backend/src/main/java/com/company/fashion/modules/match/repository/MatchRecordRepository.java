@@ -28,6 +28,20 @@ public interface MatchRecordRepository extends JpaRepository<MatchRecord, Long>
       @Param("fromDate") LocalDateTime fromDate
   );
 
+  @Query("""
+      select m from MatchRecord m
+      where m.memberId in :memberIds
+      and m.clothingId in :clothingIds
+      and m.status = :status
+      and m.broadcastDate > :fromDate
+      """)
+  List<MatchRecord> findRecentDuplicatesForMembers(
+      @Param("memberIds") List<Long> memberIds,
+      @Param("clothingIds") List<Long> clothingIds,
+      @Param("status") MatchRecordStatus status,
+      @Param("fromDate") LocalDateTime fromDate
+  );
+
   Optional<MatchRecord> findByIdAndMemberId(Long id, Long memberId);
 
   List<MatchRecord> findByMemberIdOrderByCreatedAtDesc(Long memberId, Pageable pageable);
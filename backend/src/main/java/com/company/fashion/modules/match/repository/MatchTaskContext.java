@@ -0,0 +1,22 @@
+package com.company.fashion.modules.match.repository;
+
+import com.company.fashion.modules.match.dto.TaskStatus;
+import java.time.LocalDateTime;
+
+/**
+ * Columns a worker needs to run a task. Loaded once per execution, without the large
+ * result/preview JSON columns.
+ */
+public record MatchTaskContext(
+    String id,
+    Long memberId,
+    String scene,
+    String language,
+    String candidateClothingIdsJson,
+    boolean bypassCache,
+    Integer desiredOutfits,
+    LocalDateTime deadlineAt,
+    TaskStatus status,
+    long version
+) {
+}
@@ -2,9 +2,14 @@ package com.company.fashion.modules.match.repository;
 
 import com.company.fashion.modules.match.entity.MatchTask;
 import com.company.fashion.modules.match.dto.TaskStatus;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,8 +21,279 @@ public interface MatchTaskRepository extends JpaRepository<MatchTask, String> {
 
   Page<MatchTask> findAllByOrderByCreatedAtDesc(Pageable pageable);
 
+  long countByStatus(TaskStatus status);
+
+  long countByStatusAndPriorityGreaterThanEqual(TaskStatus status, int priority);
+
+  @Query("""
+      select new com.company.fashion.modules.match.repository.MatchTaskContext(
+          t.id, t.memberId, t.scene, t.language, t.candidateClothingIdsJson, t.bypassCache, t.desiredOutfits,
+          t.deadlineAt, t.status, t.version
+      )
+      from MatchTask t
+      where t.id = :taskId
+      """)
+  Optional<MatchTaskContext> findContextById(@Param("taskId") String taskId);
+
+  /**
+   * Loads the task with a row lock held until the caller's transaction ends, so concurrent
+   * read-modify-write updates of {@code result_json} (e.g. two preview jobs) apply one after another.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select t from MatchTask t where t.id = :taskId")
+  Optional<MatchTask> findByIdForUpdate(@Param("taskId") String taskId);
+
+  /**
+   * Moves a task out of {@code fromStatus} only if nobody else has transitioned it since the
+   * caller read {@code version}. Writes only the status-related columns.
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.status = :toStatus,
+          t.strategyName = coalesce(:strategyName, t.strategyName),
+          t.resultJson = coalesce(:resultJson, t.resultJson),
+          t.errorMessage = :errorMessage,
+          t.leaseOwner = null,
+          t.leaseExpiresAt = null,
+          t.version = t.version + 1,
+          t.updatedAt = :now
+      where t.id = :taskId
+      and t.status = :fromStatus
+      and t.version = :version
+      """)
+  int transition(
+      @Param("taskId") String taskId,
+      @Param("fromStatus") TaskStatus fromStatus,
+      @Param("version") long version,
+      @Param("toStatus") TaskStatus toStatus,
+      @Param("strategyName") String strategyName,
+      @Param("resultJson") String resultJson,
+      @Param("errorMessage") String errorMessage,
+      @Param("now") LocalDateTime now
+  );
+
+  /**
+   * Stores a provisional result on a running task without moving it, so the final transition
+   * (guarded by the same {@code version}) still applies.
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.strategyName = :strategyName,
+          t.resultJson = :resultJson,
+          t.updatedAt = :now
+      where t.id = :taskId
+      and t.status = com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+      and t.version = :version
+      """)
+  int storeProvisionalResult(
+      @Param("taskId") String taskId,
+      @Param("version") long version,
+      @Param("strategyName") String strategyName,
+      @Param("resultJson") String resultJson,
+      @Param("now") LocalDateTime now
+  );
+
+  /**
+   * Fails a task whose version the caller never got to read (e.g. the context load itself failed).
+   * Still refuses to touch terminal rows.
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.status = com.company.fashion.modules.match.dto.TaskStatus.FAILED,
+          t.errorMessage = :errorMessage,
+          t.leaseOwner = null,
+          t.leaseExpiresAt = null,
+          t.version = t.version + 1,
+          t.updatedAt = :now
+      where t.id = :taskId
+      and t.status in (
+          com.company.fashion.modules.match.dto.TaskStatus.QUEUED,
+          com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+      )
+      """)
+  int failActive(
+      @Param("taskId") String taskId,
+      @Param("errorMessage") String errorMessage,
+      @Param("now") LocalDateTime now
+  );
+
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.status = com.company.fashion.modules.match.dto.TaskStatus.CANCELLED,
+          t.leaseOwner = null,
+          t.leaseExpiresAt = null,
+          t.version = t.version + 1,
+          t.updatedAt = :now
+      where t.id = :taskId
+      and t.status in (
+          com.company.fashion.modules.match.dto.TaskStatus.QUEUED,
+          com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+      )
+      """)
+  int cancelActive(@Param("taskId") String taskId, @Param("now") LocalDateTime now);
+
+  /**
+   * Fails tasks whose deadline passed while nobody was running them (still queued, or the owning
+   * node's lease expired). Running tasks enforce their own deadline.
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.status = com.company.fashion.modules.match.dto.TaskStatus.FAILED,
+          t.errorMessage = :errorMessage,
+          t.leaseOwner = null,
+          t.leaseExpiresAt = null,
+          t.version = t.version + 1,
+          t.updatedAt = :now
+      where t.deadlineAt < :now
+      and (t.status = com.company.fashion.modules.match.dto.TaskStatus.QUEUED
+          or (t.status = com.company.fashion.modules.match.dto.TaskStatus.RUNNING and t.leaseExpiresAt < :now))
+      """)
+  int failPastDeadline(@Param("now") LocalDateTime now, @Param("errorMessage") String errorMessage);
+
+  /**
+   * Of {@code taskIds}, those no longer RUNNING under {@code owner} (cancelled, failed elsewhere,
+   * or re-claimed by another node).
+   */
+  @Query("""
+      select t.id from MatchTask t
+      where t.id in :taskIds
+      and (t.status <> com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+          or t.leaseOwner is null
+          or t.leaseOwner <> :owner)
+      """)
+  List<String> findNotOwnedBy(@Param("taskIds") List<String> taskIds, @Param("owner") String owner);
+
+  @Query(value = """
+      select t.operator_username as operatorUsername, count(*) as depth, min(t.created_at) as oldestCreatedAt
+      from match_task t
+      where (t.status = 'QUEUED' or (t.status = 'RUNNING' and t.lease_expires_at < :now))
+      and t.attempt_count < :maxAttempts
+      and (t.deadline_at is null or t.deadline_at > :now)
+      group by t.operator_username
+      """, nativeQuery = true)
+  List<OperatorQueueStats> findClaimableStatsByOperator(
+      @Param("now") LocalDateTime now,
+      @Param("maxAttempts") int maxAttempts
+  );
+
+  /**
+   * Locks claimable rows at or above {@code minPriority} for the current transaction. Rows locked
+   * by another worker are skipped, so concurrent nodes never block on (or double-claim) the same task.
+   */
+  @Query(value = """
+      select t.id as id, t.operator_username as operatorUsername, t.created_at as createdAt
+      from match_task t
+      where (t.status = 'QUEUED' or (t.status = 'RUNNING' and t.lease_expires_at < :now))
+      and t.attempt_count < :maxAttempts
+      and (t.deadline_at is null or t.deadline_at > :now)
+      and t.priority >= :minPriority
+      order by t.priority desc, t.created_at
+      limit :limit
+      for update skip locked
+      """, nativeQuery = true)
+  List<ClaimableTask> lockClaimable(
+      @Param("now") LocalDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("minPriority") int minPriority,
+      @Param("limit") int limit
+  );
+
+  /**
+   * Same as {@link #lockClaimable} but restricted to one operator's sub-queue.
+   */
+  @Query(value = """
+      select t.id as id, t.operator_username as operatorUsername, t.created_at as createdAt
+      from match_task t
+      where (t.status = 'QUEUED' or (t.status = 'RUNNING' and t.lease_expires_at < :now))
+      and t.attempt_count < :maxAttempts
+      and (t.deadline_at is null or t.deadline_at > :now)
+      and t.operator_username = :operator
+      order by t.priority desc, t.created_at
+      limit :limit
+      for update skip locked
+      """, nativeQuery = true)
+  List<ClaimableTask> lockClaimableForOperator(
+      @Param("now") LocalDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("operator") String operator,
+      @Param("limit") int limit
+  );
+
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.status = com.company.fashion.modules.match.dto.TaskStatus.RUNNING,
+          t.leaseOwner = :owner,
+          t.leaseExpiresAt = :leaseExpiresAt,
+          t.attemptCount = t.attemptCount + 1,
+          t.version = t.version + 1,
+          t.updatedAt = :now
+      where t.id in :taskIds
+      """)
+  int claim(
+      @Param("taskIds") List<String> taskIds,
+      @Param("owner") String owner,
+      @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt,
+      @Param("now") LocalDateTime now
+  );
+
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.leaseExpiresAt = :leaseExpiresAt
+      where t.id in :taskIds
+      and t.leaseOwner = :owner
+      and t.status = com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+      """)
+  int renewLeases(
+      @Param("taskIds") List<String> taskIds,
+      @Param("owner") String owner,
+      @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt
+  );
+
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+      update MatchTask t
+      set t.status = com.company.fashion.modules.match.dto.TaskStatus.FAILED,
+          t.errorMessage = :errorMessage,
+          t.leaseOwner = null,
+          t.leaseExpiresAt = null,
+          t.version = t.version + 1,
+          t.updatedAt = :now
+      where t.status = com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+      and t.leaseExpiresAt < :now
+      and t.attemptCount >= :maxAttempts
+      """)
+  int failExhaustedLeases(
+      @Param("now") LocalDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("errorMessage") String errorMessage
+  );
+
   @Transactional
   @Modifying(clearAutomatically = true, flushAutomatically = true)
-  @Query("update MatchTask t set t.status = :status, t.errorMessage = :errorMessage where t.id = :taskId")
-  int updateStatusAndError(@Param("taskId") String taskId, @Param("status") TaskStatus status, @Param("errorMessage") String errorMessage);
+  @Query("""
+      update MatchTask t
+      set t.status = com.company.fashion.modules.match.dto.TaskStatus.QUEUED,
+          t.leaseOwner = null,
+          t.leaseExpiresAt = null,
+          t.attemptCount = t.attemptCount - 1,
+          t.version = t.version + 1
+      where t.id = :taskId
+      and t.leaseOwner = :owner
+      and t.status = com.company.fashion.modules.match.dto.TaskStatus.RUNNING
+      """)
+  int releaseLease(@Param("taskId") String taskId, @Param("owner") String owner);
 }
@@ -0,0 +1,15 @@
+package com.company.fashion.modules.match.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claimable backlog of one operator.
+ */
+public interface OperatorQueueStats {
+
+  String getOperatorUsername();
+
+  long getDepth();
+
+  LocalDateTime getOldestCreatedAt();
+}
@@ -0,0 +1,30 @@
+package com.company.fashion.modules.match.repository;
+
+import com.company.fashion.modules.match.entity.OutfitPreviewCacheEntry;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface OutfitPreviewCacheRepository extends JpaRepository<OutfitPreviewCacheEntry, String> {
+
+  long countByMemberId(Long memberId);
+
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("delete from OutfitPreviewCacheEntry e where e.memberId = :memberId")
+  int deleteByMemberId(@Param("memberId") Long memberId);
+
+  /** {@code clothingIdToken} is the delimited form {@code ,<id>,}. */
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("delete from OutfitPreviewCacheEntry e where e.clothingIds like concat('%', :clothingIdToken, '%')")
+  int deleteByClothingIdToken(@Param("clothingIdToken") String clothingIdToken);
+
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("delete from OutfitPreviewCacheEntry e where e.createdAt < :cutoff")
+  int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
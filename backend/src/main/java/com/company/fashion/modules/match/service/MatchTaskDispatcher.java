@@ -0,0 +1,171 @@
+package com.company.fashion.modules.match.service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pulls work from {@link MatchTaskQueue} and runs it on the {@code matchExecutor} pool.
+ *
+ * <p>Each node only claims as many tasks as it has free worker slots, so queued work stays in the
+ * database (visible to every node) instead of an in-memory executor queue.</p>
+ */
+@Component
+public class MatchTaskDispatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(MatchTaskDispatcher.class);
+
+  private final MatchTaskQueue matchTaskQueue;
+  private final MatchTaskProcessor matchTaskProcessor;
+  private final TaskExecutor matchExecutor;
+  private final TaskScheduler taskScheduler;
+  private final TaskAdmissionService taskAdmissionService;
+  private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+  // Worker thread per running task, so a cancel can interrupt a blocked provider call.
+  private final Map<String, Thread> workers = new ConcurrentHashMap<>();
+  private final String nodeId;
+
+  @Value("${app.match.queue.max-in-flight:8}")
+  private int maxInFlight;
+
+  public MatchTaskDispatcher(
+      MatchTaskQueue matchTaskQueue,
+      MatchTaskProcessor matchTaskProcessor,
+      @Qualifier("matchExecutor") TaskExecutor matchExecutor,
+      TaskScheduler taskScheduler,
+      TaskAdmissionService taskAdmissionService,
+      @Value("${app.match.queue.node-id:}") String configuredNodeId
+  ) {
+    this.matchTaskQueue = matchTaskQueue;
+    this.matchTaskProcessor = matchTaskProcessor;
+    this.matchExecutor = matchExecutor;
+    this.taskScheduler = taskScheduler;
+    this.taskAdmissionService = taskAdmissionService;
+    this.nodeId = configuredNodeId == null || configuredNodeId.isBlank() ? defaultNodeId() : configuredNodeId.trim();
+  }
+
+  /**
+   * Triggers a claim round right away instead of waiting for the next poll tick.
+   */
+  public void wakeUp() {
+    try {
+      taskScheduler.schedule(this::dispatch, Instant.now());
+    } catch (TaskRejectedException ex) {
+      // Scheduler is shutting down; the next node (or restart) picks the work up from the table.
+      log.debug("Match task wake-up skipped: {}", ex.getMessage());
+    }
+  }
+
+  @Scheduled(
+      initialDelayString = "${app.match.queue.poll-interval-ms:1000}",
+      fixedDelayString = "${app.match.queue.poll-interval-ms:1000}"
+  )
+  public synchronized void dispatch() {
+    int capacity = maxInFlight - inFlight.size();
+    if (capacity <= 0) {
+      return;
+    }
+
+    List<String> claimed;
+    try {
+      claimed = matchTaskQueue.claim(nodeId, capacity);
+    } catch (RuntimeException ex) {
+      log.warn("Match task claim failed on node {}: {}", nodeId, ex.getMessage());
+      return;
+    }
+    claimed.forEach(this::submit);
+  }
+
+  @Scheduled(fixedDelayString = "${app.match.queue.heartbeat-interval-ms:10000}")
+  public void heartbeat() {
+    try {
+      List<String> running = List.copyOf(inFlight);
+      matchTaskQueue.renewLeases(nodeId, running);
+      // Cancelled (possibly via another node) or otherwise taken away from us: stop the work.
+      matchTaskQueue.findNotOwned(nodeId, running).forEach(this::interrupt);
+      int exhausted = matchTaskQueue.failExhaustedLeases();
+      if (exhausted > 0) {
+        log.warn("Marked {} match task(s) FAILED after exhausting lease attempts", exhausted);
+      }
+      int expired = matchTaskQueue.failPastDeadline();
+      if (expired > 0) {
+        log.warn("Marked {} queued match task(s) FAILED after their deadline passed", expired);
+      }
+    } catch (RuntimeException ex) {
+      log.warn("Match task heartbeat failed on node {}: {}", nodeId, ex.getMessage());
+    }
+  }
+
+  /**
+   * Interrupts the worker running {@code taskId} on this node, if any. The processor sees the
+   * interrupt inside the provider call and stops without overwriting the task's new status.
+   */
+  public boolean interrupt(String taskId) {
+    Thread[] interrupted = new Thread[1];
+    workers.computeIfPresent(taskId, (id, worker) -> {
+      worker.interrupt();
+      interrupted[0] = worker;
+      return worker;
+    });
+    if (interrupted[0] != null) {
+      log.info("Interrupted match task {} on node {}", taskId, nodeId);
+    }
+    return interrupted[0] != null;
+  }
+
+  public String nodeId() {
+    return nodeId;
+  }
+
+  private void submit(String taskId) {
+    inFlight.add(taskId);
+    try {
+      matchExecutor.execute(() -> {
+        workers.put(taskId, Thread.currentThread());
+        long startNanos = System.nanoTime();
+        boolean computed = false;
+        try {
+          computed = matchTaskProcessor.process(taskId);
+        } finally {
+          // Cache hits and shared calls finish in milliseconds and would drag the estimate down.
+          if (computed) {
+            taskAdmissionService.recordServiceTime(Duration.ofNanos(System.nanoTime() - startNanos));
+          }
+          workers.remove(taskId);
+          // Do not leak a late cancel interrupt into the next task on this pooled thread.
+          Thread.interrupted();
+          inFlight.remove(taskId);
+          wakeUp();
+        }
+      });
+    } catch (TaskRejectedException ex) {
+      inFlight.remove(taskId);
+      log.warn("Match executor rejected task {}, returning it to the queue", taskId);
+      matchTaskQueue.release(nodeId, taskId);
+    }
+  }
+
+  private static String defaultNodeId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (Exception ex) {
+      host = "node";
+    }
+    return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+  }
+}
@@ -5,99 +5,132 @@ import com.company.fashion.modules.clothing.service.ClothingService;
 import com.company.fashion.modules.match.ai.AiLanguage;
 import com.company.fashion.modules.match.dto.MatchResultItemResponse;
 import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
 import com.company.fashion.modules.match.dto.TaskStatus;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.match.entity.MatchRecordStatus;
-import com.company.fashion.modules.match.entity.MatchTask;
 import com.company.fashion.modules.match.repository.MatchRecordRepository;
-import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.company.fashion.modules.match.repository.MatchTaskContext;
 import com.company.fashion.modules.match.sse.SseService;
 import com.company.fashion.modules.match.strategy.RecommendationService;
 import com.company.fashion.modules.member.entity.Member;
 import com.company.fashion.modules.member.service.MemberService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Component
 public class MatchTaskProcessor {
 
   private static final Logger log = LoggerFactory.getLogger(MatchTaskProcessor.class);
   private static final int MAX_ERROR_MESSAGE_LENGTH = 1000;
+  static final String DEADLINE_EXCEEDED_MESSAGE = "Task deadline exceeded";
 
-  private final MatchTaskRepository matchTaskRepository;
+  private final MatchTaskStateMachine matchTaskStateMachine;
   private final MatchRecordRepository matchRecordRepository;
   private final MemberService memberService;
   private final ClothingService clothingService;
   private final RecommendationService recommendationService;
   private final SseService sseService;
   private final ObjectMapper objectMapper;
+  private final TaskScheduler taskScheduler;
+  private final TransactionTemplate transactionTemplate;
 
   public MatchTaskProcessor(
-      MatchTaskRepository matchTaskRepository,
+      MatchTaskStateMachine matchTaskStateMachine,
       MatchRecordRepository matchRecordRepository,
       MemberService memberService,
       ClothingService clothingService,
       RecommendationService recommendationService,
       SseService sseService,
-      ObjectMapper objectMapper
+      ObjectMapper objectMapper,
+      TaskScheduler taskScheduler,
+      TransactionTemplate transactionTemplate
   ) {
-    this.matchTaskRepository = matchTaskRepository;
+    this.matchTaskStateMachine = matchTaskStateMachine;
     this.matchRecordRepository = matchRecordRepository;
     this.memberService = memberService;
     this.clothingService = clothingService;
     this.recommendationService = recommendationService;
     this.sseService = sseService;
     this.objectMapper = objectMapper;
+    this.taskScheduler = taskScheduler;
+    this.transactionTemplate = transactionTemplate;
   }
 
-  @Async("matchExecutor")
-  public void processAsync(String taskId) {
+  /**
+   * Runs one claimed task to completion. The caller ({@link MatchTaskDispatcher}) has already moved
+   * the task to RUNNING under this node's lease.
+   *
+   * @return whether the task ran its own recommendation call, i.e. its wall time is a real service
+   *     time; {@code false} for cache hits, calls shared with another task and skipped tasks
+   */
+  public boolean process(String taskId) {
+    MatchTaskContext task = null;
+    DeadlineGuard deadline = null;
+    Throwable failure = null;
+    boolean computed = false;
     try {
-      updateStatus(taskId, TaskStatus.RUNNING, null, null, null, null);
+      task = matchTaskStateMachine.load(taskId);
+      if (task.status() != TaskStatus.RUNNING) {
+        log.warn("Skipping task {} in status {}", taskId, task.status());
+        return false;
+      }
+      MatchTaskContext context = task;
+      TaskProgressReporter progress = new TaskProgressReporter(taskId, sseService, (strategyName, outfits) ->
+          matchTaskStateMachine.storeProvisional(context, strategyName, toJson(outfits)));
+      if (isPastDeadline(task)) {
+        throw new IllegalStateException(DEADLINE_EXCEEDED_MESSAGE);
+      }
+      deadline = DeadlineGuard.start(taskScheduler, task.deadlineAt());
       sseService.publish(taskId, "task_started", Map.of("taskId", taskId, "status", TaskStatus.RUNNING.name()));
 
-      MatchTask task = getTask(taskId);
-      Member member = memberService.getActiveEntity(task.getMemberId());
-      List<Long> candidateIds = fromJson(task.getCandidateClothingIdsJson());
+      Member member = memberService.getActiveEntity(task.memberId());
+      List<Long> candidateIds = fromJson(task.candidateClothingIdsJson());
       List<Clothing> candidates = clothingService.findActiveByIds(candidateIds);
       if (candidates.isEmpty()) {
         throw new IllegalStateException("No valid clothing candidates available");
       }
+      List<MatchRecord> history = matchRecordRepository.findTop10ByMemberIdOrderByPerformanceScoreDesc(task.memberId());
+      progress.onStage(TaskStage.CONTEXT_LOADED, Map.of("candidateCount", candidates.size()));
 
-      Thread.sleep(300);
-      sseService.publish(taskId, "task_progress", Map.of("taskId", taskId, "progress", 45));
-
-      List<MatchRecord> history = matchRecordRepository.findTop10ByMemberIdOrderByPerformanceScoreDesc(task.getMemberId());
+      // A recommend() that throws still spent its time on the providers.
+      computed = true;
       RecommendationService.RecommendationOutput output = recommendationService.recommend(
           member,
           candidates,
           history,
-          task.getScene(),
-          AiLanguage.fromCode(task.getLanguage())
+          task.scene(),
+          AiLanguage.fromCode(task.language()),
+          task.desiredOutfits(),
+          task.bypassCache(),
+          progress
       );
+      computed = output.source() == RecommendationService.Source.COMPUTED;
       List<OutfitRecommendationResponse> outfits = output.outfits();
       List<MatchResultItemResponse> flatResult = flattenOutfits(outfits);
 
-      Thread.sleep(300);
-      sseService.publish(taskId, "task_progress", Map.of("taskId", taskId, "progress", 85));
-
-      persistRecords(task.getMemberId(), outfits);
-      updateStatus(
-          taskId,
-          TaskStatus.SUCCEEDED,
-          output.strategyName(),
-          toJson(outfits),
-          null,
-          output.warning()
-      );
+      if (Thread.currentThread().isInterrupted()) {
+        throw new IllegalStateException("Task interrupted");
+      }
+      // History records only exist for a task that really succeeded: a lost transition rolls them back.
+      transactionTemplate.executeWithoutResult(status -> {
+        matchTaskStateMachine.succeed(context, output.strategyName(), toJson(outfits), truncateErrorMessage(output.warning()));
+        persistRecords(context.memberId(), outfits);
+      });
+      progress.onStage(TaskStage.PERSISTED);
+      log.info("Match task {} succeeded: {}", taskId, progress.timeline());
 
       Map<String, Object> completedPayload = new HashMap<>();
       completedPayload.put("taskId", taskId);
@@ -109,8 +142,23 @@ public class MatchTaskProcessor {
       completedPayload.put("warning", output.warning());
       sseService.publish(taskId, "task_completed", completedPayload);
     } catch (Throwable ex) {
-      handleFailure(taskId, ex);
+      failure = ex;
+    } finally {
+      if (deadline != null) {
+        deadline.close();
+      }
+    }
+    if (failure != null) {
+      // The guard is closed, so no further interrupt can arrive; clear one that already did so it
+      // does not break the status update.
+      Thread.interrupted();
+      handleFailure(taskId, task, isPastDeadline(task) ? new IllegalStateException(DEADLINE_EXCEEDED_MESSAGE) : failure);
     }
+    return computed;
+  }
+
+  private static boolean isPastDeadline(MatchTaskContext task) {
+    return task != null && task.deadlineAt() != null && !LocalDateTime.now().isBefore(task.deadlineAt());
   }
 
   private List<MatchResultItemResponse> flattenOutfits(List<OutfitRecommendationResponse> outfits) {
@@ -144,41 +192,22 @@ public class MatchTaskProcessor {
     matchRecordRepository.saveAll(records);
   }
 
-  private void updateStatus(
-      String taskId,
-      TaskStatus status,
-      String strategyName,
-      String resultJson,
-      String previewJson,
-      String errorMessage
-  ) {
-    MatchTask task = getTask(taskId);
-    task.setStatus(status);
-    if (strategyName != null) {
-      task.setStrategyName(strategyName);
-    }
-    if (resultJson != null) {
-      task.setResultJson(resultJson);
-    }
-    if (previewJson != null) {
-      task.setPreviewJson(previewJson);
-    }
-    task.setErrorMessage(truncateErrorMessage(errorMessage));
-    matchTaskRepository.save(task);
-  }
-
-  private void handleFailure(String taskId, Throwable ex) {
+  private void handleFailure(String taskId, MatchTaskContext task, Throwable ex) {
     String errorMessage = extractErrorMessage(ex);
 
+    boolean failed;
     try {
-      updateStatus(taskId, TaskStatus.FAILED, null, null, null, errorMessage);
+      failed = task != null
+          ? matchTaskStateMachine.fail(task, errorMessage)
+          : matchTaskStateMachine.failActive(taskId, errorMessage);
     } catch (Throwable statusEx) {
       log.error("Failed to persist FAILED status for task {}: {}", taskId, statusEx.getMessage(), statusEx);
-      try {
-        matchTaskRepository.updateStatusAndError(taskId, TaskStatus.FAILED, errorMessage);
-      } catch (Throwable fallbackEx) {
-        log.error("Fallback FAILED status update also failed for task {}: {}", taskId, fallbackEx.getMessage(), fallbackEx);
-      }
+      failed = true;
+    }
+    if (!failed) {
+      // Cancelled, re-claimed by another worker, or already finished; that outcome stands.
+      log.info("Task {} not marked FAILED, status changed concurrently: {}", taskId, errorMessage);
+      return;
     }
 
     try {
@@ -192,11 +221,6 @@ public class MatchTaskProcessor {
     }
   }
 
-  private MatchTask getTask(String taskId) {
-    return matchTaskRepository.findById(taskId)
-        .orElseThrow(() -> new IllegalStateException("Task not found: " + taskId));
-  }
-
   private String toJson(Object value) {
     try {
       return objectMapper.writeValueAsString(value);
@@ -234,4 +258,36 @@ public class MatchTaskProcessor {
     }
     return value.substring(0, MAX_ERROR_MESSAGE_LENGTH);
   }
+
+  /**
+   * Interrupts the worker thread when the task deadline passes. Closing it guarantees no interrupt
+   * is delivered afterwards.
+   */
+  private static final class DeadlineGuard implements AutoCloseable {
+
+    private final Thread worker = Thread.currentThread();
+    private boolean active = true;
+    private ScheduledFuture<?> timer;
+
+    static DeadlineGuard start(TaskScheduler scheduler, LocalDateTime deadlineAt) {
+      if (deadlineAt == null) {
+        return null;
+      }
+      DeadlineGuard guard = new DeadlineGuard();
+      guard.timer = scheduler.schedule(guard::fire, deadlineAt.atZone(ZoneId.systemDefault()).toInstant());
+      return guard;
+    }
+
+    private synchronized void fire() {
+      if (active) {
+        worker.interrupt();
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      active = false;
+      timer.cancel(false);
+    }
+  }
 }
@@ -0,0 +1,100 @@
+package com.company.fashion.modules.match.service;
+
+import com.company.fashion.modules.match.dto.TaskPriority;
+import com.company.fashion.modules.match.repository.ClaimableTask;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.company.fashion.modules.match.repository.OperatorQueueStats;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Durable task queue backed by the {@code match_task} table.
+ *
+ * <p>Workers claim tasks by taking a time-bounded lease. A lease that is not renewed (node crash,
+ * deploy) expires and the task becomes claimable again until {@code max-attempts} is reached.</p>
+ */
+@Service
+public class MatchTaskQueue {
+
+  private final MatchTaskRepository matchTaskRepository;
+  private final MatchTaskScheduler matchTaskScheduler;
+
+  @Value("${app.match.queue.lease-seconds:60}")
+  private long leaseSeconds;
+
+  @Value("${app.match.queue.max-attempts:3}")
+  private int maxAttempts;
+
+  public MatchTaskQueue(MatchTaskRepository matchTaskRepository, MatchTaskScheduler matchTaskScheduler) {
+    this.matchTaskRepository = matchTaskRepository;
+    this.matchTaskScheduler = matchTaskScheduler;
+  }
+
+  /**
+   * Claims up to {@code limit} tasks. LIVE tasks go first regardless of operator; the remaining
+   * slots are shared across operators by {@link MatchTaskScheduler}.
+   */
+  @Transactional
+  public List<String> claim(String owner, int limit) {
+    if (limit <= 0) {
+      return List.of();
+    }
+    LocalDateTime now = LocalDateTime.now();
+    List<ClaimableTask> locked = new ArrayList<>(
+        matchTaskRepository.lockClaimable(now, maxAttempts, TaskPriority.LIVE.level(), limit)
+    );
+
+    List<OperatorQueueStats> backlog = matchTaskRepository.findClaimableStatsByOperator(now, maxAttempts);
+    matchTaskScheduler.recordBacklog(backlog, now);
+    int remaining = limit - locked.size();
+    if (remaining > 0) {
+      matchTaskScheduler.allocate(backlog, remaining).forEach((operator, count) ->
+          matchTaskRepository.lockClaimableForOperator(now, maxAttempts, operator, count).stream()
+              .filter(task -> locked.stream().noneMatch(item -> item.getId().equals(task.getId())))
+              .forEach(locked::add)
+      );
+    }
+    if (locked.isEmpty()) {
+      return List.of();
+    }
+
+    List<String> taskIds = locked.stream().map(ClaimableTask::getId).toList();
+    matchTaskRepository.claim(taskIds, owner, now.plusSeconds(leaseSeconds), now);
+    matchTaskScheduler.recordClaimed(locked, now);
+    return taskIds;
+  }
+
+  public int renewLeases(String owner, List<String> taskIds) {
+    if (taskIds.isEmpty()) {
+      return 0;
+    }
+    return matchTaskRepository.renewLeases(taskIds, owner, LocalDateTime.now().plusSeconds(leaseSeconds));
+  }
+
+  public int failExhaustedLeases() {
+    return matchTaskRepository.failExhaustedLeases(
+        LocalDateTime.now(),
+        maxAttempts,
+        "Task lease expired after " + maxAttempts + " attempts"
+    );
+  }
+
+  public int failPastDeadline() {
+    return matchTaskRepository.failPastDeadline(LocalDateTime.now(), MatchTaskProcessor.DEADLINE_EXCEEDED_MESSAGE);
+  }
+
+  public List<String> findNotOwned(String owner, List<String> taskIds) {
+    if (taskIds.isEmpty()) {
+      return List.of();
+    }
+    return matchTaskRepository.findNotOwnedBy(taskIds, owner);
+  }
+
+  public void release(String owner, String taskId) {
+    matchTaskRepository.releaseLease(taskId, owner);
+  }
+}
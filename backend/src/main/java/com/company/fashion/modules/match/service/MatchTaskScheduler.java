@@ -0,0 +1,139 @@
+package com.company.fashion.modules.match.service;
+
+import com.company.fashion.modules.match.repository.ClaimableTask;
+import com.company.fashion.modules.match.repository.OperatorQueueStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides how many queued tasks each operator gets per claim round.
+ *
+ * <p>Every operator ({@code match_task.operator_username}) has its own sub-queue. Free slots are
+ * handed out by smooth weighted round-robin, so one operator's large batch cannot starve the
+ * others. Per-operator weights come from {@code app.match.scheduler.operator-weights}
+ * ({@code alice=2,bob=1}); operators not listed get {@code default-weight}. The round-robin state is
+ * kept across rounds, so fairness also holds when a node frees one slot at a time.</p>
+ */
+@Component
+public class MatchTaskScheduler {
+
+  private final Map<String, Integer> operatorWeights;
+  private final int defaultWeight;
+  private final MeterRegistry meterRegistry;
+  private final MultiGauge queueDepth;
+  private final MultiGauge oldestWait;
+  // Smooth WRR running weights, per operator with a backlog.
+  private final Map<String, Long> currentWeights = new HashMap<>();
+
+  public MatchTaskScheduler(
+      @Value("${app.match.scheduler.operator-weights:}") String operatorWeights,
+      @Value("${app.match.scheduler.default-weight:1}") int defaultWeight,
+      MeterRegistry meterRegistry
+  ) {
+    this.operatorWeights = parseWeights(operatorWeights);
+    this.defaultWeight = Math.max(1, defaultWeight);
+    this.meterRegistry = meterRegistry;
+    this.queueDepth = MultiGauge.builder("match.queue.depth")
+        .description("Claimable match tasks per operator")
+        .register(meterRegistry);
+    this.oldestWait = MultiGauge.builder("match.queue.oldest.wait")
+        .description("Age in seconds of the oldest claimable task per operator")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+  }
+
+  /**
+   * @return operator -> number of tasks to claim from its sub-queue, at most {@code slots} in total
+   */
+  public synchronized Map<String, Integer> allocate(List<OperatorQueueStats> backlog, int slots) {
+    Map<String, Long> remaining = new LinkedHashMap<>();
+    for (OperatorQueueStats stats : backlog) {
+      if (stats.getOperatorUsername() != null && stats.getDepth() > 0) {
+        remaining.put(stats.getOperatorUsername(), stats.getDepth());
+      }
+    }
+    currentWeights.keySet().retainAll(remaining.keySet());
+
+    Map<String, Integer> allocation = new LinkedHashMap<>();
+    for (int i = 0; i < slots && !remaining.isEmpty(); i++) {
+      String picked = null;
+      long totalWeight = 0;
+      for (String operator : remaining.keySet()) {
+        int weight = weightOf(operator);
+        totalWeight += weight;
+        long current = currentWeights.merge(operator, (long) weight, Long::sum);
+        if (picked == null || current > currentWeights.get(picked)) {
+          picked = operator;
+        }
+      }
+      currentWeights.merge(picked, -totalWeight, Long::sum);
+      allocation.merge(picked, 1, Integer::sum);
+      if (remaining.merge(picked, -1L, Long::sum) <= 0) {
+        remaining.remove(picked);
+      }
+    }
+    return allocation;
+  }
+
+  public void recordBacklog(List<OperatorQueueStats> backlog, LocalDateTime now) {
+    queueDepth.register(backlog.stream()
+        .<MultiGauge.Row<?>>map(stats -> MultiGauge.Row.of(
+            Tags.of("operator", tagValue(stats.getOperatorUsername())),
+            stats.getDepth()
+        ))
+        .toList(), true);
+    oldestWait.register(backlog.stream()
+        .filter(stats -> stats.getOldestCreatedAt() != null)
+        .<MultiGauge.Row<?>>map(stats -> MultiGauge.Row.of(
+            Tags.of("operator", tagValue(stats.getOperatorUsername())),
+            Math.max(0, Duration.between(stats.getOldestCreatedAt(), now).toSeconds())
+        ))
+        .toList(), true);
+  }
+
+  public void recordClaimed(List<ClaimableTask> claimed, LocalDateTime now) {
+    for (ClaimableTask task : claimed) {
+      if (task.getCreatedAt() == null) {
+        continue;
+      }
+      Timer.builder("match.queue.wait")
+          .description("Time from task creation to claim")
+          .tag("operator", tagValue(task.getOperatorUsername()))
+          .register(meterRegistry)
+          .record(Duration.between(task.getCreatedAt(), now));
+    }
+  }
+
+  private int weightOf(String operator) {
+    return operatorWeights.getOrDefault(operator, defaultWeight);
+  }
+
+  private static String tagValue(String operator) {
+    return operator == null ? "unknown" : operator;
+  }
+
+  private static Map<String, Integer> parseWeights(String value) {
+    Map<String, Integer> weights = new HashMap<>();
+    if (value == null || value.isBlank()) {
+      return weights;
+    }
+    for (String pair : value.split(",")) {
+      String[] parts = pair.split("=", 2);
+      if (parts.length != 2 || parts[0].isBlank()) {
+        throw new IllegalStateException("Invalid app.match.scheduler.operator-weights entry: " + pair);
+      }
+      weights.put(parts[0].trim(), Math.max(1, Integer.parseInt(parts[1].trim())));
+    }
+    return weights;
+  }
+}
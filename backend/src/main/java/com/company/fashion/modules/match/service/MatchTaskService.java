@@ -6,16 +6,22 @@ import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.clothing.service.ClothingService;
 import com.company.fashion.modules.match.ai.AiLanguage;
 import com.company.fashion.modules.match.ai.MatchLocaleResolver;
+import com.company.fashion.modules.match.dto.CreateMatchTaskBatchRequest;
+import com.company.fashion.modules.match.dto.CreateMatchTaskBatchResponse;
 import com.company.fashion.modules.match.dto.CreateMatchTaskRequest;
 import com.company.fashion.modules.match.dto.CreateMatchTaskResponse;
 import com.company.fashion.modules.match.dto.CreateManualHistoryRequest;
 import com.company.fashion.modules.match.dto.MatchHistoryItemResponse;
 import com.company.fashion.modules.match.dto.MatchHistoryResponse;
 import com.company.fashion.modules.match.dto.MatchResultItemResponse;
+import com.company.fashion.modules.match.dto.MatchTaskBatchEntry;
+import com.company.fashion.modules.match.dto.MatchTaskBatchItemResponse;
 import com.company.fashion.modules.match.dto.MatchTaskResultResponse;
 import com.company.fashion.modules.match.dto.MatchTaskSummaryResponse;
 import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.dto.PreviewStatus;
+import com.company.fashion.modules.match.dto.TaskPriority;
 import com.company.fashion.modules.match.dto.TaskStatus;
 import com.company.fashion.modules.match.dto.UpdateMatchRecordStatusRequest;
 import com.company.fashion.modules.match.entity.MatchRecord;
@@ -23,55 +29,88 @@ import com.company.fashion.modules.match.entity.MatchRecordStatus;
 import com.company.fashion.modules.match.entity.MatchTask;
 import com.company.fashion.modules.match.repository.MatchRecordRepository;
 import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.company.fashion.modules.match.sse.SseService;
 import com.company.fashion.modules.member.entity.Member;
 import com.company.fashion.modules.member.service.MemberService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class MatchTaskService {
 
+  private static final Logger log = LoggerFactory.getLogger(MatchTaskService.class);
+  private static final String ALL_FILTERED_MESSAGE = "All clothing candidates were filtered by 7-day worn history rule";
+
   private final MemberService memberService;
   private final ClothingService clothingService;
   private final MatchRecordRepository matchRecordRepository;
   private final MatchTaskRepository matchTaskRepository;
-  private final MatchTaskProcessor matchTaskProcessor;
+  private final MatchTaskDispatcher matchTaskDispatcher;
+  private final MatchTaskStateMachine matchTaskStateMachine;
+  private final SseService sseService;
   private final TaskRateLimitService taskRateLimitService;
+  private final TaskAdmissionService taskAdmissionService;
   private final OutfitPreviewService outfitPreviewService;
   private final MatchLocaleResolver matchLocaleResolver;
   private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+  private final TaskExecutor previewExecutor;
+  private final Set<String> previewsInFlight = ConcurrentHashMap.newKeySet();
+
+  /** A RUNNING preview older than this is assumed lost (e.g. its node died) and may be started again. */
+  @Value("${app.match.preview.stale-after-seconds:600}")
+  private long previewStaleAfterSeconds;
 
   public MatchTaskService(
       MemberService memberService,
       ClothingService clothingService,
       MatchRecordRepository matchRecordRepository,
       MatchTaskRepository matchTaskRepository,
-      MatchTaskProcessor matchTaskProcessor,
+      MatchTaskDispatcher matchTaskDispatcher,
+      MatchTaskStateMachine matchTaskStateMachine,
+      SseService sseService,
       TaskRateLimitService taskRateLimitService,
+      TaskAdmissionService taskAdmissionService,
       OutfitPreviewService outfitPreviewService,
       MatchLocaleResolver matchLocaleResolver,
-      ObjectMapper objectMapper
+      ObjectMapper objectMapper,
+      TransactionTemplate transactionTemplate,
+      @Qualifier("previewExecutor") TaskExecutor previewExecutor
   ) {
     this.memberService = memberService;
     this.clothingService = clothingService;
     this.matchRecordRepository = matchRecordRepository;
     this.matchTaskRepository = matchTaskRepository;
-    this.matchTaskProcessor = matchTaskProcessor;
+    this.matchTaskDispatcher = matchTaskDispatcher;
+    this.matchTaskStateMachine = matchTaskStateMachine;
+    this.sseService = sseService;
     this.taskRateLimitService = taskRateLimitService;
+    this.taskAdmissionService = taskAdmissionService;
     this.outfitPreviewService = outfitPreviewService;
     this.matchLocaleResolver = matchLocaleResolver;
     this.objectMapper = objectMapper;
+    this.transactionTemplate = transactionTemplate;
+    this.previewExecutor = previewExecutor;
   }
 
   public CreateMatchTaskResponse createTask(
@@ -82,41 +121,147 @@ public class MatchTaskService {
     taskRateLimitService.assertAllowed(operatorUsername);
     memberService.getActiveEntity(request.memberId());
 
-    List<Long> requestClothingIds = request.clothingIds().stream().distinct().toList();
-    List<Clothing> onShelf = clothingService.findOnShelfByIds(requestClothingIds);
-    if (onShelf.isEmpty()) {
-      throw new BusinessException(400, "No ON_SHELF clothing found in request");
-    }
+    List<Long> onShelfIds = loadOnShelfCandidateIds(request.clothingIds());
 
     LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
     List<MatchRecord> duplicates = matchRecordRepository.findRecentDuplicates(
         request.memberId(),
-        onShelf.stream().map(Clothing::getId).toList(),
+        onShelfIds,
         MatchRecordStatus.BROADCASTED,
         sevenDaysAgo
     );
 
+    List<Long> filtered = excludeDuplicates(onShelfIds, duplicates);
+    if (filtered.isEmpty()) {
+      throw new BusinessException(400, ALL_FILTERED_MESSAGE);
+    }
+
+    AiLanguage language = matchLocaleResolver.resolve(acceptLanguage);
+    MatchTask task = newQueuedTask(request.memberId(), request.scene(), operatorUsername, language, filtered);
+    task.setBypassCache(Boolean.TRUE.equals(request.bypassCache()));
+    task.setPriority(priorityLevel(request.priority()));
+    task.setDeadlineAt(deadlineAt(request.deadlineSeconds()));
+    task.setDesiredOutfits(request.desiredOutfits());
+    LocalDateTime estimatedStartAt = taskAdmissionService.admit(1, task.getPriority());
+
+    matchTaskRepository.save(task);
+    matchTaskDispatcher.wakeUp();
+    return new CreateMatchTaskResponse(task.getId(), TaskStatus.QUEUED, estimatedStartAt);
+  }
+
+  /**
+   * Creates one task per entry against a shared candidate list. Candidates, member existence and
+   * 7-day dedup are each resolved with a single query for the whole batch, and all tasks are queued
+   * together. Entries whose candidates are all filtered out are skipped and reported. Admission is
+   * all-or-nothing: the batch is rejected if its last task would exceed the queue limits.
+   */
+  public CreateMatchTaskBatchResponse createTasks(
+      CreateMatchTaskBatchRequest request,
+      String operatorUsername,
+      String acceptLanguage
+  ) {
+    taskRateLimitService.assertAllowed(operatorUsername);
+
+    Set<Long> memberIds = request.entries().stream()
+        .map(MatchTaskBatchEntry::memberId)
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+    Set<Long> activeMemberIds = memberService.findActiveByIds(memberIds).stream()
+        .map(Member::getId)
+        .collect(Collectors.toSet());
+    List<Long> missingMemberIds = memberIds.stream().filter(id -> !activeMemberIds.contains(id)).toList();
+    if (!missingMemberIds.isEmpty()) {
+      throw new BusinessException(404, "Member not found: " + missingMemberIds);
+    }
+
+    List<Long> onShelfIds = loadOnShelfCandidateIds(request.clothingIds());
+    Map<Long, List<MatchRecord>> duplicatesByMember = matchRecordRepository.findRecentDuplicatesForMembers(
+        List.copyOf(memberIds),
+        onShelfIds,
+        MatchRecordStatus.BROADCASTED,
+        LocalDateTime.now().minusDays(7)
+    ).stream().collect(Collectors.groupingBy(MatchRecord::getMemberId));
+
+    AiLanguage language = matchLocaleResolver.resolve(acceptLanguage);
+    List<MatchTask> tasks = new ArrayList<>();
+    List<MatchTaskBatchItemResponse> items = new ArrayList<>();
+    for (MatchTaskBatchEntry entry : request.entries()) {
+      List<Long> filtered = excludeDuplicates(onShelfIds, duplicatesByMember.getOrDefault(entry.memberId(), List.of()));
+      if (filtered.isEmpty()) {
+        items.add(new MatchTaskBatchItemResponse(entry.memberId(), entry.scene(), null, null, null, ALL_FILTERED_MESSAGE));
+        continue;
+      }
+      MatchTask task = newQueuedTask(entry.memberId(), entry.scene(), operatorUsername, language, filtered);
+      task.setBypassCache(Boolean.TRUE.equals(request.bypassCache()));
+      task.setPriority(priorityLevel(request.priority()));
+      task.setDeadlineAt(deadlineAt(request.deadlineSeconds()));
+      task.setDesiredOutfits(request.desiredOutfits());
+      tasks.add(task);
+      items.add(new MatchTaskBatchItemResponse(entry.memberId(), entry.scene(), task.getId(), TaskStatus.QUEUED, null, null));
+    }
+    if (tasks.isEmpty()) {
+      throw new BusinessException(400, ALL_FILTERED_MESSAGE);
+    }
+    LocalDateTime estimatedStartAt = taskAdmissionService.admit(tasks.size(), priorityLevel(request.priority()));
+    items = items.stream().map(item -> item.withEstimatedStartAt(estimatedStartAt)).toList();
+
+    matchTaskRepository.saveAll(tasks);
+    matchTaskDispatcher.wakeUp();
+    return new CreateMatchTaskBatchResponse(items);
+  }
+
+  private List<Long> loadOnShelfCandidateIds(List<Long> clothingIds) {
+    List<Long> requestClothingIds = clothingIds.stream().distinct().toList();
+    List<Clothing> onShelf = clothingService.findOnShelfByIds(requestClothingIds);
+    if (onShelf.isEmpty()) {
+      throw new BusinessException(400, "No ON_SHELF clothing found in request");
+    }
+    return onShelf.stream().map(Clothing::getId).toList();
+  }
+
+  private List<Long> excludeDuplicates(List<Long> candidateIds, List<MatchRecord> duplicates) {
     // SQL + code dual-filter to avoid stale cache / concurrent write edge cases.
     Set<Long> duplicateIds = duplicates.stream().map(MatchRecord::getClothingId).collect(Collectors.toSet());
-    List<Long> filtered = onShelf.stream().map(Clothing::getId).filter(id -> !duplicateIds.contains(id)).toList();
+    return candidateIds.stream().filter(id -> !duplicateIds.contains(id)).toList();
+  }
 
-    if (filtered.isEmpty()) {
-      throw new BusinessException(400, "All clothing candidates were filtered by 7-day worn history rule");
+  /**
+   * Cancels a queued or running task. Queued tasks are never claimed afterwards; a running one is
+   * interrupted in its provider call on the node executing it (immediately when that is this node,
+   * otherwise on that node's next heartbeat).
+   */
+  public void cancelTask(String taskId) {
+    getTaskEntity(taskId);
+    if (!matchTaskStateMachine.cancel(taskId)) {
+      throw new BusinessException(400, "Task already finished");
     }
+    matchTaskDispatcher.interrupt(taskId);
+    sseService.publish(taskId, "task_cancelled", Map.of("taskId", taskId, "status", TaskStatus.CANCELLED.name()));
+  }
+
+  private LocalDateTime deadlineAt(Integer deadlineSeconds) {
+    return deadlineSeconds == null ? null : LocalDateTime.now().plusSeconds(deadlineSeconds);
+  }
+
+  private int priorityLevel(TaskPriority priority) {
+    return (priority == null ? TaskPriority.NORMAL : priority).level();
+  }
 
+  private MatchTask newQueuedTask(
+      Long memberId,
+      String scene,
+      String operatorUsername,
+      AiLanguage language,
+      List<Long> candidateIds
+  ) {
     MatchTask task = new MatchTask();
-    AiLanguage language = matchLocaleResolver.resolve(acceptLanguage);
     task.setId(UUID.randomUUID().toString());
-    task.setMemberId(request.memberId());
+    task.setMemberId(memberId);
     task.setOperatorUsername(operatorUsername);
-    task.setScene(request.scene());
+    task.setScene(scene);
     task.setLanguage(language.code());
     task.setStatus(TaskStatus.QUEUED);
-    task.setCandidateClothingIdsJson(toJson(filtered));
-
-    matchTaskRepository.save(task);
-    matchTaskProcessor.processAsync(task.getId());
-    return new CreateMatchTaskResponse(task.getId(), TaskStatus.QUEUED);
+    task.setCandidateClothingIdsJson(toJson(candidateIds));
+    return task;
   }
 
   @Transactional(readOnly = true)
@@ -126,9 +271,58 @@ public class MatchTaskService {
     return toTaskResult(task, outfits);
   }
 
-  @Transactional
+  /**
+   * Starts preview generation for one outfit and returns right away with the outfit marked
+   * {@link PreviewStatus#RUNNING}. The vision call runs on {@code previewExecutor} without a
+   * database connection; reading the inputs and writing the result each use a short transaction.
+   * Progress is published as {@code preview_started}, then {@code preview_completed} or
+   * {@code preview_failed}.
+   */
   public MatchTaskResultResponse generateOutfitPreview(String taskId, int outfitNo, String acceptLanguage) {
-    MatchTask task = getTaskEntity(taskId);
+    return startPreviews(taskId, List.of(outfitNo), acceptLanguage);
+  }
+
+  /**
+   * Starts preview jobs for {@code outfitNos} (every outfit when empty) that run concurrently and
+   * each report over SSE as they finish. Provider calls are bounded by {@code AiConcurrencyLimiter},
+   * and concurrent loads of the shared member photo are coalesced by the reference image cache.
+   */
+  public MatchTaskResultResponse generateOutfitPreviews(String taskId, List<Integer> outfitNos, String acceptLanguage) {
+    return startPreviews(taskId, outfitNos == null ? List.of() : outfitNos, acceptLanguage);
+  }
+
+  private MatchTaskResultResponse startPreviews(String taskId, List<Integer> outfitNos, String acceptLanguage) {
+    AiLanguage language = matchLocaleResolver.resolve(acceptLanguage);
+    PreviewStart start = transactionTemplate.execute(status -> preparePreviews(taskId, outfitNos));
+    List<PreviewJob> jobs = start.jobs();
+    for (int i = 0; i < jobs.size(); i++) {
+      PreviewJob job = jobs.get(i);
+      String jobKey = job.taskId() + "#" + job.outfitNo();
+      if (!previewsInFlight.add(jobKey)) {
+        continue;
+      }
+      try {
+        previewExecutor.execute(() -> {
+          try {
+            runPreview(job, language);
+          } finally {
+            previewsInFlight.remove(jobKey);
+          }
+        });
+      } catch (RuntimeException ex) {
+        previewsInFlight.remove(jobKey);
+        // Already marked RUNNING; nothing would ever move this and the remaining jobs on.
+        List<Integer> unstarted = jobs.subList(i, jobs.size()).stream().map(PreviewJob::outfitNo).toList();
+        transactionTemplate.executeWithoutResult(tx -> markPreviewsFailed(taskId, unstarted));
+        throw ex;
+      }
+    }
+    return start.result();
+  }
+
+  private PreviewStart preparePreviews(String taskId, List<Integer> outfitNos) {
+    MatchTask task = matchTaskRepository.findByIdForUpdate(taskId)
+        .orElseThrow(() -> new BusinessException(404, "Task not found"));
     if (task.getStatus() != TaskStatus.SUCCEEDED) {
       throw new BusinessException(400, "Preview can only be generated after task succeeded");
     }
@@ -138,55 +332,106 @@ public class MatchTaskService {
       throw new BusinessException(400, "No outfit recommendation result found for this task");
     }
 
-    OutfitRecommendationResponse target = outfits.stream()
-        .filter(item -> item.outfitNo() == outfitNo)
-        .findFirst()
-        .orElseThrow(() -> new BusinessException(404, "Outfit not found in task result"));
+    Map<Integer, OutfitRecommendationResponse> byOutfitNo = outfits.stream()
+        .collect(Collectors.toMap(OutfitRecommendationResponse::outfitNo, item -> item, (left, right) -> left, LinkedHashMap::new));
+    List<Integer> requested = outfitNos.isEmpty() ? List.copyOf(byOutfitNo.keySet()) : outfitNos.stream().distinct().toList();
+    if (!byOutfitNo.keySet().containsAll(requested)) {
+      throw new BusinessException(404, "Outfit not found in task result");
+    }
 
     Member member = memberService.getActiveEntity(task.getMemberId());
     Map<Long, Clothing> clothingMap = resolveClothingMap(outfits);
-    Clothing top = clothingMap.get(target.topClothingId());
-    Clothing bottom = clothingMap.get(target.bottomClothingId());
-    if (top == null || bottom == null) {
-      throw new BusinessException(400, "Outfit clothing references are invalid or not active");
+    List<PreviewJob> jobs = new ArrayList<>();
+    for (Integer outfitNo : requested) {
+      OutfitRecommendationResponse target = byOutfitNo.get(outfitNo);
+      if (previewsInFlight.contains(taskId + "#" + outfitNo) || isFreshRunningPreview(target)) {
+        // Already generating (here or on another node); a second click must not start another vision call.
+        continue;
+      }
+      Clothing top = clothingMap.get(target.topClothingId());
+      Clothing bottom = clothingMap.get(target.bottomClothingId());
+      if (top == null || bottom == null) {
+        throw new BusinessException(400, "Outfit clothing references are invalid or not active");
+      }
+      jobs.add(new PreviewJob(taskId, outfitNo, member, List.of(top, bottom), task.getScene()));
     }
 
-    OutfitPreviewResponse generatedPreview;
-    String generatedWarning;
+    Set<Integer> started = jobs.stream().map(PreviewJob::outfitNo).collect(Collectors.toSet());
+    List<OutfitRecommendationResponse> updatedOutfits = outfits.stream()
+        .map(item -> started.contains(item.outfitNo()) ? item.withPreviewStatus(PreviewStatus.RUNNING) : item)
+        .toList();
+    task.setResultJson(toJson(updatedOutfits));
+    MatchTask saved = matchTaskRepository.save(task);
+    return new PreviewStart(jobs, toTaskResult(saved, updatedOutfits));
+  }
+
+  private boolean isFreshRunningPreview(OutfitRecommendationResponse outfit) {
+    return outfit.previewStatus() == PreviewStatus.RUNNING
+        && outfit.previewStartedAt() != null
+        && outfit.previewStartedAt().isAfter(LocalDateTime.now().minusSeconds(previewStaleAfterSeconds));
+  }
+
+  private void markPreviewsFailed(String taskId, List<Integer> outfitNos) {
+    MatchTask task = matchTaskRepository.findByIdForUpdate(taskId)
+        .orElseThrow(() -> new IllegalStateException("Task not found"));
+    List<OutfitRecommendationResponse> updatedOutfits = parseOutfits(task.getResultJson()).stream()
+        .map(item -> outfitNos.contains(item.outfitNo()) && item.previewStatus() == PreviewStatus.RUNNING
+            ? item.withPreviewStatus(PreviewStatus.FAILED)
+            : item)
+        .toList();
+    task.setResultJson(toJson(updatedOutfits));
+    matchTaskRepository.save(task);
+  }
+
+  private void runPreview(PreviewJob job, AiLanguage language) {
+    sseService.publish(job.taskId(), "preview_started", Map.of("taskId", job.taskId(), "outfitNo", job.outfitNo()));
+
+    OutfitPreviewResponse preview;
+    String warning;
     try {
-      AiLanguage language = matchLocaleResolver.resolve(acceptLanguage);
       OutfitPreviewService.OutfitPreviewDecision decision =
-          outfitPreviewService.generate(member, List.of(top, bottom), task.getScene(), language);
-      generatedPreview = decision.preview();
-      generatedWarning = formatOutfitWarning(target.outfitNo(), decision.warning());
+          outfitPreviewService.generate(job.member(), job.clothing(), job.scene(), language);
+      preview = decision.preview();
+      warning = formatOutfitWarning(job.outfitNo(), decision.warning());
     } catch (Throwable ex) {
-      generatedPreview = null;
-      generatedWarning = "Preview skipped for outfit #" + target.outfitNo() + ": " + extractErrorMessage(ex);
+      preview = null;
+      warning = "Preview skipped for outfit #" + job.outfitNo() + ": " + extractErrorMessage(ex);
     }
+    PreviewStatus status = preview == null ? PreviewStatus.FAILED : PreviewStatus.SUCCEEDED;
 
-    final OutfitPreviewResponse preview = generatedPreview;
-    final String warning = generatedWarning;
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("taskId", job.taskId());
+    payload.put("outfitNo", job.outfitNo());
+    try {
+      OutfitPreviewResponse storedPreview = preview;
+      String storedWarning = warning;
+      transactionTemplate.executeWithoutResult(tx -> storePreview(job, storedPreview, storedWarning, status));
+    } catch (RuntimeException ex) {
+      log.warn("Preview of outfit #{} in task {} could not be stored: {}", job.outfitNo(), job.taskId(), ex.getMessage());
+      payload.put("previewStatus", PreviewStatus.FAILED.name());
+      payload.put("warning", "Preview could not be stored: " + extractErrorMessage(ex));
+      sseService.publish(job.taskId(), "preview_failed", payload);
+      return;
+    }
+    payload.put("previewStatus", status.name());
+    payload.put("preview", preview);
+    payload.put("warning", warning);
+    sseService.publish(job.taskId(), status == PreviewStatus.SUCCEEDED ? "preview_completed" : "preview_failed", payload);
+  }
 
-    List<OutfitRecommendationResponse> updatedOutfits = outfits.stream()
-        .map(item -> item.outfitNo() == target.outfitNo()
-            ? new OutfitRecommendationResponse(
-                item.outfitNo(),
-                item.topClothingId(),
-                item.bottomClothingId(),
-                item.score(),
-                item.reason(),
-                preview,
-                warning
-            )
-            : item)
+  /** Writes one outfit's preview under a row lock, keeping concurrent updates of other outfits. */
+  private void storePreview(PreviewJob job, OutfitPreviewResponse preview, String warning, PreviewStatus status) {
+    MatchTask task = matchTaskRepository.findByIdForUpdate(job.taskId())
+        .orElseThrow(() -> new IllegalStateException("Task not found"));
+    List<OutfitRecommendationResponse> updatedOutfits = parseOutfits(task.getResultJson()).stream()
+        .map(item -> item.outfitNo() == job.outfitNo() ? item.withPreview(preview, warning, status) : item)
         .toList();
 
     task.setResultJson(toJson(updatedOutfits));
     OutfitPreviewResponse firstPreview = updatedOutfits.isEmpty() ? null : updatedOutfits.getFirst().preview();
     task.setPreviewJson(firstPreview == null ? null : toJson(firstPreview));
     task.setErrorMessage(mergeWarnings(task.getErrorMessage(), collectOutfitWarnings(updatedOutfits)));
-    MatchTask saved = matchTaskRepository.save(task);
-    return toTaskResult(saved, updatedOutfits);
+    matchTaskRepository.save(task);
   }
 
   @Transactional(readOnly = true)
@@ -277,7 +522,9 @@ public class MatchTaskService {
         outfits,
         legacyResult,
         legacyPreview,
-        task.getErrorMessage()
+        task.getErrorMessage(),
+        // Only a successful run writes the final result; outfits seen earlier are the rule-based stand-ins.
+        task.getStatus() != TaskStatus.SUCCEEDED && !outfits.isEmpty()
     );
   }
 
@@ -430,4 +677,10 @@ public class MatchTaskService {
     }
     return message.length() > 1000 ? message.substring(0, 1000) : message;
   }
+
+  private record PreviewJob(String taskId, int outfitNo, Member member, List<Clothing> clothing, String scene) {
+  }
+
+  private record PreviewStart(List<PreviewJob> jobs, MatchTaskResultResponse result) {
+  }
 }
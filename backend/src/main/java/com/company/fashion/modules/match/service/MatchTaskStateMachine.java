@@ -0,0 +1,108 @@
+package com.company.fashion.modules.match.service;
+
+import com.company.fashion.modules.match.dto.TaskStatus;
+import com.company.fashion.modules.match.repository.MatchTaskContext;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import java.time.LocalDateTime;
+import org.springframework.stereotype.Component;
+
+/**
+ * Status transitions for a running match task.
+ *
+ * <p>The worker reads {@link MatchTaskContext} once; every later move is a single UPDATE guarded by
+ * the expected status and version, so a task re-claimed by another node (or already finished) is
+ * never overwritten.</p>
+ */
+@Component
+public class MatchTaskStateMachine {
+
+  private final MatchTaskRepository matchTaskRepository;
+
+  public MatchTaskStateMachine(MatchTaskRepository matchTaskRepository) {
+    this.matchTaskRepository = matchTaskRepository;
+  }
+
+  public MatchTaskContext load(String taskId) {
+    return matchTaskRepository.findContextById(taskId)
+        .orElseThrow(() -> new IllegalStateException("Task not found: " + taskId));
+  }
+
+  public void succeed(MatchTaskContext context, String strategyName, String resultJson, String warning) {
+    move(context, TaskStatus.SUCCEEDED, strategyName, resultJson, warning);
+  }
+
+  /**
+   * Writes a provisional result while the task keeps running; the final {@link #succeed} replaces it.
+   *
+   * @return {@code false} when the task had already left {@code context}'s state
+   */
+  public boolean storeProvisional(MatchTaskContext context, String strategyName, String resultJson) {
+    return matchTaskRepository.storeProvisionalResult(
+        context.id(),
+        context.version(),
+        strategyName,
+        resultJson,
+        LocalDateTime.now()
+    ) == 1;
+  }
+
+  /**
+   * @return {@code false} when the task had already left {@code context}'s state, in which case
+   *     nothing was written
+   */
+  public boolean fail(MatchTaskContext context, String errorMessage) {
+    if (context == null) {
+      return false;
+    }
+    requireTransition(context.status(), TaskStatus.FAILED);
+    return matchTaskRepository.transition(
+        context.id(),
+        context.status(),
+        context.version(),
+        TaskStatus.FAILED,
+        null,
+        null,
+        errorMessage,
+        LocalDateTime.now()
+    ) == 1;
+  }
+
+  /**
+   * Fails a task whose context could not be loaded. Terminal tasks are left untouched.
+   */
+  public boolean failActive(String taskId, String errorMessage) {
+    return matchTaskRepository.failActive(taskId, errorMessage, LocalDateTime.now()) == 1;
+  }
+
+  /**
+   * @return {@code false} when the task had already finished
+   */
+  public boolean cancel(String taskId) {
+    return matchTaskRepository.cancelActive(taskId, LocalDateTime.now()) == 1;
+  }
+
+  private void move(MatchTaskContext context, TaskStatus target, String strategyName, String resultJson, String message) {
+    requireTransition(context.status(), target);
+    int updated = matchTaskRepository.transition(
+        context.id(),
+        context.status(),
+        context.version(),
+        target,
+        strategyName,
+        resultJson,
+        message,
+        LocalDateTime.now()
+    );
+    if (updated != 1) {
+      throw new IllegalStateException(
+          "Task " + context.id() + " changed concurrently, cannot move " + context.status() + " -> " + target
+      );
+    }
+  }
+
+  static void requireTransition(TaskStatus from, TaskStatus to) {
+    if (from == null || !from.canTransitionTo(to)) {
+      throw new IllegalStateException("Illegal task status transition " + from + " -> " + to);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.company.fashion.modules.match.service;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.clothing.event.ClothingChangedEvent;
+import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.match.ai.PromptBuilder;
+import com.company.fashion.modules.match.ai.ReferenceImageCache;
+import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.entity.OutfitPreviewCacheEntry;
+import com.company.fashion.modules.match.repository.OutfitPreviewCacheRepository;
+import com.company.fashion.modules.member.entity.Member;
+import com.company.fashion.modules.member.event.MemberChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Generated outfit previews, persisted in {@code outfit_preview_cache} so they survive restarts.
+ *
+ * <p>The key is a SHA-256 over the content hashes of the member photo and clothing images (from
+ * {@link ReferenceImageCache}, so a re-uploaded image behind the same URL is a miss), scene,
+ * language and the rendered preview prompt, which carries the body profile and garment attributes
+ * the model sees. Entries of a member or garment are deleted once its photo or image URL changes,
+ * and expire after {@code app.match.preview-cache.ttl-days} (0 keeps them forever).</p>
+ *
+ * <p>Metrics: {@code match.preview.cache} tagged {@code result=hit|miss|skipped} (skipped: an
+ * image could not be hashed, so the preview ran uncached).</p>
+ */
+@Component
+public class OutfitPreviewCache {
+
+  private static final Logger log = LoggerFactory.getLogger(OutfitPreviewCache.class);
+  private static final String ERROR_PREFIX = "Preview cache";
+
+  private final OutfitPreviewCacheRepository repository;
+  private final ReferenceImageCache referenceImageCache;
+  private final PromptBuilder promptBuilder;
+  private final ObjectMapper objectMapper;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${app.match.preview-cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.match.preview-cache.ttl-days:30}")
+  private long ttlDays;
+
+  @Value("${app.match.preview-cache.image-timeout-ms:10000}")
+  private int imageTimeoutMs;
+
+  public OutfitPreviewCache(
+      OutfitPreviewCacheRepository repository,
+      ReferenceImageCache referenceImageCache,
+      PromptBuilder promptBuilder,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry
+  ) {
+    this.repository = repository;
+    this.referenceImageCache = referenceImageCache;
+    this.promptBuilder = promptBuilder;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /** The cache key of a preview, or null when caching is disabled or an image cannot be hashed. */
+  public String key(Member member, List<Clothing> selected, String scene, AiLanguage language) {
+    if (!enabled) {
+      return null;
+    }
+    List<ReferenceImageCache.ImageReference> references = new ArrayList<>(selected.size() + 1);
+    references.add(new ReferenceImageCache.ImageReference("member_photo", member.getPhotoUrl()));
+    for (Clothing clothing : selected) {
+      references.add(new ReferenceImageCache.ImageReference("clothing id=" + clothing.getId(), clothing.getImageUrl()));
+    }
+    try {
+      StringJoiner material = new StringJoiner("\n");
+      referenceImageCache.contentHashes(references, imageTimeoutMs, imageTimeoutMs, ERROR_PREFIX).forEach(material::add);
+      material.add(scene == null ? "" : scene);
+      material.add(language.code());
+      material.add(sha256(promptBuilder.buildPreviewPrompt(member, selected, scene, language)));
+      return sha256(material.toString());
+    } catch (RuntimeException ex) {
+      count("skipped");
+      log.debug("Preview cache skipped for member {}: {}", member.getId(), ex.getMessage());
+      return null;
+    }
+  }
+
+  public Optional<OutfitPreviewResponse> get(String key) {
+    if (key == null) {
+      return Optional.empty();
+    }
+    Optional<OutfitPreviewResponse> preview = repository.findById(key)
+        .filter(entry -> ttlDays <= 0 || entry.getCreatedAt().isAfter(LocalDateTime.now().minusDays(ttlDays)))
+        .map(this::read);
+    count(preview.isPresent() ? "hit" : "miss");
+    return preview;
+  }
+
+  public void put(String key, Member member, List<Clothing> selected, OutfitPreviewResponse preview) {
+    if (key == null) {
+      return;
+    }
+    StringJoiner clothingIds = new StringJoiner(",", ",", ",");
+    selected.forEach(clothing -> clothingIds.add(String.valueOf(clothing.getId())));
+    OutfitPreviewCacheEntry entry = new OutfitPreviewCacheEntry();
+    entry.setCacheKey(key);
+    entry.setMemberId(member.getId());
+    entry.setClothingIds(clothingIds.toString());
+    entry.setCreatedAt(LocalDateTime.now());
+    try {
+      entry.setPreviewJson(objectMapper.writeValueAsString(preview));
+      repository.save(entry);
+      if (ttlDays > 0) {
+        repository.deleteCreatedBefore(LocalDateTime.now().minusDays(ttlDays));
+      }
+    } catch (JsonProcessingException | RuntimeException ex) {
+      // A concurrent job may have stored the same key; the preview itself is unaffected.
+      log.warn("Unable to cache outfit preview for member {}: {}", member.getId(), ex.getMessage());
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void onMemberChanged(MemberChangedEvent event) {
+    if (event.photoChanged()) {
+      repository.deleteByMemberId(event.memberId());
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void onClothingChanged(ClothingChangedEvent event) {
+    if (event.imageChanged()) {
+      repository.deleteByClothingIdToken("," + event.clothingId() + ",");
+    }
+  }
+
+  private OutfitPreviewResponse read(OutfitPreviewCacheEntry entry) {
+    try {
+      return objectMapper.readValue(entry.getPreviewJson(), OutfitPreviewResponse.class);
+    } catch (JsonProcessingException ex) {
+      log.warn("Discarding unreadable cached preview {}: {}", entry.getCacheKey(), ex.getMessage());
+      return null;
+    }
+  }
+
+  private void count(String result) {
+    meterRegistry.counter("match.preview.cache", "result", result).increment();
+  }
+
+  private static String sha256(String value) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 unavailable", ex);
+    }
+  }
+}
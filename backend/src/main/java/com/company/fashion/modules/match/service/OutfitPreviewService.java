@@ -6,6 +6,7 @@ import com.company.fashion.modules.match.ai.AiClientRouter;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
 import com.company.fashion.modules.member.entity.Member;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,9 +14,11 @@ public class OutfitPreviewService {
 
   public static final String PREVIEW_DEGRADED_WARNING = "Preview skipped: missing member photo or clothing image";
   private final AiClientRouter aiClientRouter;
+  private final OutfitPreviewCache outfitPreviewCache;
 
-  public OutfitPreviewService(AiClientRouter aiClientRouter) {
+  public OutfitPreviewService(AiClientRouter aiClientRouter, OutfitPreviewCache outfitPreviewCache) {
     this.aiClientRouter = aiClientRouter;
+    this.outfitPreviewCache = outfitPreviewCache;
   }
 
   public OutfitPreviewDecision generate(Member member, List<Clothing> selected, String scene, AiLanguage language) {
@@ -23,12 +26,19 @@ public class OutfitPreviewService {
       return new OutfitPreviewDecision(null, PREVIEW_DEGRADED_WARNING);
     }
 
+    String cacheKey = outfitPreviewCache.key(member, selected, scene, language);
+    Optional<OutfitPreviewResponse> cached = outfitPreviewCache.get(cacheKey);
+    if (cached.isPresent()) {
+      return new OutfitPreviewDecision(cached.get(), null);
+    }
+
     OutfitPreviewResponse aiPreview = aiClientRouter.generateOutfitPreview(member, selected, scene, language);
     if (aiPreview == null || aiPreview.title() == null || aiPreview.title().isBlank()
         || aiPreview.outfitDescription() == null || aiPreview.outfitDescription().isBlank()
         || aiPreview.imagePrompt() == null || aiPreview.imagePrompt().isBlank()) {
       throw new IllegalStateException("AI preview generation unavailable");
     }
+    outfitPreviewCache.put(cacheKey, member, selected, aiPreview);
     return new OutfitPreviewDecision(aiPreview, null);
   }
 
@@ -0,0 +1,114 @@
+package com.company.fashion.modules.match.service;
+
+import com.company.fashion.common.exception.ServiceOverloadedException;
+import com.company.fashion.modules.match.dto.TaskStatus;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Admission control for task creation.
+ *
+ * <p>Estimates how long new tasks would wait from the queue depth ahead of them (running tasks
+ * plus queued tasks of at least their priority) and a moving average of recent task service
+ * time. Creation is rejected with 503 and a {@code Retry-After} before anything is persisted when
+ * the queue is full or the estimated wait is longer than {@code app.match.admission.max-wait-seconds}.</p>
+ */
+@Service
+public class TaskAdmissionService {
+
+  private static final double SERVICE_TIME_SMOOTHING = 0.2;
+
+  private final MatchTaskRepository matchTaskRepository;
+  private final AtomicLong averageServiceMillis;
+  private final Counter rejected;
+
+  @Value("${app.match.admission.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.match.admission.workers:${app.match.queue.max-in-flight:8}}")
+  private int workers;
+
+  @Value("${app.match.admission.max-queue-depth:100}")
+  private int maxQueueDepth;
+
+  @Value("${app.match.admission.max-wait-seconds:120}")
+  private long maxWaitSeconds;
+
+  public TaskAdmissionService(
+      MatchTaskRepository matchTaskRepository,
+      MeterRegistry meterRegistry,
+      @Value("${app.match.admission.initial-service-time-ms:8000}") long initialServiceMillis
+  ) {
+    this.matchTaskRepository = matchTaskRepository;
+    this.averageServiceMillis = new AtomicLong(Math.max(1, initialServiceMillis));
+    this.rejected = Counter.builder("match.admission.rejected")
+        .description("Task creations rejected by admission control")
+        .register(meterRegistry);
+    Gauge.builder("match.admission.service.time", averageServiceMillis, AtomicLong::get)
+        .description("Moving average of match task service time")
+        .baseUnit("milliseconds")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Admits {@code taskCount} new tasks at {@code priority} or throws {@link ServiceOverloadedException}.
+   *
+   * @return estimated start time of the last of the new tasks
+   */
+  public LocalDateTime admit(int taskCount, int priority) {
+    LocalDateTime now = LocalDateTime.now();
+    if (!enabled) {
+      return now;
+    }
+
+    long queued = matchTaskRepository.countByStatus(TaskStatus.QUEUED);
+    long running = matchTaskRepository.countByStatus(TaskStatus.RUNNING);
+    long queuedAhead = priority > 0
+        ? matchTaskRepository.countByStatusAndPriorityGreaterThanEqual(TaskStatus.QUEUED, priority)
+        : queued;
+    long waitMillis = estimateWaitMillis(running + queuedAhead + taskCount - 1);
+
+    long excessTasks = queued + taskCount - maxQueueDepth;
+    long excessWaitMillis = waitMillis - maxWaitSeconds * 1000;
+    if (excessTasks > 0 || excessWaitMillis > 0) {
+      rejected.increment();
+      long drainMillis = Math.max(excessWaitMillis, estimateWaitMillis(Math.max(0, excessTasks) + workerSlots() - 1));
+      throw new ServiceOverloadedException(
+          "Match task queue is full, estimated wait " + (waitMillis / 1000) + "s",
+          (drainMillis + 999) / 1000
+      );
+    }
+    return now.plus(Duration.ofMillis(waitMillis));
+  }
+
+  /**
+   * Feeds the service-time average with the wall time of a finished task that ran its own
+   * recommendation call.
+   */
+  public void recordServiceTime(Duration elapsed) {
+    long sample = Math.max(1, elapsed.toMillis());
+    averageServiceMillis.updateAndGet(
+        current -> Math.round(current + SERVICE_TIME_SMOOTHING * (sample - current))
+    );
+  }
+
+  long averageServiceMillis() {
+    return averageServiceMillis.get();
+  }
+
+  // Tasks ahead are drained workerSlots() at a time, one service time per round.
+  private long estimateWaitMillis(long tasksAhead) {
+    return (tasksAhead / workerSlots()) * averageServiceMillis.get();
+  }
+
+  private int workerSlots() {
+    return Math.max(1, workers);
+  }
+}
@@ -0,0 +1,136 @@
+package com.company.fashion.modules.match.service;
+
+import com.company.fashion.modules.match.ai.AiClientRouter;
+import com.company.fashion.modules.match.ai.AiProgressListener;
+import com.company.fashion.modules.match.ai.PromptBuilder.SuggestionPrompt;
+import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
+import com.company.fashion.modules.match.dto.TaskStatus;
+import com.company.fashion.modules.match.sse.SseService;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+/**
+ * Publishes one {@code task_progress} SSE event per pipeline stage, one {@code outfit_ready} per
+ * streamed outfit and, in progressive mode, one {@code task_provisional} once the provisional
+ * result has been stored on the task row. Keeps the stage timeline (plus the prompt token estimate
+ * reported with {@code PROMPT_BUILT}) for the completion log.
+ */
+class TaskProgressReporter implements AiProgressListener {
+
+  private final String taskId;
+  private final SseService sseService;
+  private final BiPredicate<String, List<OutfitRecommendationResponse>> provisionalStore;
+  private final long startNanos = System.nanoTime();
+  private final Map<TaskStage, Long> elapsedByStage = new LinkedHashMap<>();
+  private volatile long firstOutfitElapsedMs = -1;
+  private volatile long provisionalElapsedMs = -1;
+  private volatile String promptTokens;
+
+  TaskProgressReporter(String taskId, SseService sseService) {
+    this(taskId, sseService, (strategyName, outfits) -> false);
+  }
+
+  /**
+   * @param provisionalStore persists a provisional result; {@code false} means the task has moved
+   *     on, so nothing is published
+   */
+  TaskProgressReporter(
+      String taskId,
+      SseService sseService,
+      BiPredicate<String, List<OutfitRecommendationResponse>> provisionalStore
+  ) {
+    this.taskId = taskId;
+    this.sseService = sseService;
+    this.provisionalStore = provisionalStore;
+  }
+
+  @Override
+  public void onStage(TaskStage stage, Map<String, Object> details) {
+    long elapsedMs = elapsedMs();
+    synchronized (elapsedByStage) {
+      elapsedByStage.put(stage, elapsedMs);
+    }
+
+    if (details != null && details.containsKey(SuggestionPrompt.PROMPT_TOKENS)) {
+      promptTokens = details.get(SuggestionPrompt.PROMPT_TOKENS)
+          + "/" + details.get(SuggestionPrompt.PROMPT_TOKENS_BEFORE_TRIM)
+          + " (trimmed " + details.get(SuggestionPrompt.TRIMMED_CANDIDATES) + " candidates)";
+    }
+
+    Map<String, Object> payload = new HashMap<>();
+    if (details != null) {
+      payload.putAll(details);
+    }
+    payload.put("taskId", taskId);
+    payload.put("stage", stage.name());
+    payload.put("progress", stage.progress());
+    payload.put("timestamp", Instant.now().toString());
+    payload.put("elapsedMs", elapsedMs);
+    sseService.publish(taskId, "task_progress", payload);
+  }
+
+  @Override
+  public void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+    long elapsedMs = elapsedMs();
+    if (sequence == 1) {
+      firstOutfitElapsedMs = elapsedMs;
+    }
+
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("taskId", taskId);
+    payload.put("sequence", sequence);
+    payload.put("topClothingId", outfit.topClothingId());
+    payload.put("bottomClothingId", outfit.bottomClothingId());
+    payload.put("score", outfit.score());
+    payload.put("reason", outfit.reason());
+    payload.put("elapsedMs", elapsedMs);
+    sseService.publish(taskId, "outfit_ready", payload);
+  }
+
+  @Override
+  public void onProvisionalResult(String strategyName, List<OutfitRecommendationResponse> outfits) {
+    // Stored before publishing, so a client that reloads after the event reads the same outfits.
+    if (!provisionalStore.test(strategyName, outfits)) {
+      return;
+    }
+    long elapsedMs = elapsedMs();
+    provisionalElapsedMs = elapsedMs;
+
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("taskId", taskId);
+    payload.put("status", TaskStatus.RUNNING.name());
+    payload.put("strategy", strategyName);
+    payload.put("outfits", outfits);
+    payload.put("provisional", true);
+    payload.put("elapsedMs", elapsedMs);
+    sseService.publish(taskId, "task_provisional", payload);
+  }
+
+  String timeline() {
+    StringJoiner joiner = new StringJoiner(", ");
+    synchronized (elapsedByStage) {
+      elapsedByStage.forEach((stage, elapsedMs) -> joiner.add(stage.name() + "=" + elapsedMs + "ms"));
+    }
+    if (firstOutfitElapsedMs >= 0) {
+      joiner.add("FIRST_OUTFIT=" + firstOutfitElapsedMs + "ms");
+    }
+    if (provisionalElapsedMs >= 0) {
+      joiner.add("PROVISIONAL=" + provisionalElapsedMs + "ms");
+    }
+    if (promptTokens != null) {
+      joiner.add("PROMPT_TOKENS=" + promptTokens);
+    }
+    return joiner.toString();
+  }
+
+  private long elapsedMs() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
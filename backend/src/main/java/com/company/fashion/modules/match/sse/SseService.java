@@ -30,7 +30,7 @@ public class SseService {
     }
 
     emitters.removeIf(emitter -> !send(emitter, taskId, eventName, payload));
-    if ("task_completed".equals(eventName) || "task_failed".equals(eventName)) {
+    if ("task_completed".equals(eventName) || "task_failed".equals(eventName) || "task_cancelled".equals(eventName)) {
       emitters.forEach(SseEmitter::complete);
       emittersByTaskId.remove(taskId);
     }
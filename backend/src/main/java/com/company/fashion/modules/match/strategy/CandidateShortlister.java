@@ -0,0 +1,79 @@
+package com.company.fashion.modules.match.strategy;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.match.ai.CandidateRelevance;
+import com.company.fashion.modules.member.entity.Member;
+import com.company.fashion.modules.member.model.BodyMeasurements;
+import com.company.fashion.modules.member.service.BodyProfileService;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retrieval stage in front of the LLM: scores every candidate locally and keeps the
+ * {@code app.match.shortlist.top-k} best of each clothing type, so the prompt (and the model's
+ * latency) stays the same size however many candidates a task names.
+ *
+ * <p>The score ({@link CandidateRelevance}) is deterministic, so identical inputs always shortlist
+ * the same items: shared style tags with the member, a tag matching the scene, and size fit of the
+ * garment's size label and measurements against the member's {@link BodyMeasurements}. Ties keep
+ * the lower id.</p>
+ */
+@Component
+public class CandidateShortlister {
+
+  private static final Logger log = LoggerFactory.getLogger(CandidateShortlister.class);
+
+  private final BodyProfileService bodyProfileService;
+
+  @Value("${app.match.shortlist.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.match.shortlist.top-k:15}")
+  private int topK;
+
+  public CandidateShortlister(BodyProfileService bodyProfileService) {
+    this.bodyProfileService = bodyProfileService;
+  }
+
+  /** {@code candidates} limited to the best {@code top-k} per type, in their original order. */
+  public List<Clothing> shortlist(Member member, List<Clothing> candidates, String scene) {
+    if (!enabled || topK <= 0) {
+      return candidates;
+    }
+    // Items without a type form their own group.
+    Map<String, List<Clothing>> byType = candidates.stream()
+        .collect(Collectors.groupingBy(item -> String.valueOf(item.getClothingType())));
+    if (byType.values().stream().allMatch(group -> group.size() <= topK)) {
+      return candidates;
+    }
+
+    Map<Long, Integer> scores = scores(member, candidates, scene);
+    Comparator<Clothing> bestFirst = CandidateRelevance.mostRelevantFirst(scores);
+    Set<Clothing> kept = new HashSet<>();
+    byType.values().forEach(group -> group.stream().sorted(bestFirst).limit(topK).forEach(kept::add));
+    List<Clothing> shortlisted = candidates.stream().filter(kept::contains).toList();
+    log.debug("Shortlisted {} of {} candidates for member {}", shortlisted.size(), candidates.size(), member.getId());
+    return shortlisted;
+  }
+
+  /** Local relevance per candidate id; higher is better (see {@link CandidateRelevance}). */
+  Map<Long, Integer> scores(Member member, List<Clothing> candidates, String scene) {
+    return CandidateRelevance.scores(candidates, member.getStyleTags(), scene, measurements(member));
+  }
+
+  private BodyMeasurements measurements(Member member) {
+    try {
+      return bodyProfileService.normalizeForReadToModel(member.getBodyData()).getMeasurements();
+    } catch (RuntimeException ex) {
+      return null;
+    }
+  }
+}
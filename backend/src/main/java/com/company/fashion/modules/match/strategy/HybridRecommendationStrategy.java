@@ -39,7 +39,9 @@ public class HybridRecommendationStrategy implements RecommendationStrategy {
         request.candidates(),
         request.history(),
         request.scene(),
-        request.language()
+        request.language(),
+        request.desiredOutfits(),
+        request.progressListener()
     );
 
     Map<Long, Clothing> candidateMap = request.candidates().stream()
@@ -48,7 +50,7 @@ public class HybridRecommendationStrategy implements RecommendationStrategy {
         .sorted(Comparator.comparingInt(AiClientRouter.AiOutfitSuggestion::score).reversed())
         .toList();
 
-    List<OutfitRecommendationResponse> outfits = selectValidOutfits(candidateMap, rankedSuggestions);
+    List<OutfitRecommendationResponse> outfits = selectValidOutfits(candidateMap, rankedSuggestions, request.desiredOutfits());
     if (outfits.isEmpty()) {
       throw new IllegalStateException("AI outfit recommendation unavailable or invalid");
     }
@@ -57,11 +59,15 @@ public class HybridRecommendationStrategy implements RecommendationStrategy {
 
   private List<OutfitRecommendationResponse> selectValidOutfits(
       Map<Long, Clothing> candidateMap,
-      List<AiClientRouter.AiOutfitSuggestion> rankedSuggestions
+      List<AiClientRouter.AiOutfitSuggestion> rankedSuggestions,
+      int limit
   ) {
     List<OutfitRecommendationResponse> outfits = new java.util.ArrayList<>();
 
     for (AiClientRouter.AiOutfitSuggestion suggestion : rankedSuggestions) {
+      if (outfits.size() >= limit) {
+        break;
+      }
       Pair pair = resolvePair(candidateMap, suggestion);
       if (pair == null) {
         continue;
@@ -77,6 +83,8 @@ public class HybridRecommendationStrategy implements RecommendationStrategy {
           Math.max(0, Math.min(100, suggestion.score())),
           reason,
           null,
+          null,
+          null,
           null
       ));
     }
@@ -0,0 +1,133 @@
+package com.company.fashion.modules.match.strategy;
+
+import com.company.fashion.modules.clothing.event.ClothingChangedEvent;
+import com.company.fashion.modules.member.event.MemberChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Recommendation results keyed by {@link RecommendationFingerprint}, kept for
+ * {@code app.match.recommendation-cache.ttl-seconds}.
+ *
+ * <p>The fingerprint covers member version and candidate ids but not candidate attributes, so
+ * entries are dropped when a member or any clothing item they were built from changes.</p>
+ */
+@Component
+public class RecommendationCache {
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  // Bumped on every invalidation so a result computed before it is not stored after it.
+  private final AtomicLong generation = new AtomicLong();
+  private final Counter hits;
+  private final Counter misses;
+
+  @Value("${app.match.recommendation-cache.ttl-seconds:600}")
+  private long ttlSeconds;
+
+  @Value("${app.match.recommendation-cache.max-entries:1000}")
+  private int maxEntries;
+
+  public RecommendationCache(MeterRegistry meterRegistry) {
+    this.hits = Counter.builder("match.recommendation.cache")
+        .tag("result", "hit")
+        .description("Recommendation cache lookups")
+        .register(meterRegistry);
+    this.misses = Counter.builder("match.recommendation.cache")
+        .tag("result", "miss")
+        .description("Recommendation cache lookups")
+        .register(meterRegistry);
+    Gauge.builder("match.recommendation.cache.size", entries, Map::size)
+        .description("Cached recommendation results")
+        .register(meterRegistry);
+  }
+
+  public Optional<RecommendationService.RecommendationOutput> get(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.isExpired(Instant.now())) {
+      if (entry != null) {
+        entries.remove(key, entry);
+      }
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(entry.output());
+  }
+
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Stores a result unless caching is disabled or an invalidation happened after
+   * {@code generationAtStart} was read.
+   */
+  public void put(
+      String key,
+      Long memberId,
+      Collection<Long> clothingIds,
+      RecommendationService.RecommendationOutput output,
+      long generationAtStart
+  ) {
+    if (ttlSeconds <= 0 || maxEntries <= 0 || generation.get() != generationAtStart) {
+      return;
+    }
+    if (entries.size() >= maxEntries) {
+      evict();
+    }
+    Set<Long> ids = clothingIds.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+    entries.put(key, new Entry(output, memberId, ids, Instant.now().plusSeconds(ttlSeconds)));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onMemberChanged(MemberChangedEvent event) {
+    generation.incrementAndGet();
+    entries.values().removeIf(entry -> Objects.equals(entry.memberId(), event.memberId()));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onClothingChanged(ClothingChangedEvent event) {
+    generation.incrementAndGet();
+    entries.values().removeIf(entry -> entry.clothingIds().contains(event.clothingId()));
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private void evict() {
+    Instant now = Instant.now();
+    entries.values().removeIf(entry -> entry.isExpired(now));
+    while (entries.size() >= maxEntries) {
+      entries.entrySet().stream()
+          .min(Comparator.comparing(item -> item.getValue().expiresAt()))
+          .ifPresent(oldest -> entries.remove(oldest.getKey(), oldest.getValue()));
+    }
+  }
+
+  private record Entry(
+      RecommendationService.RecommendationOutput output,
+      Long memberId,
+      Set<Long> clothingIds,
+      Instant expiresAt
+  ) {
+
+    boolean isExpired(Instant now) {
+      return !expiresAt.isAfter(now);
+    }
+  }
+}
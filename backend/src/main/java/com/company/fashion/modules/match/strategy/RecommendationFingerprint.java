@@ -0,0 +1,66 @@
+package com.company.fashion.modules.match.strategy;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.match.entity.MatchRecord;
+import com.company.fashion.modules.member.entity.Member;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Canonical hash of everything that determines a recommendation: member profile version, sorted
+ * candidate ids, scene, language, requested outfit count and the history snapshot. Two tasks with
+ * the same fingerprint send equivalent prompts.
+ */
+public final class RecommendationFingerprint {
+
+  private RecommendationFingerprint() {
+  }
+
+  public static String of(
+      Member member,
+      List<Clothing> candidates,
+      List<MatchRecord> history,
+      String scene,
+      AiLanguage language,
+      int desiredOutfits
+  ) {
+    String candidateIds = candidates.stream()
+        .map(Clothing::getId)
+        .filter(Objects::nonNull)
+        .sorted()
+        .map(String::valueOf)
+        .collect(Collectors.joining(","));
+    // The prompt only sees (clothingId, score) per record; repeated runs add identical DRAFT rows,
+    // so duplicates are collapsed to keep re-runs on the same key.
+    String historySnapshot = history == null ? "" : history.stream()
+        .map(record -> record.getClothingId() + ":" + record.getPerformanceScore())
+        .distinct()
+        .sorted()
+        .collect(Collectors.joining(","));
+
+    String canonical = String.join("|",
+        "member=" + member.getId() + "@" + member.getUpdatedAt(),
+        "candidates=" + candidateIds,
+        "scene=" + (scene == null ? "" : scene.trim()),
+        "language=" + (language == null ? AiLanguage.EN : language).code(),
+        "outfits=" + desiredOutfits,
+        "history=" + historySnapshot
+    );
+    return sha256(canonical);
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 not available", ex);
+    }
+  }
+}
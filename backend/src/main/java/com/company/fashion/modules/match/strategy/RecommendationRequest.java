@@ -2,6 +2,7 @@ package com.company.fashion.modules.match.strategy;
 
 import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.match.ai.AiProgressListener;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.member.entity.Member;
 import java.util.List;
@@ -11,6 +12,8 @@ public record RecommendationRequest(
     List<Clothing> candidates,
     List<MatchRecord> history,
     String scene,
-    AiLanguage language
+    AiLanguage language,
+    int desiredOutfits,
+    AiProgressListener progressListener
 ) {
 }
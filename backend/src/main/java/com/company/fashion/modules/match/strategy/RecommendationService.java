@@ -2,20 +2,48 @@ package com.company.fashion.modules.match.strategy;
 
 import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.match.ai.AiProgressListener;
+import com.company.fashion.modules.match.ai.PromptBuilder;
 import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
 import com.company.fashion.modules.match.entity.MatchRecord;
 import com.company.fashion.modules.member.entity.Member;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RecommendationService {
 
+  private static final Logger log = LoggerFactory.getLogger(RecommendationService.class);
   private static final String AI_ONLY_STRATEGY = "AI_ONLY";
+  private static final String RULE_BASED_STRATEGY = "RULE_BASED";
   private final List<RecommendationStrategy> strategies;
+  private final RecommendationSingleFlight singleFlight;
+  private final RecommendationCache recommendationCache;
+  private final CandidateShortlister candidateShortlister;
 
-  public RecommendationService(List<RecommendationStrategy> strategies) {
+  /**
+   * Progressive mode: before the AI call, hand the listener rule-based outfits (computed locally in
+   * milliseconds) that the AI result then replaces.
+   */
+  @Value("${app.match.progressive.enabled:false}")
+  private boolean progressiveEnabled;
+
+  public RecommendationService(
+      List<RecommendationStrategy> strategies,
+      RecommendationSingleFlight singleFlight,
+      RecommendationCache recommendationCache,
+      CandidateShortlister candidateShortlister
+  ) {
     this.strategies = strategies;
+    this.singleFlight = singleFlight;
+    this.recommendationCache = recommendationCache;
+    this.candidateShortlister = candidateShortlister;
   }
 
   public RecommendationOutput recommend(
@@ -23,7 +51,10 @@ public class RecommendationService {
       List<Clothing> candidates,
       List<MatchRecord> history,
       String scene,
-      AiLanguage language
+      AiLanguage language,
+      Integer desiredOutfits,
+      boolean bypassCache,
+      AiProgressListener progressListener
   ) {
     RecommendationStrategy strategy = strategies.stream()
         .filter(item -> AI_ONLY_STRATEGY.equals(item.strategyName()))
@@ -31,11 +62,90 @@ public class RecommendationService {
         .findFirst()
         .orElseThrow(() -> new IllegalStateException("No AI recommendation strategy configured"));
 
-    RecommendationRequest request = new RecommendationRequest(member, candidates, history, scene, language);
-    RecommendationStrategy.RecommendationDecision decision = strategy.recommend(request);
-    return new RecommendationOutput(strategy.strategyName(), decision.outfits(), decision.warning());
+    AiProgressListener listener = progressListener == null ? AiProgressListener.NOOP : progressListener;
+    int outfitCount = desiredOutfits == null
+        ? PromptBuilder.MAX_OUTFITS
+        : Math.max(1, Math.min(PromptBuilder.MAX_OUTFITS, desiredOutfits));
+    // Only the locally best-scored candidates reach the LLM. The fingerprint and cache invalidation
+    // still cover all candidates, since a change to any of them can change the shortlist.
+    List<Clothing> shortlist = candidateShortlister.shortlist(member, candidates, scene);
+    RecommendationRequest request =
+        new RecommendationRequest(member, shortlist, history, scene, language, outfitCount, listener);
+    String fingerprint = RecommendationFingerprint.of(member, candidates, history, scene, language, outfitCount);
+
+    if (!bypassCache) {
+      Optional<RecommendationOutput> cached = recommendationCache.get(fingerprint);
+      if (cached.isPresent()) {
+        listener.onStage(TaskStage.PARSED, Map.of("outfitCount", cached.get().outfits().size(), "cached", true));
+        return cached.get().from(Source.CACHED);
+      }
+    }
+
+    if (progressiveEnabled) {
+      publishProvisional(request, listener);
+    }
+
+    // Identical concurrent tasks share one LLM call; each still keeps its own task row and SSE stream.
+    long cacheGeneration = recommendationCache.generation();
+    RecommendationSingleFlight.Result result = singleFlight.execute(fingerprint, () -> {
+      RecommendationStrategy.RecommendationDecision decision = strategy.recommend(request);
+      RecommendationOutput output = new RecommendationOutput(strategy.strategyName(), decision.outfits(), decision.warning());
+      recommendationCache.put(
+          fingerprint,
+          member.getId(),
+          candidates.stream().map(Clothing::getId).toList(),
+          output,
+          cacheGeneration
+      );
+      return output;
+    });
+    if (result.coalesced()) {
+      listener.onStage(TaskStage.PARSED, Map.of("outfitCount", result.output().outfits().size(), "coalesced", true));
+      return result.output().from(Source.COALESCED);
+    }
+    return result.output();
+  }
+
+  private void publishProvisional(RecommendationRequest request, AiProgressListener listener) {
+    Optional<RecommendationStrategy> rule = strategies.stream()
+        .filter(item -> RULE_BASED_STRATEGY.equals(item.strategyName()))
+        .findFirst();
+    if (rule.isEmpty()) {
+      return;
+    }
+    try {
+      List<OutfitRecommendationResponse> outfits = rule.get().recommend(request).outfits().stream()
+          .limit(request.desiredOutfits())
+          .toList();
+      if (!outfits.isEmpty()) {
+        listener.onProvisionalResult(RULE_BASED_STRATEGY, outfits);
+      }
+    } catch (RuntimeException ex) {
+      // The provisional phase is best effort; the AI result is what the task is judged by.
+      log.warn("Provisional rule-based recommendation failed for member {}: {}", request.member().getId(), ex.getMessage());
+    }
+  }
+
+  /** Where a task's recommendation came from: its own strategy call, the cache, or a call shared with another task. */
+  public enum Source {
+    COMPUTED,
+    CACHED,
+    COALESCED
   }
 
-  public record RecommendationOutput(String strategyName, List<OutfitRecommendationResponse> outfits, String warning) {
+  public record RecommendationOutput(
+      String strategyName,
+      List<OutfitRecommendationResponse> outfits,
+      String warning,
+      Source source
+  ) {
+
+    public RecommendationOutput(String strategyName, List<OutfitRecommendationResponse> outfits, String warning) {
+      this(strategyName, outfits, warning, Source.COMPUTED);
+    }
+
+    RecommendationOutput from(Source source) {
+      return new RecommendationOutput(strategyName, outfits, warning, source);
+    }
   }
 }
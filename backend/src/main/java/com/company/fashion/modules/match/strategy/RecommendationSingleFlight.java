@@ -0,0 +1,103 @@
+package com.company.fashion.modules.match.strategy;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces concurrent recommendation calls with the same {@link RecommendationFingerprint}.
+ *
+ * <p>The first caller runs the LLM call; callers arriving while it is in flight wait for and share
+ * its result (or failure). Nothing is retained once the call finishes. If the leader is interrupted
+ * (task cancelled or past its deadline), waiters retry rather than inherit that failure.</p>
+ */
+@Component
+public class RecommendationSingleFlight {
+
+  private static final Logger log = LoggerFactory.getLogger(RecommendationSingleFlight.class);
+
+  private final Map<String, CompletableFuture<RecommendationService.RecommendationOutput>> inFlight =
+      new ConcurrentHashMap<>();
+
+  public Result execute(String key, Supplier<RecommendationService.RecommendationOutput> call) {
+    while (true) {
+      CompletableFuture<RecommendationService.RecommendationOutput> created = new CompletableFuture<>();
+      CompletableFuture<RecommendationService.RecommendationOutput> existing = inFlight.putIfAbsent(key, created);
+      if (existing != null) {
+        log.debug("Coalescing recommendation {} onto in-flight call", key);
+        RecommendationService.RecommendationOutput shared = await(existing);
+        if (shared != null) {
+          return new Result(shared, true);
+        }
+        // The leader was cancelled; its waiters start over instead of inheriting that outcome.
+        continue;
+      }
+
+      try {
+        RecommendationService.RecommendationOutput output = call.get();
+        created.complete(output);
+        return new Result(output, false);
+      } catch (Throwable ex) {
+        created.completeExceptionally(wasInterrupted(ex) ? new LeaderAbortedException() : ex);
+        throw ex;
+      } finally {
+        inFlight.remove(key, created);
+      }
+    }
+  }
+
+  private static boolean wasInterrupted(Throwable ex) {
+    if (Thread.currentThread().isInterrupted()) {
+      return true;
+    }
+    // Blocking calls clear the flag when they throw; the cause chain still records the interrupt.
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof InterruptedException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int inFlightCount() {
+    return inFlight.size();
+  }
+
+  private RecommendationService.RecommendationOutput await(
+      CompletableFuture<RecommendationService.RecommendationOutput> future
+  ) {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for coalesced recommendation", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof LeaderAbortedException) {
+        return null;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(cause == null ? "Coalesced recommendation failed" : cause.getMessage(), cause);
+    }
+  }
+
+  private static final class LeaderAbortedException extends RuntimeException {
+
+    LeaderAbortedException() {
+      super("Leader recommendation call was interrupted", null, false, false);
+    }
+  }
+
+  public record Result(RecommendationService.RecommendationOutput output, boolean coalesced) {
+  }
+}
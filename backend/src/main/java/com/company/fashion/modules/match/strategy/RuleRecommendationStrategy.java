@@ -52,6 +52,8 @@ public class RuleRecommendationStrategy implements RecommendationStrategy {
           score,
           "Rule-based recommendation by style overlap and scene compatibility",
           null,
+          null,
+          null,
           null
       ));
     }
@@ -0,0 +1,8 @@
+package com.company.fashion.modules.member.event;
+
+/**
+ * Published after a member profile changes; {@code photoChanged} is set when the photo URL was
+ * replaced.
+ */
+public record MemberChangedEvent(Long memberId, boolean photoChanged) {
+}
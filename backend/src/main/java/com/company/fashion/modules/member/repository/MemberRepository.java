@@ -1,6 +1,8 @@
 package com.company.fashion.modules.member.repository;
 
 import com.company.fashion.modules.member.entity.Member;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -10,5 +12,7 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
 
   Optional<Member> findByIdAndDeletedFalse(Long id);
 
+  List<Member> findByIdInAndDeletedFalse(Collection<Long> ids);
+
   Page<Member> findAllByDeletedFalse(Pageable pageable);
 }
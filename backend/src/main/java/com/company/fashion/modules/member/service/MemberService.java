@@ -6,7 +6,11 @@ import com.company.fashion.modules.member.dto.CreateMemberRequest;
 import com.company.fashion.modules.member.dto.MemberResponse;
 import com.company.fashion.modules.member.dto.UpdateMemberRequest;
 import com.company.fashion.modules.member.entity.Member;
+import com.company.fashion.modules.member.event.MemberChangedEvent;
 import com.company.fashion.modules.member.repository.MemberRepository;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -17,10 +21,16 @@ public class MemberService {
 
   private final MemberRepository memberRepository;
   private final BodyProfileService bodyProfileService;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public MemberService(MemberRepository memberRepository, BodyProfileService bodyProfileService) {
+  public MemberService(
+      MemberRepository memberRepository,
+      BodyProfileService bodyProfileService,
+      ApplicationEventPublisher eventPublisher
+  ) {
     this.memberRepository = memberRepository;
     this.bodyProfileService = bodyProfileService;
+    this.eventPublisher = eventPublisher;
   }
 
   @Transactional
@@ -46,13 +56,16 @@ public class MemberService {
     if (request.bodyData() != null) {
       member.setBodyData(bodyProfileService.normalizeAndValidate(request.bodyData()));
     }
+    boolean photoChanged = request.photoUrl() != null && !request.photoUrl().equals(member.getPhotoUrl());
     if (request.photoUrl() != null) {
       member.setPhotoUrl(request.photoUrl());
     }
     if (request.styleTags() != null) {
       member.setStyleTags(request.styleTags());
     }
-    return toResponse(memberRepository.save(member));
+    Member saved = memberRepository.save(member);
+    eventPublisher.publishEvent(new MemberChangedEvent(saved.getId(), photoChanged));
+    return toResponse(saved);
   }
 
   @Transactional(readOnly = true)
@@ -84,6 +97,11 @@ public class MemberService {
         .orElseThrow(() -> new BusinessException(404, "Member not found"));
   }
 
+  @Transactional(readOnly = true)
+  public List<Member> findActiveByIds(Collection<Long> ids) {
+    return memberRepository.findByIdInAndDeletedFalse(ids);
+  }
+
   private MemberResponse toResponse(Member member) {
     return new MemberResponse(
         member.getId(),
@@ -0,0 +1,166 @@
+package com.company.fashion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.match.ai.AiClientRouter;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.company.fashion.modules.match.service.TaskAdmissionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+@SpringBootTest(properties = {
+    // No worker slots: created tasks stay QUEUED so the test controls the queue depth.
+    "app.match.queue.max-in-flight=0",
+    "app.match.rate-limit.max-requests-per-second=100",
+    "app.match.admission.workers=1",
+    "app.match.admission.max-queue-depth=2",
+    "app.match.admission.max-wait-seconds=1000",
+    "app.match.admission.initial-service-time-ms=10000"
+})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MatchTaskAdmissionIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MatchTaskRepository matchTaskRepository;
+
+  @Autowired
+  private TaskAdmissionService taskAdmissionService;
+
+  @MockBean
+  private AiClientRouter aiClientRouter;
+
+  private String token;
+  private long memberId;
+  private long topId;
+  private long bottomId;
+
+  @BeforeEach
+  void setUpCatalog() throws Exception {
+    token = loginAndGetAccessToken();
+    memberId = createMember("AdmissionMember");
+    topId = createClothing("AdmissionTop", ClothingType.TOP);
+    bottomId = createClothing("AdmissionBottom", ClothingType.BOTTOM);
+  }
+
+  @Test
+  void shouldRejectWithRetryAfterWhenQueueIsFull() throws Exception {
+    JsonNode first = readData(createTask("NORMAL").andExpect(status().isOk()));
+    assertThat(LocalDateTime.parse(first.path("estimatedStartAt").asText()))
+        .isBefore(LocalDateTime.now().plusSeconds(1));
+    JsonNode second = readData(createTask("NORMAL").andExpect(status().isOk()));
+    assertThat(LocalDateTime.parse(second.path("estimatedStartAt").asText()))
+        .isAfter(LocalDateTime.now().plusSeconds(8));
+
+    createTask("NORMAL")
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "10"));
+    assertThat(matchTaskRepository.count()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRejectWhenEstimatedWaitIsTooLongButAdmitLiveAhead() throws Exception {
+    ReflectionTestUtils.setField(taskAdmissionService, "maxWaitSeconds", 5L);
+    createTask("NORMAL").andExpect(status().isOk());
+
+    createTask("NORMAL")
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "5"));
+    // LIVE tasks are claimed before NORMAL ones, so the queued NORMAL task is not ahead of it.
+    createTask("LIVE").andExpect(status().isOk());
+    assertThat(matchTaskRepository.count()).isEqualTo(2);
+  }
+
+  private ResultActions createTask(String priority) throws Exception {
+    return mockMvc.perform(post("/api/match/tasks")
+        .header("Authorization", "Bearer " + token)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("""
+            {
+              "memberId": %d,
+              "clothingIds": [%d, %d],
+              "scene": "daily-live",
+              "priority": "%s"
+            }
+            """.formatted(memberId, topId, bottomId, priority)));
+  }
+
+  private JsonNode readData(ResultActions result) throws Exception {
+    return objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).path("data");
+  }
+
+  private long createMember(String name) throws Exception {
+    String body = mockMvc.perform(post("/api/members")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "name": "%s",
+                  "bodyData": "{\\"version\\":2,\\"measurements\\":{\\"heightCm\\":170,\\"weightKg\\":52,\\"shoulderWidthCm\\":38,\\"bustCm\\":86,\\"waistCm\\":64,\\"hipCm\\":90,\\"bodyShape\\":\\"H\\",\\"legRatio\\":\\"regular\\",\\"topSize\\":\\"M\\",\\"bottomSize\\":\\"M\\"}}",
+                  "styleTags": "casual"
+                }
+                """.formatted(name)))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return objectMapper.readTree(body).path("data").path("id").asLong();
+  }
+
+  private long createClothing(String name, ClothingType type) throws Exception {
+    String body = mockMvc.perform(post("/api/clothing")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "name": "%s",
+                  "styleTags": "casual",
+                  "clothingType": "%s",
+                  "status": "ON_SHELF"
+                }
+                """.formatted(name, type.name())))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return objectMapper.readTree(body).path("data").path("id").asLong();
+  }
+
+  private String loginAndGetAccessToken() throws Exception {
+    String loginJson = mockMvc.perform(post("/api/auth/login")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "username": "stylist",
+                  "password": "stylist123"
+                }
+                """))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return objectMapper.readTree(loginJson).path("data").path("accessToken").asText();
+  }
+}
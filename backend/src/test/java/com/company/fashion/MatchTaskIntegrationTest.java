@@ -2,11 +2,16 @@ package com.company.fashion;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.company.fashion.modules.clothing.entity.Clothing;
@@ -14,10 +19,22 @@ import com.company.fashion.modules.clothing.entity.ClothingType;
 import com.company.fashion.modules.match.ai.AiLanguage;
 import com.company.fashion.modules.match.ai.AiClientRouter;
 import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
+import com.company.fashion.modules.match.dto.PreviewStatus;
+import com.company.fashion.modules.match.entity.MatchTask;
+import com.company.fashion.modules.match.repository.MatchRecordRepository;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,12 +56,21 @@ class MatchTaskIntegrationTest {
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private MatchTaskRepository matchTaskRepository;
+
+  @Autowired
+  private MatchRecordRepository matchRecordRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   @MockBean
   private AiClientRouter aiClientRouter;
 
   @BeforeEach
   void setUpAiMocks() {
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class)))
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
         .thenAnswer(invocation -> {
           @SuppressWarnings("unchecked")
           List<Clothing> candidates = (List<Clothing>) invocation.getArgument(1);
@@ -133,6 +159,7 @@ class MatchTaskIntegrationTest {
     JsonNode previewRoot = generateOutfitPreview(token, taskId, 1);
     assertThat(previewRoot.path("data").path("outfits").get(0).path("preview").isObject()).isTrue();
     assertThat(previewRoot.path("data").path("outfits").get(0).path("preview").path("title").asText()).isNotBlank();
+    assertThat(previewRoot.path("data").path("outfits").get(0).path("previewStatus").asText()).isEqualTo("SUCCEEDED");
     assertThat(previewRoot.path("data").path("preview").isObject()).isTrue();
 
     String historyJson = mockMvc.perform(get("/api/members/{memberId}/history", memberId)
@@ -148,6 +175,103 @@ class MatchTaskIntegrationTest {
     assertThat(historyRoot.path("data").path("total").asLong()).isPositive();
   }
 
+  @Test
+  void previewShouldRunAsJobWithoutBlockingTheRequest() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(aiClientRouter.generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class)))
+        .thenAnswer(invocation -> {
+          assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+          return new OutfitPreviewResponse("EN_TITLE", "EN_DESC", "EN_PROMPT");
+        });
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "AsyncPreviewMember", "https://img.test/member-async.jpg");
+    long topId = createClothing(token, "AsyncPreviewTop", ClothingType.TOP, "https://img.test/async-top.jpg");
+    long bottomId = createClothing(token, "AsyncPreviewBottom", ClothingType.BOTTOM, "https://img.test/async-bottom.jpg");
+    String taskId = createTask(token, memberId, List.of(topId, bottomId), "daily-live");
+    assertThat(waitTaskDone(token, taskId).path("data").path("status").asText()).isEqualTo("SUCCEEDED");
+
+    // Returns while the vision call is still blocked.
+    JsonNode started = startOutfitPreview(token, taskId, 1, null);
+    assertThat(outfit(started, 1).path("previewStatus").asText()).isEqualTo("RUNNING");
+    assertThat(outfit(waitTaskDone(token, taskId), 1).path("previewStatus").asText()).isEqualTo("RUNNING");
+
+    release.countDown();
+    JsonNode done = waitPreviewDone(token, taskId, 1);
+    assertThat(outfit(done, 1).path("previewStatus").asText()).isEqualTo("SUCCEEDED");
+    assertThat(outfit(done, 1).path("preview").path("title").asText()).isEqualTo("EN_TITLE");
+    verify(aiClientRouter, times(1)).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+  }
+
+  @Test
+  void runningPreviewShouldOnlyBeRestartedOnceStale() throws Exception {
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "StalePreviewMember", "https://img.test/member-stale.jpg");
+    long topId = createClothing(token, "StalePreviewTop", ClothingType.TOP, "https://img.test/stale-top.jpg");
+    long bottomId = createClothing(token, "StalePreviewBottom", ClothingType.BOTTOM, "https://img.test/stale-bottom.jpg");
+    String taskId = createTask(token, memberId, List.of(topId, bottomId), "daily-live");
+    assertThat(waitTaskDone(token, taskId).path("data").path("status").asText()).isEqualTo("SUCCEEDED");
+
+    // Left RUNNING by a job that is still going elsewhere: a new click does not start another call.
+    markPreviewRunning(taskId, LocalDateTime.now());
+    JsonNode fresh = startOutfitPreview(token, taskId, 1, null);
+    assertThat(outfit(fresh, 1).path("previewStatus").asText()).isEqualTo("RUNNING");
+    Thread.sleep(300);
+    verify(aiClientRouter, times(0)).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+
+    // Left RUNNING by a node that died long ago: the preview runs again.
+    markPreviewRunning(taskId, LocalDateTime.now().minusHours(1));
+    JsonNode done = generateOutfitPreview(token, taskId, 1);
+    assertThat(outfit(done, 1).path("previewStatus").asText()).isEqualTo("SUCCEEDED");
+    verify(aiClientRouter, times(1)).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+  }
+
+  @Test
+  void batchPreviewShouldGenerateEveryOutfitOrTheChosenSubset() throws Exception {
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "BatchPreviewMember", "https://img.test/member-batch.jpg");
+    List<Long> clothingIds = new ArrayList<>();
+    for (int i = 1; i <= 3; i++) {
+      clothingIds.add(createClothing(token, "BatchTop" + i, ClothingType.TOP, "https://img.test/batch-top-" + i + ".jpg"));
+      clothingIds.add(createClothing(token, "BatchBottom" + i, ClothingType.BOTTOM, "https://img.test/batch-bottom-" + i + ".jpg"));
+    }
+    String taskId = createTask(token, memberId, clothingIds, "daily-live");
+    assertThat(waitTaskDone(token, taskId).path("data").path("outfits").size()).isEqualTo(3);
+
+    String subset = mockMvc.perform(post("/api/match/tasks/{taskId}/previews", taskId)
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"outfitNos\": [2]}"))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    assertThat(outfit(objectMapper.readTree(subset), 1).path("previewStatus").isNull()).isTrue();
+    JsonNode afterSubset = waitPreviewDone(token, taskId, 2);
+    assertThat(outfit(afterSubset, 2).path("previewStatus").asText()).isEqualTo("SUCCEEDED");
+    assertThat(outfit(afterSubset, 1).path("preview").isNull()).isTrue();
+    // The job leaves the in-flight set just after its result is stored.
+    Thread.sleep(200);
+
+    mockMvc.perform(post("/api/match/tasks/{taskId}/previews", taskId)
+            .header("Authorization", "Bearer " + token))
+        .andExpect(status().isOk());
+    JsonNode afterAll = null;
+    for (int outfitNo = 1; outfitNo <= 3; outfitNo++) {
+      afterAll = waitPreviewDone(token, taskId, outfitNo);
+    }
+    for (int outfitNo = 1; outfitNo <= 3; outfitNo++) {
+      assertThat(outfit(afterAll, outfitNo).path("previewStatus").asText()).isEqualTo("SUCCEEDED");
+      assertThat(outfit(afterAll, outfitNo).path("preview").path("title").asText()).isEqualTo("EN_TITLE");
+    }
+    verify(aiClientRouter, times(4)).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+
+    mockMvc.perform(post("/api/match/tasks/{taskId}/previews", taskId)
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"outfitNos\": [9]}"))
+        .andExpect(status().isNotFound());
+  }
+
   @Test
   void taskShouldSucceedWhenLessThanThreeOutfitsAreAvailable() throws Exception {
     String token = loginAndGetAccessToken();
@@ -190,7 +314,7 @@ class MatchTaskIntegrationTest {
 
   @Test
   void taskShouldFailWhenAiSuggestionThrows() throws Exception {
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class)))
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
         .thenThrow(new IllegalStateException("AI suggestion down"));
     String token = loginAndGetAccessToken();
     long memberId = createMember(token, "AiFailureMember", null);
@@ -205,7 +329,7 @@ class MatchTaskIntegrationTest {
 
   @Test
   void taskShouldFailWhenAiReturnsEmptyRecommendation() throws Exception {
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class))).thenReturn(List.of());
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any())).thenReturn(List.of());
     String token = loginAndGetAccessToken();
     long memberId = createMember(token, "AiEmptyMember", null);
     long topId = createClothing(token, "AiEmptyTop", ClothingType.TOP, null);
@@ -281,6 +405,165 @@ class MatchTaskIntegrationTest {
     assertThat(previewKo.path("data").path("outfits").get(0).path("preview").path("title").asText()).isEqualTo("KO_TITLE");
   }
 
+  @Test
+  void repeatedTaskShouldReuseCachedRecommendationUntilClothingChanges() throws Exception {
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "CacheMember", "https://img.test/member-cache.jpg");
+    long topId = createClothing(token, "CacheTop", ClothingType.TOP, "https://img.test/cache-top.jpg");
+    long bottomId = createClothing(token, "CacheBottom", ClothingType.BOTTOM, "https://img.test/cache-bottom.jpg");
+    List<Long> clothingIds = List.of(topId, bottomId);
+
+    // First run has no history; its DRAFT records become the history snapshot of later runs.
+    waitTaskDone(token, createTask(token, memberId, clothingIds, "daily-live"));
+    waitTaskDone(token, createTask(token, memberId, clothingIds, "daily-live"));
+    verify(aiClientRouter, times(2)).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+
+    // Let the worker record the second run's service time before sampling it.
+    Thread.sleep(200);
+    double serviceTimeMillis = meterRegistry.get("match.admission.service.time").gauge().value();
+    JsonNode cached = waitTaskDone(token, createTask(token, memberId, clothingIds, "daily-live"));
+    assertThat(cached.path("data").path("status").asText()).isEqualTo("SUCCEEDED");
+    verify(aiClientRouter, times(2)).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+
+    // Stay under the per-operator rate limit; cache hits finish almost immediately.
+    Thread.sleep(1000);
+    // ...and so are not service-time samples for admission control.
+    assertThat(meterRegistry.get("match.admission.service.time").gauge().value()).isEqualTo(serviceTimeMillis);
+    mockMvc.perform(post("/api/match/tasks")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "memberId": %d,
+                  "clothingIds": %s,
+                  "scene": "daily-live",
+                  "bypassCache": true
+                }
+                """.formatted(memberId, objectMapper.writeValueAsString(clothingIds))))
+        .andExpect(status().isOk());
+    Thread.sleep(1000);
+    verify(aiClientRouter, times(3)).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+
+    mockMvc.perform(put("/api/clothing/{clothingId}", topId)
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "name": "CacheTopRenamed",
+                  "clothingType": "TOP"
+                }
+                """))
+        .andExpect(status().isOk());
+    waitTaskDone(token, createTask(token, memberId, clothingIds, "daily-live"));
+    verify(aiClientRouter, times(4)).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+  }
+
+  @Test
+  void cancellingRunningTaskShouldInterruptProviderCall() throws Exception {
+    CountDownLatch providerCalled = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> blockUntilInterrupted(providerCalled, interrupted));
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "CancelMember", null);
+    long topId = createClothing(token, "CancelTop", ClothingType.TOP, null);
+    long bottomId = createClothing(token, "CancelBottom", ClothingType.BOTTOM, null);
+    String taskId = createTask(token, memberId, List.of(topId, bottomId), "daily-live");
+    assertThat(providerCalled.await(5, TimeUnit.SECONDS)).isTrue();
+
+    mockMvc.perform(delete("/api/match/tasks/{taskId}", taskId)
+            .header("Authorization", "Bearer " + token))
+        .andExpect(status().isOk());
+
+    JsonNode doneRoot = waitTaskDone(token, taskId);
+    assertThat(doneRoot.path("data").path("status").asText()).isEqualTo("CANCELLED");
+    Thread.sleep(250);
+    assertThat(interrupted.get()).isTrue();
+    // The worker's late failure must not overwrite the cancellation.
+    assertThat(waitTaskDone(token, taskId).path("data").path("status").asText()).isEqualTo("CANCELLED");
+
+    mockMvc.perform(delete("/api/match/tasks/{taskId}", taskId)
+            .header("Authorization", "Bearer " + token))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void resultOfTaskCancelledMeanwhileShouldNotWriteHistory() throws Exception {
+    CountDownLatch providerCalled = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          providerCalled.countDown();
+          assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+          List<Clothing> candidates = invocation.getArgument(1);
+          return List.of(new AiClientRouter.AiOutfitSuggestion(
+              candidates.get(0).getId(), candidates.get(1).getId(), 90, "late"
+          ));
+        });
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "LateResultMember", null);
+    long topId = createClothing(token, "LateResultTop", ClothingType.TOP, null);
+    long bottomId = createClothing(token, "LateResultBottom", ClothingType.BOTTOM, null);
+    String taskId = createTask(token, memberId, List.of(topId, bottomId), "daily-live");
+    assertThat(providerCalled.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // Cancelled by another node: the row changes but this worker is not interrupted.
+    assertThat(matchTaskRepository.cancelActive(taskId, LocalDateTime.now())).isEqualTo(1);
+    release.countDown();
+    Thread.sleep(500);
+
+    assertThat(waitTaskDone(token, taskId).path("data").path("status").asText()).isEqualTo("CANCELLED");
+    assertThat(matchRecordRepository.countByMemberId(memberId)).isZero();
+  }
+
+  @Test
+  void taskShouldFailWhenDeadlinePassesDuringProviderCall() throws Exception {
+    CountDownLatch providerCalled = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> blockUntilInterrupted(providerCalled, interrupted));
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "DeadlineMember", null);
+    long topId = createClothing(token, "DeadlineTop", ClothingType.TOP, null);
+    long bottomId = createClothing(token, "DeadlineBottom", ClothingType.BOTTOM, null);
+
+    String body = mockMvc.perform(post("/api/match/tasks")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "memberId": %d,
+                  "clothingIds": [%d, %d],
+                  "scene": "daily-live",
+                  "deadlineSeconds": 1
+                }
+                """.formatted(memberId, topId, bottomId)))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String taskId = objectMapper.readTree(body).path("data").path("taskId").asText();
+
+    JsonNode doneRoot = waitTaskDone(token, taskId);
+    assertThat(doneRoot.path("data").path("status").asText()).isEqualTo("FAILED");
+    assertThat(doneRoot.path("data").path("errorMessage").asText()).contains("deadline exceeded");
+    assertThat(interrupted.get()).isTrue();
+  }
+
+  private static List<AiClientRouter.AiOutfitSuggestion> blockUntilInterrupted(
+      CountDownLatch providerCalled,
+      AtomicBoolean interrupted
+  ) {
+    providerCalled.countDown();
+    try {
+      Thread.sleep(30_000);
+      return List.of();
+    } catch (InterruptedException ex) {
+      interrupted.set(true);
+      throw new IllegalStateException("Provider call interrupted", ex);
+    }
+  }
+
   private long createMember(String token, String name, String photoUrl) throws Exception {
     String photoJson = photoUrl == null ? "null" : "\"" + photoUrl + "\"";
     String body = mockMvc.perform(post("/api/members")
@@ -362,18 +645,37 @@ class MatchTaskIntegrationTest {
           .getContentAsString();
       taskRoot = objectMapper.readTree(taskJson);
       finalStatus = taskRoot.path("data").path("status").asText();
-      if ("SUCCEEDED".equals(finalStatus) || "FAILED".equals(finalStatus)) {
+      if ("SUCCEEDED".equals(finalStatus) || "FAILED".equals(finalStatus) || "CANCELLED".equals(finalStatus)) {
         return taskRoot;
       }
     }
     return taskRoot;
   }
 
+  private void markPreviewRunning(String taskId, LocalDateTime startedAt) throws Exception {
+    MatchTask task = matchTaskRepository.findById(taskId).orElseThrow();
+    List<OutfitRecommendationResponse> outfits = objectMapper.readValue(task.getResultJson(), new TypeReference<>() {
+    });
+    task.setResultJson(objectMapper.writeValueAsString(outfits.stream()
+        .map(item -> new OutfitRecommendationResponse(
+            item.outfitNo(), item.topClothingId(), item.bottomClothingId(), item.score(), item.reason(),
+            item.preview(), item.warning(), PreviewStatus.RUNNING, startedAt
+        ))
+        .toList()));
+    matchTaskRepository.saveAndFlush(task);
+  }
+
   private JsonNode generateOutfitPreview(String token, String taskId, int outfitNo) throws Exception {
     return generateOutfitPreview(token, taskId, outfitNo, null);
   }
 
   private JsonNode generateOutfitPreview(String token, String taskId, int outfitNo, String language) throws Exception {
+    JsonNode started = startOutfitPreview(token, taskId, outfitNo, language);
+    assertThat(outfit(started, outfitNo).path("previewStatus").asText()).isIn("RUNNING", "SUCCEEDED", "FAILED");
+    return waitPreviewDone(token, taskId, outfitNo);
+  }
+
+  private JsonNode startOutfitPreview(String token, String taskId, int outfitNo, String language) throws Exception {
     var request = post("/api/match/tasks/{taskId}/outfits/{outfitNo}/preview", taskId, outfitNo)
         .header("Authorization", "Bearer " + token);
     if (language != null) {
@@ -387,6 +689,33 @@ class MatchTaskIntegrationTest {
     return objectMapper.readTree(response);
   }
 
+  private JsonNode waitPreviewDone(String token, String taskId, int outfitNo) throws Exception {
+    JsonNode taskRoot = null;
+    for (int i = 0; i < 40; i++) {
+      String taskJson = mockMvc.perform(get("/api/match/tasks/{taskId}", taskId)
+              .header("Authorization", "Bearer " + token))
+          .andExpect(status().isOk())
+          .andReturn()
+          .getResponse()
+          .getContentAsString();
+      taskRoot = objectMapper.readTree(taskJson);
+      if (!"RUNNING".equals(outfit(taskRoot, outfitNo).path("previewStatus").asText())) {
+        return taskRoot;
+      }
+      Thread.sleep(100);
+    }
+    return taskRoot;
+  }
+
+  private static JsonNode outfit(JsonNode taskRoot, int outfitNo) {
+    for (JsonNode outfit : taskRoot.path("data").path("outfits")) {
+      if (outfit.path("outfitNo").asInt() == outfitNo) {
+        return outfit;
+      }
+    }
+    return MissingNode.getInstance();
+  }
+
   private String loginAndGetAccessToken() throws Exception {
     String loginJson = mockMvc.perform(post("/api/auth/login")
             .contentType(MediaType.APPLICATION_JSON)
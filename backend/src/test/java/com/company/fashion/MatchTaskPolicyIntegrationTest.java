@@ -2,6 +2,7 @@ package com.company.fashion;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
@@ -45,7 +46,7 @@ class MatchTaskPolicyIntegrationTest {
 
   @BeforeEach
   void setUpAiMocks() {
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class)))
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
         .thenAnswer(invocation -> {
           @SuppressWarnings("unchecked")
           List<Clothing> candidates = (List<Clothing>) invocation.getArgument(1);
@@ -226,6 +227,75 @@ class MatchTaskPolicyIntegrationTest {
     assertThat(waitTaskDone(token, taskId)).isEqualTo("SUCCEEDED");
   }
 
+  @Test
+  void shouldCreateBatchTasksWithPerMemberDedup() throws Exception {
+    String token = loginAndGetAccessToken();
+    long freshMember = createMember(token, "BatchFreshMember");
+    long partlyWornMember = createMember(token, "BatchPartlyWornMember");
+    long fullyWornMember = createMember(token, "BatchFullyWornMember");
+    long topId = createClothing(token, "BatchTop", ClothingType.TOP);
+    long bottomId = createClothing(token, "BatchBottom", ClothingType.BOTTOM);
+    long top2Id = createClothing(token, "BatchTop2", ClothingType.TOP);
+    createManualHistory(token, partlyWornMember, topId);
+    createManualHistory(token, fullyWornMember, topId);
+    createManualHistory(token, fullyWornMember, bottomId);
+    createManualHistory(token, fullyWornMember, top2Id);
+
+    String response = mockMvc.perform(post("/api/match/tasks/batch")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "entries": [
+                    {"memberId": %d, "scene": "daily-live"},
+                    {"memberId": %d, "scene": "show"},
+                    {"memberId": %d, "scene": "daily-live"}
+                  ],
+                  "clothingIds": [%d, %d, %d]
+                }
+                """.formatted(freshMember, partlyWornMember, fullyWornMember, topId, bottomId, top2Id)))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    JsonNode tasks = objectMapper.readTree(response).path("data").path("tasks");
+    assertThat(tasks.size()).isEqualTo(3);
+    assertThat(tasks.get(0).path("status").asText()).isEqualTo("QUEUED");
+    assertThat(tasks.get(1).path("scene").asText()).isEqualTo("show");
+    assertThat(tasks.get(2).path("taskId").isNull()).isTrue();
+    assertThat(tasks.get(2).path("error").asText()).contains("worn history");
+
+    assertThat(waitTaskDone(token, tasks.get(0).path("taskId").asText())).isEqualTo("SUCCEEDED");
+    assertThat(waitTaskDone(token, tasks.get(1).path("taskId").asText())).isEqualTo("SUCCEEDED");
+    String partlyWornTask = mockMvc.perform(get("/api/match/tasks/{taskId}", tasks.get(1).path("taskId").asText())
+            .header("Authorization", "Bearer " + token))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    JsonNode outfits = objectMapper.readTree(partlyWornTask).path("data").path("outfits");
+    assertThat(outfits.get(0).path("topClothingId").asLong()).isEqualTo(top2Id);
+  }
+
+  @Test
+  void shouldRejectBatchWithUnknownMember() throws Exception {
+    String token = loginAndGetAccessToken();
+    long memberId = createMember(token, "BatchKnownMember");
+    long topId = createClothing(token, "BatchUnknownTop", ClothingType.TOP);
+
+    mockMvc.perform(post("/api/match/tasks/batch")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "entries": [{"memberId": %d}, {"memberId": 999999}],
+                  "clothingIds": [%d]
+                }
+                """.formatted(memberId, topId)))
+        .andExpect(status().isNotFound());
+  }
+
   @Test
   void shouldRejectWhenRateLimitExceeded() throws Exception {
     String token = loginAndGetAccessToken();
@@ -267,6 +337,18 @@ class MatchTaskPolicyIntegrationTest {
     assertThat(root.path("message").asText()).contains("rate limit");
   }
 
+  private void createManualHistory(String token, long memberId, long clothingId) throws Exception {
+    mockMvc.perform(post("/api/members/{memberId}/history/manual", memberId)
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                  "clothingId": %d
+                }
+                """.formatted(clothingId)))
+        .andExpect(status().isOk());
+  }
+
   private String waitTaskDone(String token, String taskId) throws Exception {
     String taskStatus = "";
     for (int i = 0; i < 20; i++) {
@@ -0,0 +1,125 @@
+package com.company.fashion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.company.fashion.modules.clothing.dto.CreateClothingRequest;
+import com.company.fashion.modules.clothing.entity.ClothingStatus;
+import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.clothing.service.ClothingService;
+import com.company.fashion.modules.match.ai.AiClientRouter;
+import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.match.dto.CreateMatchTaskRequest;
+import com.company.fashion.modules.match.dto.MatchTaskResultResponse;
+import com.company.fashion.modules.match.dto.TaskStatus;
+import com.company.fashion.modules.match.service.MatchTaskService;
+import com.company.fashion.modules.member.dto.CreateMemberRequest;
+import com.company.fashion.modules.member.service.MemberService;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = "app.match.progressive.enabled=true")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MatchTaskProgressiveIntegrationTest {
+
+  private static final String BODY_DATA = "{\"version\":2,\"measurements\":{\"heightCm\":170,\"weightKg\":52,"
+      + "\"shoulderWidthCm\":38,\"bustCm\":86,\"waistCm\":64,\"hipCm\":90,\"bodyShape\":\"H\","
+      + "\"legRatio\":\"regular\",\"topSize\":\"M\",\"bottomSize\":\"M\"}}";
+
+  @Autowired
+  private MatchTaskService matchTaskService;
+
+  @Autowired
+  private MemberService memberService;
+
+  @Autowired
+  private ClothingService clothingService;
+
+  @MockBean
+  private AiClientRouter aiClientRouter;
+
+  @Test
+  void ruleBasedOutfitsShouldBeReadableUntilTheAiResultReplacesThem() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Fixture fixture = fixture();
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+          return List.of(new AiClientRouter.AiOutfitSuggestion(fixture.topId(), fixture.bottomId(), 97, "AI_REASON"));
+        });
+    String taskId = createTask(fixture);
+
+    // The AI call is still blocked, yet the task already carries outfits.
+    MatchTaskResultResponse provisional = await(taskId, task -> !task.outfits().isEmpty());
+    assertThat(provisional.status()).isEqualTo(TaskStatus.RUNNING);
+    assertThat(provisional.provisional()).isTrue();
+    assertThat(provisional.strategyName()).isEqualTo("RULE_BASED");
+    assertThat(provisional.outfits().getFirst().topClothingId()).isEqualTo(fixture.topId());
+
+    release.countDown();
+    MatchTaskResultResponse done = await(taskId, task -> task.status() == TaskStatus.SUCCEEDED);
+    assertThat(done.provisional()).isFalse();
+    assertThat(done.strategyName()).isEqualTo("AI_ONLY");
+    assertThat(done.outfits()).singleElement()
+        .satisfies(outfit -> assertThat(outfit.reason()).isEqualTo("AI_REASON"));
+  }
+
+  @Test
+  void provisionalOutfitsShouldSurviveAFailedAiCall() throws Exception {
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenThrow(new IllegalStateException("provider unavailable"));
+    String taskId = createTask(fixture());
+
+    MatchTaskResultResponse failed = await(taskId, task -> task.status() == TaskStatus.FAILED);
+    assertThat(failed.errorMessage()).contains("provider unavailable");
+    assertThat(failed.strategyName()).isEqualTo("RULE_BASED");
+    assertThat(failed.outfits()).isNotEmpty();
+    assertThat(failed.provisional()).isTrue();
+  }
+
+  private MatchTaskResultResponse await(String taskId, Predicate<MatchTaskResultResponse> condition)
+      throws InterruptedException {
+    MatchTaskResultResponse task = null;
+    for (int i = 0; i < 40; i++) {
+      task = matchTaskService.getTask(taskId);
+      if (condition.test(task)) {
+        return task;
+      }
+      Thread.sleep(100);
+    }
+    throw new AssertionError("Task " + taskId + " did not reach the expected state: " + task);
+  }
+
+  private String createTask(Fixture fixture) {
+    return matchTaskService.createTask(new CreateMatchTaskRequest(
+        fixture.memberId(), List.of(fixture.topId(), fixture.bottomId()), "daily-live", true, null, null, 3
+    ), "progressive-operator", null).taskId();
+  }
+
+  private Fixture fixture() {
+    Long memberId = memberService.create(new CreateMemberRequest(
+        "ProgressiveMember", BODY_DATA, "https://img.test/progressive-member.jpg", "casual"
+    )).id();
+    Long topId = clothingService.create(new CreateClothingRequest(
+        "ProgressiveTop", "https://img.test/progressive-top.jpg", "casual", ClothingType.TOP, ClothingStatus.ON_SHELF, null
+    )).id();
+    Long bottomId = clothingService.create(new CreateClothingRequest(
+        "ProgressiveBottom", "https://img.test/progressive-bottom.jpg", "casual", ClothingType.BOTTOM, ClothingStatus.ON_SHELF, null
+    )).id();
+    return new Fixture(memberId, topId, bottomId);
+  }
+
+  private record Fixture(Long memberId, Long topId, Long bottomId) {
+  }
+}
@@ -0,0 +1,168 @@
+package com.company.fashion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.company.fashion.modules.match.dto.TaskPriority;
+import com.company.fashion.modules.match.dto.TaskStatus;
+import com.company.fashion.modules.match.entity.MatchTask;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.company.fashion.modules.match.service.MatchTaskQueue;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {
+    // Keep the background poller out of the way so the test drives every claim explicitly.
+    "app.match.queue.poll-interval-ms=3600000",
+    "app.match.queue.heartbeat-interval-ms=3600000",
+    "app.match.queue.max-attempts=2"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MatchTaskQueueIntegrationTest {
+
+  @Autowired
+  private MatchTaskQueue matchTaskQueue;
+
+  @Autowired
+  private MatchTaskRepository matchTaskRepository;
+
+  @Test
+  void shouldClaimEachQueuedTaskOnlyOnce() {
+    String first = saveQueuedTask();
+    String second = saveQueuedTask();
+
+    List<String> claimedByA = matchTaskQueue.claim("node-a", 1);
+    List<String> claimedByB = matchTaskQueue.claim("node-b", 5);
+
+    assertThat(claimedByA).containsExactly(first);
+    assertThat(claimedByB).containsExactly(second);
+    assertThat(matchTaskQueue.claim("node-c", 5)).isEmpty();
+
+    MatchTask claimed = matchTaskRepository.findById(first).orElseThrow();
+    assertThat(claimed.getStatus()).isEqualTo(TaskStatus.RUNNING);
+    assertThat(claimed.getLeaseOwner()).isEqualTo("node-a");
+    assertThat(claimed.getLeaseExpiresAt()).isAfter(LocalDateTime.now());
+    assertThat(claimed.getAttemptCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReclaimExpiredLeaseAndFailWhenAttemptsExhausted() {
+    String taskId = saveQueuedTask();
+    assertThat(matchTaskQueue.claim("node-a", 1)).containsExactly(taskId);
+    expireLease(taskId);
+
+    assertThat(matchTaskQueue.claim("node-b", 1)).containsExactly(taskId);
+    MatchTask reclaimed = matchTaskRepository.findById(taskId).orElseThrow();
+    assertThat(reclaimed.getLeaseOwner()).isEqualTo("node-b");
+    assertThat(reclaimed.getAttemptCount()).isEqualTo(2);
+
+    expireLease(taskId);
+    assertThat(matchTaskQueue.claim("node-c", 1)).isEmpty();
+    assertThat(matchTaskQueue.failExhaustedLeases()).isEqualTo(1);
+    MatchTask failed = matchTaskRepository.findById(taskId).orElseThrow();
+    assertThat(failed.getStatus()).isEqualTo(TaskStatus.FAILED);
+    assertThat(failed.getLeaseOwner()).isNull();
+  }
+
+  @Test
+  void shouldOnlyRenewLeasesOwnedByNode() {
+    String taskId = saveQueuedTask();
+    matchTaskQueue.claim("node-a", 1);
+
+    assertThat(matchTaskQueue.renewLeases("node-b", List.of(taskId))).isZero();
+    assertThat(matchTaskQueue.renewLeases("node-a", List.of(taskId))).isEqualTo(1);
+  }
+
+  @Test
+  void shouldShareSlotsAcrossOperatorsInsteadOfFifo() {
+    List<String> bulk = List.of(
+        saveQueuedTask("bulk-operator", TaskPriority.NORMAL),
+        saveQueuedTask("bulk-operator", TaskPriority.NORMAL),
+        saveQueuedTask("bulk-operator", TaskPriority.NORMAL),
+        saveQueuedTask("bulk-operator", TaskPriority.NORMAL)
+    );
+    String other = saveQueuedTask("other-operator", TaskPriority.NORMAL);
+
+    List<String> claimed = matchTaskQueue.claim("node-a", 2);
+
+    assertThat(claimed).containsExactlyInAnyOrder(bulk.get(0), other);
+  }
+
+  @Test
+  void shouldClaimLiveTasksFirst() {
+    saveQueuedTask("stylist", TaskPriority.NORMAL);
+    String live = saveQueuedTask("another-stylist", TaskPriority.LIVE);
+
+    assertThat(matchTaskQueue.claim("node-a", 1)).containsExactly(live);
+  }
+
+  @Test
+  void shouldSkipAndFailQueuedTasksPastDeadline() {
+    String expired = saveQueuedTask();
+    MatchTask task = matchTaskRepository.findById(expired).orElseThrow();
+    task.setDeadlineAt(LocalDateTime.now().minusSeconds(1));
+    matchTaskRepository.saveAndFlush(task);
+    String live = saveQueuedTask();
+
+    assertThat(matchTaskQueue.claim("node-a", 5)).containsExactly(live);
+    assertThat(matchTaskQueue.failPastDeadline()).isEqualTo(1);
+    MatchTask failed = matchTaskRepository.findById(expired).orElseThrow();
+    assertThat(failed.getStatus()).isEqualTo(TaskStatus.FAILED);
+    assertThat(failed.getErrorMessage()).isEqualTo("Task deadline exceeded");
+    // The running task enforces its own deadline; the sweep leaves it alone.
+    assertThat(matchTaskRepository.findById(live).orElseThrow().getStatus()).isEqualTo(TaskStatus.RUNNING);
+  }
+
+  @Test
+  void cancelledTaskShouldNotBeClaimedAndShouldNoLongerBeOwned() {
+    String running = saveQueuedTask();
+    String queued = saveQueuedTask();
+    assertThat(matchTaskQueue.claim("node-a", 1)).containsExactly(running);
+
+    assertThat(matchTaskRepository.cancelActive(running, LocalDateTime.now())).isEqualTo(1);
+    assertThat(matchTaskRepository.cancelActive(queued, LocalDateTime.now())).isEqualTo(1);
+    assertThat(matchTaskRepository.cancelActive(queued, LocalDateTime.now())).isZero();
+
+    assertThat(matchTaskQueue.claim("node-a", 5)).isEmpty();
+    assertThat(matchTaskQueue.findNotOwned("node-a", List.of(running))).containsExactly(running);
+    assertThat(matchTaskRepository.findById(queued).orElseThrow().getStatus()).isEqualTo(TaskStatus.CANCELLED);
+  }
+
+  private String saveQueuedTask() {
+    return saveQueuedTask("stylist", TaskPriority.NORMAL);
+  }
+
+  private String saveQueuedTask(String operator, TaskPriority priority) {
+    MatchTask task = new MatchTask();
+    task.setId(UUID.randomUUID().toString());
+    task.setMemberId(1L);
+    task.setOperatorUsername(operator);
+    task.setPriority(priority.level());
+    task.setScene("daily-live");
+    task.setLanguage("en");
+    task.setStatus(TaskStatus.QUEUED);
+    task.setCandidateClothingIdsJson("[1,2]");
+    matchTaskRepository.saveAndFlush(task);
+    // Keep creation order strictly increasing for the FIFO assertion.
+    sleepQuietly();
+    return task.getId();
+  }
+
+  private void expireLease(String taskId) {
+    MatchTask task = matchTaskRepository.findById(taskId).orElseThrow();
+    task.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+    matchTaskRepository.saveAndFlush(task);
+  }
+
+  private void sleepQuietly() {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
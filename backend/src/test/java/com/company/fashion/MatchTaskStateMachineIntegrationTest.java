@@ -0,0 +1,102 @@
+package com.company.fashion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.company.fashion.modules.match.dto.TaskStatus;
+import com.company.fashion.modules.match.entity.MatchTask;
+import com.company.fashion.modules.match.repository.MatchTaskContext;
+import com.company.fashion.modules.match.repository.MatchTaskRepository;
+import com.company.fashion.modules.match.service.MatchTaskQueue;
+import com.company.fashion.modules.match.service.MatchTaskStateMachine;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {
+    "app.match.queue.poll-interval-ms=3600000",
+    "app.match.queue.heartbeat-interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MatchTaskStateMachineIntegrationTest {
+
+  @Autowired
+  private MatchTaskStateMachine matchTaskStateMachine;
+
+  @Autowired
+  private MatchTaskQueue matchTaskQueue;
+
+  @Autowired
+  private MatchTaskRepository matchTaskRepository;
+
+  @Test
+  void shouldCompleteClaimedTaskWithSingleTargetedUpdate() {
+    String taskId = saveQueuedTask();
+    matchTaskQueue.claim("node-a", 1);
+
+    MatchTaskContext context = matchTaskStateMachine.load(taskId);
+    assertThat(context.status()).isEqualTo(TaskStatus.RUNNING);
+    assertThat(context.candidateClothingIdsJson()).isEqualTo("[1,2]");
+
+    matchTaskStateMachine.succeed(context, "AI_ONLY", "[]", "only 1 outfit");
+
+    MatchTask task = matchTaskRepository.findById(taskId).orElseThrow();
+    assertThat(task.getStatus()).isEqualTo(TaskStatus.SUCCEEDED);
+    assertThat(task.getStrategyName()).isEqualTo("AI_ONLY");
+    assertThat(task.getResultJson()).isEqualTo("[]");
+    assertThat(task.getErrorMessage()).isEqualTo("only 1 outfit");
+    assertThat(task.getLeaseOwner()).isNull();
+    assertThat(task.getVersion()).isEqualTo(context.version() + 1);
+  }
+
+  @Test
+  void shouldRejectStaleVersionAfterReclaim() {
+    String taskId = saveQueuedTask();
+    matchTaskQueue.claim("node-a", 1);
+    MatchTaskContext staleContext = matchTaskStateMachine.load(taskId);
+
+    MatchTask task = matchTaskRepository.findById(taskId).orElseThrow();
+    task.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+    matchTaskRepository.saveAndFlush(task);
+    matchTaskQueue.claim("node-b", 1);
+
+    assertThatThrownBy(() -> matchTaskStateMachine.succeed(staleContext, "AI_ONLY", "[]", null))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("changed concurrently");
+    assertThat(matchTaskStateMachine.fail(staleContext, "boom")).isFalse();
+
+    MatchTask current = matchTaskRepository.findById(taskId).orElseThrow();
+    assertThat(current.getStatus()).isEqualTo(TaskStatus.RUNNING);
+    assertThat(current.getLeaseOwner()).isEqualTo("node-b");
+  }
+
+  @Test
+  void shouldRejectIllegalTransitionsFromTerminalStatus() {
+    String taskId = saveQueuedTask();
+    matchTaskQueue.claim("node-a", 1);
+    matchTaskStateMachine.succeed(matchTaskStateMachine.load(taskId), "AI_ONLY", "[]", null);
+    MatchTaskContext finished = matchTaskStateMachine.load(taskId);
+
+    assertThatThrownBy(() -> matchTaskStateMachine.fail(finished, "late failure"))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("SUCCEEDED -> FAILED");
+    assertThat(matchTaskStateMachine.failActive(taskId, "late failure")).isFalse();
+    assertThat(matchTaskRepository.findById(taskId).orElseThrow().getStatus()).isEqualTo(TaskStatus.SUCCEEDED);
+  }
+
+  private String saveQueuedTask() {
+    MatchTask task = new MatchTask();
+    task.setId(UUID.randomUUID().toString());
+    task.setMemberId(1L);
+    task.setOperatorUsername("stylist");
+    task.setScene("daily-live");
+    task.setLanguage("en");
+    task.setStatus(TaskStatus.QUEUED);
+    task.setCandidateClothingIdsJson("[1,2]");
+    matchTaskRepository.saveAndFlush(task);
+    return task.getId();
+  }
+}
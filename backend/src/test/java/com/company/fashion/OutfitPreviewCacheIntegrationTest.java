@@ -0,0 +1,152 @@
+package com.company.fashion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.company.fashion.modules.clothing.dto.CreateClothingRequest;
+import com.company.fashion.modules.clothing.dto.UpdateClothingRequest;
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.clothing.entity.ClothingStatus;
+import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.clothing.service.ClothingService;
+import com.company.fashion.modules.match.ai.AiClientRouter;
+import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.match.ai.ReferenceImageCache;
+import com.company.fashion.modules.match.dto.OutfitPreviewResponse;
+import com.company.fashion.modules.match.repository.OutfitPreviewCacheRepository;
+import com.company.fashion.modules.match.service.OutfitPreviewService;
+import com.company.fashion.modules.member.dto.CreateMemberRequest;
+import com.company.fashion.modules.member.dto.UpdateMemberRequest;
+import com.company.fashion.modules.member.entity.Member;
+import com.company.fashion.modules.member.service.MemberService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = "app.match.preview-cache.enabled=true")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class OutfitPreviewCacheIntegrationTest {
+
+  private static final String BODY_DATA = "{\"version\":2,\"measurements\":{\"heightCm\":170,\"weightKg\":52,"
+      + "\"shoulderWidthCm\":38,\"bustCm\":86,\"waistCm\":64,\"hipCm\":90,\"bodyShape\":\"H\","
+      + "\"legRatio\":\"regular\",\"topSize\":\"M\",\"bottomSize\":\"M\"}}";
+
+  @Autowired
+  private OutfitPreviewService outfitPreviewService;
+
+  @Autowired
+  private MemberService memberService;
+
+  @Autowired
+  private ClothingService clothingService;
+
+  @Autowired
+  private OutfitPreviewCacheRepository cacheRepository;
+
+  @MockBean
+  private AiClientRouter aiClientRouter;
+
+  @MockBean
+  private ReferenceImageCache referenceImageCache;
+
+  // Content hash per image URL; tests change an entry to simulate a re-upload behind the same URL.
+  private final Map<String, String> imageHashes = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  void setUpMocks() {
+    when(aiClientRouter.generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class)))
+        .thenReturn(new OutfitPreviewResponse("TITLE", "DESC", "PROMPT"));
+    when(referenceImageCache.contentHashes(anyList(), anyInt(), anyInt(), anyString()))
+        .thenAnswer(invocation -> {
+          List<ReferenceImageCache.ImageReference> references = invocation.getArgument(0);
+          return references.stream()
+              .map(reference -> imageHashes.getOrDefault(reference.url(), "hash-of-" + reference.url()))
+              .toList();
+        });
+  }
+
+  @Test
+  void repeatPreviewShouldBeServedFromCacheUntilContentChanges() {
+    Fixture fixture = fixture();
+
+    OutfitPreviewResponse first = generate(fixture, "daily-live", AiLanguage.EN);
+    OutfitPreviewResponse second = generate(fixture, "daily-live", AiLanguage.EN);
+
+    assertThat(second).isEqualTo(first);
+    assertThat(cacheRepository.countByMemberId(fixture.member().getId())).isEqualTo(1);
+    verify(aiClientRouter, times(1)).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+
+    // Scene, language and image content are part of the key.
+    generate(fixture, "outdoor", AiLanguage.EN);
+    generate(fixture, "daily-live", AiLanguage.ZH);
+    imageHashes.put("https://img.test/cache-top.jpg", "re-uploaded");
+    generate(fixture, "daily-live", AiLanguage.EN);
+    verify(aiClientRouter, times(4)).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+  }
+
+  @Test
+  void photoOrImageUrlChangeShouldInvalidateEntries() {
+    Fixture fixture = fixture();
+    generate(fixture, "daily-live", AiLanguage.EN);
+    generate(fixture, "outdoor", AiLanguage.EN);
+    Long memberId = fixture.member().getId();
+
+    // Other profile edits and shelf status keep the entries.
+    memberService.update(memberId, new UpdateMemberRequest(null, null, fixture.member().getPhotoUrl(), "casual,street"));
+    clothingService.updateStatus(fixture.top().getId(), ClothingStatus.OFF_SHELF);
+    assertThat(cacheRepository.countByMemberId(memberId)).isEqualTo(2);
+
+    clothingService.update(fixture.bottom().getId(), new UpdateClothingRequest(
+        null, "https://img.test/cache-bottom-v2.jpg", null, ClothingType.BOTTOM, null
+    ));
+    assertThat(cacheRepository.countByMemberId(memberId)).isZero();
+
+    generate(fixture(memberId, fixture.top().getId(), fixture.bottom().getId()), "daily-live", AiLanguage.EN);
+    memberService.update(memberId, new UpdateMemberRequest(null, null, "https://img.test/cache-member-v2.jpg", null));
+    assertThat(cacheRepository.countByMemberId(memberId)).isZero();
+  }
+
+  private OutfitPreviewResponse generate(Fixture fixture, String scene, AiLanguage language) {
+    OutfitPreviewService.OutfitPreviewDecision decision = outfitPreviewService.generate(
+        fixture.member(), List.of(fixture.top(), fixture.bottom()), scene, language
+    );
+    assertThat(decision.warning()).isNull();
+    return decision.preview();
+  }
+
+  private Fixture fixture() {
+    Long memberId = memberService.create(new CreateMemberRequest(
+        "CachePreviewMember", BODY_DATA, "https://img.test/cache-member.jpg", "casual"
+    )).id();
+    Long topId = clothingService.create(new CreateClothingRequest(
+        "CacheTop", "https://img.test/cache-top.jpg", "casual", ClothingType.TOP, ClothingStatus.ON_SHELF, null
+    )).id();
+    Long bottomId = clothingService.create(new CreateClothingRequest(
+        "CacheBottom", "https://img.test/cache-bottom.jpg", "casual", ClothingType.BOTTOM, ClothingStatus.ON_SHELF, null
+    )).id();
+    return fixture(memberId, topId, bottomId);
+  }
+
+  private Fixture fixture(Long memberId, Long topId, Long bottomId) {
+    return new Fixture(
+        memberService.getActiveEntity(memberId),
+        clothingService.getActiveEntity(topId),
+        clothingService.getActiveEntity(bottomId)
+    );
+  }
+
+  private record Fixture(Member member, Clothing top, Clothing bottom) {
+  }
+}
@@ -0,0 +1,106 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.company.fashion.modules.member.service.BodyProfileService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class AbstractLangChainAiClientSupportCapabilityTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractLangChainAiClientSupportCapabilityTest.class);
+
+  @Test
+  void rejectedSchemaShouldBeRememberedPerModel() {
+    TestSupport support = new TestSupport();
+    SchemaRejectingModel gateway = new SchemaRejectingModel("gateway-model");
+
+    support.chat(gateway);
+    support.chat(gateway);
+
+    // First call: schema (rejected) then JSON mode; second call goes straight to JSON mode.
+    assertThat(gateway.formats).containsExactly("schema", "json", "json");
+
+    SchemaRejectingModel otherModel = new SchemaRejectingModel("other-model");
+    support.chat(otherModel);
+    assertThat(otherModel.formats).containsExactly("schema", "json");
+  }
+
+  @Test
+  void rejectionShouldBeReprobedAfterRecheckPeriod() {
+    AbstractLangChainAiClientSupport.StructuredOutputCapabilities capabilities =
+        new AbstractLangChainAiClientSupport.StructuredOutputCapabilities(Duration.ZERO);
+
+    assertThat(capabilities.shouldSendSchema("OpenAI", "m")).isTrue();
+    capabilities.recordSchemaUnsupported("OpenAI", "m");
+    assertThat(capabilities.schemaSupport("OpenAI", "m"))
+        .isEqualTo(AbstractLangChainAiClientSupport.StructuredOutputCapabilities.SchemaSupport.UNSUPPORTED);
+    assertThat(capabilities.shouldSendSchema("OpenAI", "m")).isTrue();
+
+    AbstractLangChainAiClientSupport.StructuredOutputCapabilities longLived =
+        new AbstractLangChainAiClientSupport.StructuredOutputCapabilities();
+    longLived.recordSchemaUnsupported("OpenAI", "m");
+    assertThat(longLived.shouldSendSchema("OpenAI", "m")).isFalse();
+    longLived.recordSchemaSupported("OpenAI", "m");
+    assertThat(longLived.shouldSendSchema("OpenAI", "m")).isTrue();
+  }
+
+  @Test
+  void responseFormatsShouldBeMemoized() {
+    AbstractLangChainAiClientSupport.StructuredOutputParser parser =
+        new AbstractLangChainAiClientSupport.StructuredOutputParser();
+
+    assertThat(parser.buildResponseFormatFor(AbstractLangChainAiClientSupport.AiSuggestionEnvelope.class, "OpenAI", "suggestion"))
+        .isSameAs(parser.buildResponseFormatFor(AbstractLangChainAiClientSupport.AiSuggestionEnvelope.class, "OpenAI", "suggestion"));
+    assertThat(parser.jsonOnlyResponseFormat()).isSameAs(parser.jsonOnlyResponseFormat());
+  }
+
+  private static final class SchemaRejectingModel implements ChatModel {
+
+    private final String modelName;
+    private final List<String> formats = new CopyOnWriteArrayList<>();
+
+    private SchemaRejectingModel(String modelName) {
+      this.modelName = modelName;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+      return ChatRequestParameters.builder().modelName(modelName).build();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+      boolean schema = request.responseFormat() != null && request.responseFormat().jsonSchema() != null;
+      formats.add(schema ? "schema" : "json");
+      if (schema) {
+        throw new IllegalArgumentException("response_format json_schema is not supported by this gateway");
+      }
+      return ChatResponse.builder().aiMessage(AiMessage.from("{\"outfits\":[]}")).build();
+    }
+  }
+
+  private static final class TestSupport extends AbstractLangChainAiClientSupport {
+
+    private TestSupport() {
+      super(new PromptBuilder(new BodyProfileService(new ObjectMapper())));
+    }
+
+    private ChatResponse chat(ChatModel model) {
+      List<ChatMessage> messages = List.of(UserMessage.from("recommend"));
+      return chatWithStructuredFallback(model, messages, suggestionsType(), "Test", "suggestion", LOG, null);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.match.dto.TaskStage;
+import com.company.fashion.modules.member.service.BodyProfileService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AbstractLangChainAiClientSupportStreamingTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractLangChainAiClientSupportStreamingTest.class);
+  private final TestSupport support = new TestSupport();
+
+  @Test
+  void shouldReportEachValidOutfitAsItStreamsAndRankTheResult() {
+    List<Clothing> candidates = List.of(
+        clothing(1L, ClothingType.TOP),
+        clothing(2L, ClothingType.BOTTOM),
+        clothing(3L, ClothingType.TOP)
+    );
+    String response = """
+        {"outfits":[
+          {"topClothingId":1,"bottomClothingId":2,"score":70,"reason":"fits {well}"},
+          {"topClothingId":1,"bottomClothingId":99,"score":99,"reason":"unknown id"},
+          {"topClothingId":2,"bottomClothingId":3,"score":90,"reason":"reversed \\"pair\\""}
+        ]}
+        """;
+    List<String> events = new CopyOnWriteArrayList<>();
+    AiProgressListener listener = new AiProgressListener() {
+      @Override
+      public void onStage(TaskStage stage, java.util.Map<String, Object> details) {
+        events.add(stage.name());
+      }
+
+      @Override
+      public void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+        events.add("outfit#" + sequence + ":" + outfit.topClothingId() + "+" + outfit.bottomClothingId());
+      }
+    };
+
+    List<AiClientRouter.AiOutfitSuggestion> result = support.stream(new ChunkedModel(response, 7), candidates, 8, listener);
+
+    assertThat(events).containsExactly(
+        "LLM_REQUEST_SENT",
+        "FIRST_TOKEN",
+        "outfit#1:1+2",
+        "outfit#2:3+2"
+    );
+    assertThat(result).extracting(AiClientRouter.AiOutfitSuggestion::score).containsExactly(90, 70);
+    assertThat(result.getFirst().topClothingId()).isEqualTo(3L);
+    assertThat(result.getFirst().reason()).isEqualTo("reversed \"pair\"");
+  }
+
+  @Test
+  void shouldCancelStreamOnceDesiredOutfitsHaveArrived() {
+    List<Clothing> candidates = List.of(
+        clothing(1L, ClothingType.TOP),
+        clothing(2L, ClothingType.BOTTOM),
+        clothing(3L, ClothingType.TOP),
+        clothing(4L, ClothingType.BOTTOM)
+    );
+    String response = """
+        {"outfits":[
+          {"topClothingId":1,"bottomClothingId":2,"score":70,"reason":"a"},
+          {"topClothingId":1,"bottomClothingId":2,"score":75,"reason":"duplicate"},
+          {"topClothingId":3,"bottomClothingId":4,"score":90,"reason":"b"},
+          {"topClothingId":1,"bottomClothingId":4,"score":99,"reason":"never reached"}
+        ]}
+        """;
+    CancellableModel model = new CancellableModel(response, 5);
+    List<Integer> sequences = new CopyOnWriteArrayList<>();
+    AiProgressListener listener = new AiProgressListener() {
+      @Override
+      public void onStage(TaskStage stage, java.util.Map<String, Object> details) {
+      }
+
+      @Override
+      public void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+        sequences.add(sequence);
+      }
+    };
+
+    List<AiClientRouter.AiOutfitSuggestion> result = support.stream(model, candidates, 2, listener);
+
+    assertThat(result).extracting(AiClientRouter.AiOutfitSuggestion::reason).containsExactly("b", "a");
+    assertThat(sequences).containsExactly(1, 2);
+    assertThat(model.handle.isCancelled()).isTrue();
+    assertThat(model.request.maxOutputTokens()).isEqualTo(576);
+  }
+
+  @Test
+  void shouldComputeOutputTokenCapFromDesiredOutfits() {
+    assertThat(AbstractLangChainAiClientSupport.suggestionOutputTokenCap(3, 160, 256)).isEqualTo(736);
+    assertThat(AbstractLangChainAiClientSupport.suggestionOutputTokenCap(3, 0, 256)).isNull();
+  }
+
+  @Test
+  void shouldParseBareArrayAcrossArbitraryChunkBoundaries() {
+    AbstractLangChainAiClientSupport.OutfitStreamParser parser = new AbstractLangChainAiClientSupport.OutfitStreamParser();
+    String text = "[{\"topClothingId\":1,\"bottomClothingId\":2,\"score\":80,\"reason\":\"a]b\"},"
+        + "{\"topClothingId\":3,\"bottomClothingId\":4,\"score\":60,\"extra\":{\"x\":[1]}}]";
+
+    List<AbstractLangChainAiClientSupport.AiSuggestionPayload> parsed = new ArrayList<>();
+    for (int i = 0; i < text.length(); i += 3) {
+      parsed.addAll(parser.feed(text.substring(i, Math.min(text.length(), i + 3))));
+    }
+
+    assertThat(parsed).extracting(AbstractLangChainAiClientSupport.AiSuggestionPayload::getTopClothingId)
+        .containsExactly(1L, 3L);
+    assertThat(parsed.getFirst().getReason()).isEqualTo("a]b");
+  }
+
+  private static Clothing clothing(Long id, ClothingType type) {
+    Clothing clothing = new Clothing();
+    ReflectionTestUtils.setField(clothing, "id", id);
+    clothing.setClothingType(type);
+    return clothing;
+  }
+
+  /**
+   * Replays a fixed response in small chunks from another thread, like a provider SSE stream.
+   */
+  private record ChunkedModel(String text, int chunkSize) implements StreamingChatModel {
+
+    @Override
+    public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+      Thread.ofVirtual().start(() -> {
+        for (int i = 0; i < text.length(); i += chunkSize) {
+          handler.onPartialResponse(text.substring(i, Math.min(text.length(), i + chunkSize)));
+        }
+        handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(text)).build());
+      });
+    }
+  }
+
+  /**
+   * Streams chunks with a {@link StreamingHandle} and stops emitting once it is cancelled.
+   */
+  private static final class CancellableModel implements StreamingChatModel {
+
+    private final String text;
+    private final int chunkSize;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final StreamingHandle handle = new StreamingHandle() {
+      @Override
+      public void cancel() {
+        cancelled.set(true);
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return cancelled.get();
+      }
+    };
+    private volatile ChatRequest request;
+
+    private CancellableModel(String text, int chunkSize) {
+      this.text = text;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+      this.request = request;
+      Thread.ofVirtual().start(() -> {
+        PartialResponseContext context = new PartialResponseContext(handle);
+        for (int i = 0; i < text.length() && !handle.isCancelled(); i += chunkSize) {
+          handler.onPartialResponse(new PartialResponse(text.substring(i, Math.min(text.length(), i + chunkSize))), context);
+        }
+        if (!handle.isCancelled()) {
+          handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(text)).build());
+        }
+      });
+    }
+  }
+
+  private static final class TestSupport extends AbstractLangChainAiClientSupport {
+
+    private TestSupport() {
+      super(new PromptBuilder(new BodyProfileService(new ObjectMapper())));
+    }
+
+    private List<AiClientRouter.AiOutfitSuggestion> stream(
+        StreamingChatModel model,
+        List<Clothing> candidates,
+        int desiredOutfits,
+        AiProgressListener listener
+    ) {
+      List<ChatMessage> messages = List.of(UserMessage.from("recommend"));
+      Integer maxOutputTokens = suggestionOutputTokenCap(desiredOutfits, 160, 256);
+      return streamSuggestions(model, messages, candidates, desiredOutfits, maxOutputTokens, "Test", LOG, listener);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.company.fashion.modules.match.dto.TaskStage;
+import com.company.fashion.modules.member.entity.Member;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AiClientRouterTest {
+
+  private static final List<AiClientRouter.AiOutfitSuggestion> GEMINI_RESULT =
+      List.of(new AiClientRouter.AiOutfitSuggestion(1L, 2L, 90, "gemini"));
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final GeminiClient geminiClient = mock(GeminiClient.class);
+  private final OpenaiClient openaiClient = mock(OpenaiClient.class);
+  private final AiLatencyTracker latencyTracker = new AiLatencyTracker();
+  private final AiProviderHealth health = new AiProviderHealth(meterRegistry);
+  private final AiConcurrencyLimiter concurrencyLimiter = new AiConcurrencyLimiter();
+  private final AiClientRouter router = new AiClientRouter(
+      geminiClient,
+      openaiClient,
+      concurrencyLimiter,
+      new AiRequestHedger(latencyTracker, meterRegistry),
+      latencyTracker,
+      health,
+      meterRegistry
+  );
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(latencyTracker, "windowSize", 100);
+    ReflectionTestUtils.setField(concurrencyLimiter, "openaiMaxConcurrency", 4);
+    ReflectionTestUtils.setField(concurrencyLimiter, "geminiMaxConcurrency", 4);
+    ReflectionTestUtils.setField(health, "alpha", 0.3);
+    ReflectionTestUtils.setField(health, "minCalls", 5);
+    ReflectionTestUtils.setField(health, "failureRateThreshold", 0.5);
+    ReflectionTestUtils.setField(health, "consecutiveFailuresToOpen", 3);
+    ReflectionTestUtils.setField(health, "openDurationMs", 60_000L);
+    ReflectionTestUtils.setField(health, "latencySwitchRatio", 2.0);
+    ReflectionTestUtils.setField(health, "staleAfterMs", 60_000L);
+    ReflectionTestUtils.setField(router, "provider", "openai");
+    ReflectionTestUtils.setField(router, "routingEnabled", true);
+    ReflectionTestUtils.setField(router, "timeoutMultiplier", 3.0);
+    ReflectionTestUtils.setField(router, "minAttemptTimeoutMs", 50L);
+    when(openaiClient.isConfigured()).thenReturn(true);
+    when(geminiClient.isConfigured()).thenReturn(true);
+    when(geminiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenReturn(GEMINI_RESULT);
+  }
+
+  @Test
+  void hungPrimaryShouldFailOverAfterAttemptTimeout() {
+    health.recordSuccess("openai", "suggestion", Duration.ofMillis(20));
+    when(openaiClient.maxCallMs(false)).thenReturn(200L);
+    when(openaiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          Thread.sleep(Duration.ofSeconds(30));
+          return List.of();
+        });
+
+    long started = System.nanoTime();
+    List<AiClientRouter.AiOutfitSuggestion> result = suggest();
+
+    assertThat(result).isEqualTo(GEMINI_RESULT);
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+    assertThat(meterRegistry.get("match.ai.provider.timeout.rate").tag("provider", "openai").gauge().value())
+        .isPositive();
+    assertThat(meterRegistry.get("match.ai.failover").tag("provider", "openai").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void hedgedCallsShouldKeepTheAttemptTimeout() {
+    AiRequestHedger hedger = (AiRequestHedger) ReflectionTestUtils.getField(router, "requestHedger");
+    ReflectionTestUtils.setField(hedger, "enabled", true);
+    ReflectionTestUtils.setField(hedger, "delayPercentile", 0.9);
+    ReflectionTestUtils.setField(hedger, "minSamples", 20);
+    ReflectionTestUtils.setField(hedger, "initialDelayMs", 10_000L);
+    ReflectionTestUtils.setField(hedger, "minDelayMs", 10_000L);
+    ReflectionTestUtils.setField(hedger, "maxDelayMs", 10_000L);
+    health.recordSuccess("openai", "suggestion", Duration.ofMillis(20));
+    when(openaiClient.maxCallMs(false)).thenReturn(200L);
+    when(openaiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          Thread.sleep(Duration.ofSeconds(30));
+          return List.of();
+        });
+
+    long started = System.nanoTime();
+    List<AiClientRouter.AiOutfitSuggestion> result = suggest();
+
+    // The hedge delay is 10s; the 200ms attempt timeout is what hands the call to Gemini.
+    assertThat(result).isEqualTo(GEMINI_RESULT);
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+    assertThat(meterRegistry.get("match.ai.hedge").tag("outcome", "failover").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void attemptTimeoutShouldWaitForMeasuredLatencyAndStayWithinProviderLimit() {
+    // Unmeasured: the first call runs to the provider's own timeout instead of failing over.
+    when(openaiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          Thread.sleep(300);
+          return List.of();
+        });
+    suggest();
+    verify(geminiClient, never()).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+
+    // Measured: latency x multiplier, capped by the provider's limit for the operation.
+    when(openaiClient.maxCallMs(false)).thenReturn(400L);
+    assertThat((long) ReflectionTestUtils.invokeMethod(router, "attemptTimeoutMs", "openai", "suggestion"))
+        .isEqualTo(400L);
+    when(openaiClient.maxCallMs(true)).thenReturn(10_000L);
+    health.recordSuccess("openai", "preview", Duration.ofMillis(1000));
+    assertThat((long) ReflectionTestUtils.invokeMethod(router, "attemptTimeoutMs", "openai", "preview"))
+        .isEqualTo(3000L);
+  }
+
+  @Test
+  void openCircuitShouldRouteStraightToTheOtherProvider() {
+    when(openaiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenThrow(new IllegalStateException("OpenAI suggestion failed: 502"));
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(suggest()).isEqualTo(GEMINI_RESULT);
+    }
+    assertThat(health.state("openai", "suggestion")).isEqualTo(AiProviderHealth.CircuitState.OPEN);
+
+    clearInvocations(openaiClient);
+    assertThat(suggest()).isEqualTo(GEMINI_RESULT);
+    verify(openaiClient, never()).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+  }
+
+  @Test
+  void inputErrorsShouldNotFailOverOrCountAgainstTheProvider() {
+    when(openaiClient.generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class)))
+        .thenThrow(new AiInputException("preview generation failed: no selected clothing"));
+
+    assertThatThrownBy(() -> router.generateOutfitPreview(new Member(), List.of(), "daily", AiLanguage.EN))
+        .isInstanceOf(AiInputException.class);
+
+    verify(geminiClient, never()).generateOutfitPreview(any(), anyList(), anyString(), any(AiLanguage.class));
+    assertThat(meterRegistry.get("match.ai.provider.error.rate").tag("provider", "openai").gauge().value()).isZero();
+  }
+
+  @Test
+  void singleConfiguredProviderShouldBeCalledWithoutAttemptTimeout() {
+    when(geminiClient.isConfigured()).thenReturn(false);
+    when(openaiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          Thread.sleep(300);
+          return GEMINI_RESULT;
+        });
+
+    assertThat(suggest()).isEqualTo(GEMINI_RESULT);
+    verify(geminiClient, never()).suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any());
+  }
+
+  @Test
+  void failoverShouldStreamTheWinningAttemptsOutfits() {
+    AiClientRouter.AiOutfitSuggestion dead = new AiClientRouter.AiOutfitSuggestion(7L, 8L, 60, "openai");
+    when(openaiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          invocation.<AiProgressListener>getArgument(6).onOutfit(dead, 1);
+          throw new IllegalStateException("OpenAI suggestion failed: stream reset");
+        });
+    when(geminiClient.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          invocation.<AiProgressListener>getArgument(6).onOutfit(GEMINI_RESULT.get(0), 1);
+          return GEMINI_RESULT;
+        });
+    List<String> streamed = new CopyOnWriteArrayList<>();
+    AiProgressListener listener = new AiProgressListener() {
+      @Override
+      public void onStage(TaskStage stage, Map<String, Object> details) {
+      }
+
+      @Override
+      public void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+        streamed.add(outfit.reason() + "#" + sequence);
+      }
+    };
+
+    router.suggest(new Member(), List.of(), List.of(), "daily", AiLanguage.EN, 3, listener);
+
+    assertThat(streamed).containsExactly("openai#1", "gemini#1");
+  }
+
+  private List<AiClientRouter.AiOutfitSuggestion> suggest() {
+    return router.suggest(new Member(), List.of(), List.of(), "daily", AiLanguage.EN, 3, AiProgressListener.NOOP);
+  }
+}
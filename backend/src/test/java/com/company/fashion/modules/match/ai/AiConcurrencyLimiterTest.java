@@ -0,0 +1,67 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AiConcurrencyLimiterTest {
+
+  @Test
+  void shouldCapConcurrentCallsPerProvider() throws Exception {
+    AiConcurrencyLimiter limiter = new AiConcurrencyLimiter();
+    ReflectionTestUtils.setField(limiter, "openaiMaxConcurrency", 2);
+    ReflectionTestUtils.setField(limiter, "geminiMaxConcurrency", 5);
+
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(10);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 10; i++) {
+        executor.submit(() -> {
+          limiter.call("openai", () -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(20);
+            running.decrementAndGet();
+            return null;
+          });
+          done.countDown();
+        });
+      }
+      assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    assertThat(peak.get()).isEqualTo(2);
+    assertThat(limiter.availablePermits("openai")).isEqualTo(2);
+    assertThat(limiter.availablePermits("Gemini")).isEqualTo(5);
+  }
+
+  @Test
+  void shouldReleasePermitWhenCallFails() {
+    AiConcurrencyLimiter limiter = new AiConcurrencyLimiter();
+    ReflectionTestUtils.setField(limiter, "geminiMaxConcurrency", 1);
+
+    try {
+      limiter.call("gemini", () -> {
+        throw new IllegalStateException("boom");
+      });
+    } catch (IllegalStateException ignored) {
+      // expected
+    }
+
+    assertThat(limiter.availablePermits("gemini")).isEqualTo(1);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AiModelRegistryTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AiModelRegistry registry = new AiModelRegistry(meterRegistry);
+  private final AtomicInteger builds = new AtomicInteger();
+
+  @Test
+  void sameSettingsShouldReuseTheCachedModel() {
+    Object first = registry.get(key("gpt-4o-mini", 120_000), this::build);
+    Object second = registry.get(key("gpt-4o-mini", 120_000), this::build);
+
+    assertThat(second).isSameAs(first);
+    assertThat(builds).hasValue(1);
+    assertThat(setupCount("created")).isEqualTo(1);
+    assertThat(setupCount("reused")).isEqualTo(1);
+  }
+
+  @Test
+  void changedSettingsShouldSwapTheModelInPlace() {
+    Object original = registry.get(key("gpt-4o-mini", 120_000), this::build);
+    Object refreshed = registry.get(key("gpt-4o-mini", 30_000), this::build);
+    Object streaming = registry.get(
+        AiModelRegistry.ModelKey.of("openai", AiModelRegistry.Kind.STREAMING, "https://api.openai.com/v1",
+            "gpt-4o-mini", "sk-test", 30_000, 30_000, "", 0),
+        this::build
+    );
+
+    assertThat(refreshed).isNotSameAs(original);
+    assertThat(streaming).isNotSameAs(refreshed);
+    assertThat(registry.size()).isEqualTo(2);
+    assertThat(registry.get(key("gpt-4o-mini", 30_000), this::build)).isSameAs(refreshed);
+  }
+
+  @Test
+  void keyShouldNotExposeTheApiKey() {
+    AiModelRegistry.ModelKey key = key("gpt-4o-mini", 120_000);
+
+    assertThat(key.toString()).doesNotContain("sk-test");
+    assertThat(key).isNotEqualTo(AiModelRegistry.ModelKey.of("openai", AiModelRegistry.Kind.CHAT,
+        "https://api.openai.com/v1", "gpt-4o-mini", "sk-rotated", 30_000, 120_000, "", 0));
+  }
+
+  private AiModelRegistry.ModelKey key(String model, int readTimeoutMs) {
+    return AiModelRegistry.ModelKey.of("openai", AiModelRegistry.Kind.CHAT, "https://api.openai.com/v1",
+        model, "sk-test", 30_000, readTimeoutMs, "", 0);
+  }
+
+  private Object build(AiModelRegistry.ModelKey key) {
+    builds.incrementAndGet();
+    return new Object();
+  }
+
+  private long setupCount(String outcome) {
+    return meterRegistry.get("match.ai.client.setup").tag("outcome", outcome).timer().count();
+  }
+}
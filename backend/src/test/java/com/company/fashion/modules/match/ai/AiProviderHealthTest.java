@@ -0,0 +1,84 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AiProviderHealthTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AiProviderHealth health = new AiProviderHealth(meterRegistry);
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(health, "alpha", 0.3);
+    ReflectionTestUtils.setField(health, "minCalls", 5);
+    ReflectionTestUtils.setField(health, "failureRateThreshold", 0.5);
+    ReflectionTestUtils.setField(health, "consecutiveFailuresToOpen", 3);
+    ReflectionTestUtils.setField(health, "openDurationMs", 100L);
+    ReflectionTestUtils.setField(health, "latencySwitchRatio", 2.0);
+    ReflectionTestUtils.setField(health, "staleAfterMs", 60_000L);
+  }
+
+  @Test
+  void circuitShouldOpenAfterConsecutiveFailuresAndCloseAfterSuccessfulProbe() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertThat(health.tryAcquire("openai", "suggestion")).isTrue();
+      health.recordFailure("openai", "suggestion", Duration.ofMillis(50), true);
+    }
+
+    assertThat(health.state("openai", "suggestion")).isEqualTo(AiProviderHealth.CircuitState.OPEN);
+    assertThat(health.tryAcquire("openai", "suggestion")).isFalse();
+    assertThat(health.tryAcquire("openai", "preview")).isTrue();
+    assertThat(meterRegistry.get("match.ai.provider.timeout.rate").tag("provider", "openai").gauge().value())
+        .isEqualTo(1.0);
+
+    Thread.sleep(150);
+    assertThat(health.tryAcquire("openai", "suggestion")).isTrue();
+    assertThat(health.state("openai", "suggestion")).isEqualTo(AiProviderHealth.CircuitState.HALF_OPEN);
+    // Only one probe at a time.
+    assertThat(health.tryAcquire("openai", "suggestion")).isFalse();
+
+    health.recordSuccess("openai", "suggestion", Duration.ofMillis(40));
+    assertThat(health.state("openai", "suggestion")).isEqualTo(AiProviderHealth.CircuitState.CLOSED);
+    assertThat(health.tryAcquire("openai", "suggestion")).isTrue();
+  }
+
+  @Test
+  void failedProbeShouldReopenAndReleasedProbeShouldAllowAnother() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      health.recordFailure("gemini", "preview", Duration.ofMillis(10), false);
+    }
+    Thread.sleep(150);
+
+    assertThat(health.tryAcquire("gemini", "preview")).isTrue();
+    health.release("gemini", "preview");
+    assertThat(health.tryAcquire("gemini", "preview")).isTrue();
+    health.recordFailure("gemini", "preview", Duration.ofMillis(10), false);
+
+    assertThat(health.state("gemini", "preview")).isEqualTo(AiProviderHealth.CircuitState.OPEN);
+    assertThat(health.isAvailable("gemini", "preview")).isFalse();
+  }
+
+  @Test
+  void shouldPreferAlternativeOnlyWhenPreferredIsMuchWorse() {
+    assertThat(health.shouldPrefer("gemini", "openai", "suggestion")).isFalse();
+
+    for (int i = 0; i < 5; i++) {
+      health.recordSuccess("openai", "suggestion", Duration.ofMillis(1_000));
+      health.recordSuccess("gemini", "suggestion", Duration.ofMillis(800));
+    }
+    assertThat(health.latencyMillis("openai", "suggestion")).isEqualTo(1_000L);
+    assertThat(health.shouldPrefer("gemini", "openai", "suggestion")).isFalse();
+
+    for (int i = 0; i < 5; i++) {
+      health.recordSuccess("openai", "suggestion", Duration.ofMillis(5_000));
+    }
+    assertThat(health.shouldPrefer("gemini", "openai", "suggestion")).isTrue();
+    assertThat(health.shouldPrefer("openai", "gemini", "suggestion")).isFalse();
+  }
+}
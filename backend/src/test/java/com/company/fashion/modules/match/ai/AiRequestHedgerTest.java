@@ -0,0 +1,209 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.company.fashion.modules.match.dto.TaskStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AiRequestHedgerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AiLatencyTracker latencyTracker = new AiLatencyTracker();
+  private final AiRequestHedger hedger = new AiRequestHedger(latencyTracker, meterRegistry);
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(latencyTracker, "windowSize", 100);
+    ReflectionTestUtils.setField(hedger, "enabled", true);
+    ReflectionTestUtils.setField(hedger, "delayPercentile", 0.9);
+    ReflectionTestUtils.setField(hedger, "minSamples", 10);
+    ReflectionTestUtils.setField(hedger, "initialDelayMs", 50L);
+    ReflectionTestUtils.setField(hedger, "minDelayMs", 10L);
+    ReflectionTestUtils.setField(hedger, "maxDelayMs", 5000L);
+    ReflectionTestUtils.setField(hedger, "maxHedgeRatio", 0.0);
+  }
+
+  @Test
+  void slowPrimaryShouldBeHedgedAndCancelledWhenSecondaryWins() throws Exception {
+    CountDownLatch primaryCancelled = new CountDownLatch(1);
+    List<String> events = new CopyOnWriteArrayList<>();
+    AiProgressListener listener = new AiProgressListener() {
+      @Override
+      public void onStage(TaskStage stage, Map<String, Object> details) {
+        events.add(stage.name());
+      }
+
+      @Override
+      public void onOutfit(AiClientRouter.AiOutfitSuggestion outfit, int sequence) {
+        events.add("outfit#" + sequence + ":" + outfit.reason());
+      }
+    };
+
+    String result = hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<>("openai", progress -> {
+          progress.onStage(TaskStage.LLM_REQUEST_SENT);
+          progress.onOutfit(new AiClientRouter.AiOutfitSuggestion(1L, 2L, 90, "primary"), 1);
+          return blockUntilInterrupted(primaryCancelled);
+        }),
+        new AiRequestHedger.Attempt<>("gemini", progress -> {
+          progress.onStage(TaskStage.LLM_REQUEST_SENT);
+          progress.onOutfit(new AiClientRouter.AiOutfitSuggestion(3L, 4L, 80, "secondary"), 1);
+          progress.onStage(TaskStage.PARSED);
+          return "gemini-result";
+        }),
+        listener
+    );
+
+    assertThat(result).isEqualTo("gemini-result");
+    assertThat(primaryCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(events).containsExactly("LLM_REQUEST_SENT", "outfit#1:primary", "PARSED");
+    assertThat(counter("fired")).isEqualTo(1.0);
+    assertThat(counter("won")).isEqualTo(1.0);
+  }
+
+  @Test
+  void fastPrimaryShouldNotBeHedged() {
+    AtomicInteger secondaryCalls = new AtomicInteger();
+
+    String result = hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<>("openai", progress -> "openai-result"),
+        new AiRequestHedger.Attempt<>("gemini", progress -> {
+          secondaryCalls.incrementAndGet();
+          return "gemini-result";
+        }),
+        AiProgressListener.NOOP
+    );
+
+    assertThat(result).isEqualTo("openai-result");
+    assertThat(secondaryCalls).hasValue(0);
+    assertThat(counter("fired")).isZero();
+  }
+
+  @Test
+  void hedgesShouldStopOnceBudgetIsSpentAndFailuresWaitForTheOtherAttempt() {
+    String hedged = hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<String>("openai", progress -> {
+          sleep(200);
+          throw new IllegalStateException("OpenAI suggestion failed");
+        }),
+        new AiRequestHedger.Attempt<>("gemini", progress -> {
+          sleep(400);
+          return "gemini-result";
+        }),
+        AiProgressListener.NOOP
+    );
+    assertThat(hedged).isEqualTo("gemini-result");
+
+    // max-hedge-ratio=0: the initial credit is spent, so the next slow call waits for the primary.
+    String unhedged = hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<>("openai", progress -> {
+          sleep(200);
+          return "openai-result";
+        }),
+        new AiRequestHedger.Attempt<>("gemini", progress -> "gemini-result"),
+        AiProgressListener.NOOP
+    );
+
+    assertThat(unhedged).isEqualTo("openai-result");
+    assertThat(counter("fired")).isEqualTo(1.0);
+    assertThat(counter("budget_exhausted")).isEqualTo(1.0);
+  }
+
+  @Test
+  void primaryFailingBeforeTheHedgeDelayShouldFailOverWithoutSpendingCredit() {
+    ReflectionTestUtils.setField(hedger, "initialDelayMs", 1000L);
+
+    String result = hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<String>("openai", progress -> {
+          sleep(10);
+          throw new IllegalStateException("OpenAI suggestion failed: HTTP 503");
+        }),
+        new AiRequestHedger.Attempt<>("gemini", progress -> "gemini-result"),
+        AiProgressListener.NOOP
+    );
+
+    assertThat(result).isEqualTo("gemini-result");
+    assertThat(counter("failover")).isEqualTo(1.0);
+    assertThat(counter("fired")).isZero();
+
+    // Input errors are not retried on the other provider.
+    AtomicInteger secondaryCalls = new AtomicInteger();
+    assertThatThrownBy(() -> hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<String>("openai", progress -> {
+          throw new AiInputException("OpenAI suggestion failed: no candidates");
+        }),
+        new AiRequestHedger.Attempt<>("gemini", progress -> {
+          secondaryCalls.incrementAndGet();
+          return "gemini-result";
+        }),
+        AiProgressListener.NOOP
+    )).isInstanceOf(AiInputException.class);
+    assertThat(secondaryCalls).hasValue(0);
+
+    // The failover spent no credit, so a slow call can still be hedged.
+    ReflectionTestUtils.setField(hedger, "initialDelayMs", 50L);
+    String hedged = hedger.call(
+        "suggestion",
+        new AiRequestHedger.Attempt<>("openai", progress -> {
+          sleep(2000);
+          return "openai-result";
+        }),
+        new AiRequestHedger.Attempt<>("gemini", progress -> "gemini-result"),
+        AiProgressListener.NOOP
+    );
+    assertThat(hedged).isEqualTo("gemini-result");
+    assertThat(counter("fired")).isEqualTo(1.0);
+  }
+
+  @Test
+  void hedgeDelayShouldFollowPrimaryPercentileOnceEnoughSamplesExist() {
+    assertThat(hedger.hedgeDelayMs("openai", "suggestion")).isEqualTo(50L);
+
+    for (int i = 1; i <= 10; i++) {
+      latencyTracker.record("openai", "suggestion", Duration.ofMillis(i * 100L));
+    }
+
+    assertThat(hedger.hedgeDelayMs("openai", "suggestion")).isEqualTo(900L);
+    assertThat(hedger.hedgeDelayMs("gemini", "suggestion")).isEqualTo(50L);
+  }
+
+  private double counter(String outcome) {
+    return meterRegistry.get("match.ai.hedge").tag("outcome", outcome).counter().count();
+  }
+
+  private static String blockUntilInterrupted(CountDownLatch cancelled) {
+    try {
+      Thread.sleep(Duration.ofSeconds(30));
+      return "openai-result";
+    } catch (InterruptedException ex) {
+      cancelled.countDown();
+      throw new IllegalStateException("Provider call interrupted", ex);
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -38,6 +38,19 @@ class AiStructuredOutputParserTest {
     assertThat(suggestions.getFirst().getReason()).isEqualTo("good fit");
   }
 
+  @Test
+  void shouldKeepCompleteItemsWhenOutputIsCutOff() {
+    String text = "{\"outfits\":[{\"topClothingId\":1,\"bottomClothingId\":2,\"score\":88,\"reason\":\"ok\"},"
+        + "{\"topClothingId\":3,\"bottomClothingId\":4,\"sco";
+    ChatResponse response = ChatResponse.builder().aiMessage(AiMessage.from(text)).build();
+
+    List<AbstractLangChainAiClientSupport.AiSuggestionPayload> suggestions =
+        parser.parseSuggestions(response, "OpenAI", log);
+
+    assertThat(suggestions).extracting(AbstractLangChainAiClientSupport.AiSuggestionPayload::getTopClothingId)
+        .containsExactly(1L);
+  }
+
   @Test
   void shouldParsePreviewToTypedPayload() {
     String text = """
@@ -7,6 +7,7 @@ import com.company.fashion.modules.clothing.entity.ClothingType;
 import com.company.fashion.modules.member.entity.Member;
 import com.company.fashion.modules.member.service.BodyProfileService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -27,12 +28,85 @@ class PromptBuilderTest {
     top.setClothingType(ClothingType.TOP);
     top.setStyleTags("kpop_sweet_cool");
 
-    String zhPrompt = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.ZH);
-    String enPrompt = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.EN);
-    String koPrompt = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.KO);
+    String zhPrompt = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.ZH, 8);
+    String enPrompt = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.EN, 8);
+    String koPrompt = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.KO, 8);
 
     assertThat(zhPrompt).contains("must be written in Chinese");
     assertThat(enPrompt).contains("must be written in English");
     assertThat(koPrompt).contains("must be written in Korean");
+    assertThat(enPrompt).contains("Return up to 8 valid outfits");
+    assertThat(promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.EN, 3))
+        .contains("Return up to 3 valid outfits");
+  }
+
+  @Test
+  void compactFormatShouldWriteOneDelimitedRowPerCandidate() {
+    Member member = member("casual");
+    Clothing top = clothing(7L, "Tee | white", ClothingType.TOP, "casual,summer");
+    top.setSizeData("{\"shoulderWidthCm\":38.0,\"bustCm\":96,\"topSize\":\"M\"}");
+
+    String compact = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.EN, 8);
+    ReflectionTestUtils.setField(promptBuilder, "candidateFormat", "verbose");
+    String verbose = promptBuilder.buildPrompt(member, List.of(top), List.of(), "daily-live", AiLanguage.EN, 8);
+
+    assertThat(compact).contains("id|type|name|styleTags|size\n7|TOP|Tee / white|casual,summer|sh:38 bu:96 ts:M")
+        .contains("sh=shoulderWidthCm");
+    assertThat(verbose).contains("- {id:7, name:\"Tee | white\", type:TOP").doesNotContain("id|type|name");
+  }
+
+  @Test
+  void overBudgetPromptShouldDropLeastRelevantCandidatesDeterministically() {
+    Member member = member("casual");
+    List<Clothing> candidates = new ArrayList<>();
+    for (long id = 1; id <= 40; id++) {
+      ClothingType type = id % 2 == 0 ? ClothingType.BOTTOM : ClothingType.TOP;
+      candidates.add(clothing(id, "Item " + id, type, id <= 4 ? "casual" : "formal"));
+    }
+    PromptBuilder.SuggestionPrompt unlimited =
+        promptBuilder.buildSuggestionPrompt(member, candidates, List.of(), "daily-live", AiLanguage.EN, 8);
+    ReflectionTestUtils.setField(promptBuilder, "maxInputTokens", unlimited.estimatedTokens() - 100);
+
+    PromptBuilder.SuggestionPrompt trimmed =
+        promptBuilder.buildSuggestionPrompt(member, candidates, List.of(), "daily-live", AiLanguage.EN, 8);
+
+    assertThat(unlimited.trimmedCandidates()).isZero();
+    assertThat(trimmed.untrimmedTokens()).isEqualTo(unlimited.estimatedTokens());
+    assertThat(trimmed.estimatedTokens()).isLessThanOrEqualTo(unlimited.estimatedTokens() - 100);
+    assertThat(trimmed.trimmedCandidates()).isPositive();
+    assertThat(trimmed.candidateCount() + trimmed.trimmedCandidates()).isEqualTo(40);
+    // Style matches survive; the highest ids among equally relevant items go first.
+    assertThat(trimmed.text()).contains("\n1|TOP|", "\n2|BOTTOM|", "\n3|TOP|", "\n4|BOTTOM|")
+        .doesNotContain("\n40|BOTTOM|", "\n39|TOP|");
+    assertThat(promptBuilder.buildSuggestionPrompt(member, candidates, List.of(), "daily-live", AiLanguage.EN, 8))
+        .isEqualTo(trimmed);
+
+    ReflectionTestUtils.setField(promptBuilder, "maxInputTokens", 1);
+    String minimal = promptBuilder.buildPrompt(member, candidates, List.of(), "daily-live", AiLanguage.EN, 8);
+    assertThat(minimal).contains("\n1|TOP|", "\n2|BOTTOM|").doesNotContain("\n3|TOP|");
+  }
+
+  @Test
+  void tokenEstimateShouldCountWideScriptsPerCharacter() {
+    assertThat(PromptTokenEstimator.estimate("")).isZero();
+    assertThat(PromptTokenEstimator.estimate("shoulder width")).isEqualTo(4);
+    assertThat(PromptTokenEstimator.estimate("id|type")).isEqualTo(3);
+    assertThat(PromptTokenEstimator.estimate("白色T恤")).isEqualTo(4);
+  }
+
+  private static Member member(String styleTags) {
+    Member member = new Member();
+    member.setName("MemberA");
+    member.setStyleTags(styleTags);
+    return member;
+  }
+
+  private static Clothing clothing(Long id, String name, ClothingType type, String styleTags) {
+    Clothing clothing = new Clothing();
+    ReflectionTestUtils.setField(clothing, "id", id);
+    clothing.setName(name);
+    clothing.setClothingType(type);
+    clothing.setStyleTags(styleTags);
+    return clothing;
   }
 }
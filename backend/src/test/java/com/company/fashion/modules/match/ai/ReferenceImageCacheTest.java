@@ -0,0 +1,251 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.image.Image;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ReferenceImageCacheTest {
+
+  private static final byte[] PHOTO = "fake-jpeg-bytes".getBytes(StandardCharsets.UTF_8);
+  private static final String ETAG = "\"v1\"";
+
+  @TempDir
+  Path cacheDir;
+
+  private HttpServer server;
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+  private final AtomicInteger slowRequests = new AtomicInteger();
+
+  @BeforeEach
+  void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/photo.jpg", exchange -> {
+      String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+      requests.add(ifNoneMatch == null ? "GET" : "GET If-None-Match");
+      exchange.getResponseHeaders().add("ETag", ETAG);
+      if (ETAG.equals(ifNoneMatch)) {
+        exchange.sendResponseHeaders(304, -1);
+      } else {
+        exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+        exchange.sendResponseHeaders(200, PHOTO.length);
+        exchange.getResponseBody().write(PHOTO);
+      }
+      exchange.close();
+    });
+    server.createContext("/slow", exchange -> {
+      // /slow/<millis>/<name>.jpg answers after the given delay.
+      long delay = Long.parseLong(exchange.getRequestURI().getPath().split("/")[2]);
+      slowRequests.incrementAndGet();
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      try {
+        exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+        exchange.sendResponseHeaders(200, PHOTO.length);
+        exchange.getResponseBody().write(PHOTO);
+      } catch (IOException ex) {
+        // Client gave up (deadline); nothing to answer.
+      }
+      exchange.close();
+    });
+    server.createContext("/missing.jpg", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void repeatedLoadsShouldBeServedFromMemory() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReferenceImageCache cache = cache(meterRegistry, 60_000L);
+
+    Image first = cache.load(url("/photo.jpg"), 1000, 1000, "Test preview failed");
+    Image second = cache.load(url("/photo.jpg"), 1000, 1000, "Test preview failed");
+
+    assertThat(second).isSameAs(first);
+    assertThat(Base64.getDecoder().decode(first.base64Data())).isEqualTo(PHOTO);
+    assertThat(first.mimeType()).isEqualTo("image/jpeg");
+    assertThat(requests).containsExactly("GET");
+    assertThat(outcome(meterRegistry, "miss")).isEqualTo(1.0);
+    assertThat(outcome(meterRegistry, "memory_hit")).isEqualTo(1.0);
+    assertThat(meterRegistry.get("match.ai.image.cache.bytes.saved").counter().count()).isEqualTo(PHOTO.length);
+  }
+
+  @Test
+  void staleEntriesShouldBeRevalidatedAndSurviveRestartOnDisk() {
+    ReferenceImageCache cache = cache(new SimpleMeterRegistry(), 0L);
+    cache.load(url("/photo.jpg"), 1000, 1000, "Test preview failed");
+    cache.load(url("/photo.jpg"), 1000, 1000, "Test preview failed");
+
+    // A fresh instance (e.g. after a restart) finds the bytes on disk and only revalidates.
+    SimpleMeterRegistry restartedRegistry = new SimpleMeterRegistry();
+    ReferenceImageCache restarted = cache(restartedRegistry, 60_000L);
+    Image image = restarted.load(url("/photo.jpg"), 1000, 1000, "Test preview failed");
+
+    assertThat(Base64.getDecoder().decode(image.base64Data())).isEqualTo(PHOTO);
+    assertThat(requests).containsExactly("GET", "GET If-None-Match", "GET If-None-Match");
+    assertThat(outcome(restartedRegistry, "revalidated")).isEqualTo(1.0);
+    assertThat(restartedRegistry.find("match.ai.image.cache").tag("outcome", "miss").counter()).isNull();
+  }
+
+  @Test
+  void failedDownloadsShouldBeInputErrors() {
+    ReferenceImageCache cache = cache(new SimpleMeterRegistry(), 60_000L);
+
+    assertThatThrownBy(() -> cache.load(url("/missing.jpg"), 1000, 1000, "Test preview failed"))
+        .isInstanceOf(AiInputException.class)
+        .hasMessageContaining("Test preview failed: unable to load image: HTTP 404");
+  }
+
+  @Test
+  void imagesShouldBeFetchedConcurrentlyInOrder() {
+    ReferenceImageCache cache = cache(new SimpleMeterRegistry(), 60_000L);
+    List<ReferenceImageCache.ImageReference> references = List.of(
+        new ReferenceImageCache.ImageReference("member_photo", url("/slow/400/a.jpg")),
+        new ReferenceImageCache.ImageReference("clothing id=1", url("/slow/400/b.jpg")),
+        new ReferenceImageCache.ImageReference("clothing id=2", url("/slow/400/c.jpg"))
+    );
+
+    long started = System.nanoTime();
+    List<Image> images = cache.loadAll(references, 1000, 5000, "Test preview failed");
+    long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+    assertThat(images).hasSize(3);
+    assertThat(Base64.getDecoder().decode(images.get(2).base64Data())).isEqualTo(PHOTO);
+    // Sequential fetching would take at least 1200ms.
+    assertThat(elapsedMs).isLessThan(1100);
+  }
+
+  @Test
+  void concurrentLoadsOfOneUrlShouldShareOneDownload() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReferenceImageCache cache = cache(meterRegistry, 60_000L);
+    String shared = url("/slow/300/member.jpg");
+
+    List<Future<Image>> loads = new ArrayList<>();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 4; i++) {
+        loads.add(executor.submit(() -> cache.load(shared, 1000, 5000, "Test preview failed")));
+      }
+    }
+
+    for (Future<Image> load : loads) {
+      assertThat(Base64.getDecoder().decode(load.get().base64Data())).isEqualTo(PHOTO);
+    }
+    assertThat(slowRequests.get()).isEqualTo(1);
+    assertThat(outcome(meterRegistry, "miss")).isEqualTo(1.0);
+    assertThat(outcome(meterRegistry, "coalesced")).isEqualTo(3.0);
+  }
+
+  @Test
+  void aWaiterPastItsDeadlineShouldNotFailTheSharedDownload() throws Exception {
+    ReferenceImageCache cache = cache(new SimpleMeterRegistry(), 60_000L);
+    ReflectionTestUtils.setField(cache, "fetchDeadlineMs", 100L);
+    String shared = url("/slow/500/shared.jpg");
+
+    Throwable timedOut;
+    Future<Image> patient;
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<Throwable> impatient = executor.submit(() -> catchThrowable(() -> cache.loadAll(
+          List.of(new ReferenceImageCache.ImageReference("member_photo", shared)), 1000, 5000, "Test preview failed"
+      )));
+      Thread.sleep(50);
+      patient = executor.submit(() -> cache.load(shared, 1000, 5000, "Test preview failed"));
+      timedOut = impatient.get();
+    }
+
+    assertThat(timedOut).isInstanceOf(ReferenceImageLoadException.class);
+    assertThat(Base64.getDecoder().decode(patient.get().base64Data())).isEqualTo(PHOTO);
+    assertThat(slowRequests.get()).isEqualTo(1);
+  }
+
+  @Test
+  void contentHashesShouldFollowImageBytesNotUrls() {
+    ReferenceImageCache cache = cache(new SimpleMeterRegistry(), 60_000L);
+    List<ReferenceImageCache.ImageReference> references = List.of(
+        new ReferenceImageCache.ImageReference("member_photo", url("/photo.jpg")),
+        new ReferenceImageCache.ImageReference("clothing id=1", url("/slow/0/same-bytes.jpg"))
+    );
+
+    List<String> hashes = cache.contentHashes(references, 1000, 5000, "Test preview failed");
+
+    assertThat(hashes).hasSize(2);
+    assertThat(hashes.get(0)).hasSize(64).isEqualTo(hashes.get(1));
+    assertThat(cache.contentHashes(references.subList(0, 1), 1000, 5000, "Test preview failed"))
+        .containsExactly(hashes.get(0));
+  }
+
+  @Test
+  void failedAndLateImagesShouldBeReportedTogether() {
+    ReferenceImageCache cache = cache(new SimpleMeterRegistry(), 60_000L);
+    ReflectionTestUtils.setField(cache, "fetchDeadlineMs", 300L);
+    List<ReferenceImageCache.ImageReference> references = List.of(
+        new ReferenceImageCache.ImageReference("member_photo", url("/photo.jpg")),
+        new ReferenceImageCache.ImageReference("clothing id=1", url("/missing.jpg")),
+        new ReferenceImageCache.ImageReference("clothing id=2", url("/slow/3000/late.jpg"))
+    );
+
+    long started = System.nanoTime();
+    Throwable thrown = catchThrowable(() -> cache.loadAll(references, 1000, 5000, "Test preview failed"));
+    long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+    assertThat(thrown).isInstanceOf(ReferenceImageLoadException.class)
+        .hasMessageStartingWith("Test preview failed: 2 of 3 reference images failed");
+    assertThat(((ReferenceImageLoadException) thrown).failures())
+        .extracting(ReferenceImageLoadException.Failure::label, ReferenceImageLoadException.Failure::timedOut)
+        .containsExactly(tuple("clothing id=1", false), tuple("clothing id=2", true));
+    assertThat(((ReferenceImageLoadException) thrown).failures().get(0).reason())
+        .isEqualTo("unable to load image: HTTP 404");
+    assertThat(elapsedMs).isLessThan(2000);
+  }
+
+  private ReferenceImageCache cache(SimpleMeterRegistry meterRegistry, long freshForMs) {
+    ReferenceImageCache cache = new ReferenceImageCache(meterRegistry, new ReferenceImageNormalizer(meterRegistry));
+    ReflectionTestUtils.setField(cache, "enabled", true);
+    ReflectionTestUtils.setField(cache, "memoryMaxBytes", 1024L * 1024L);
+    ReflectionTestUtils.setField(cache, "diskEnabled", true);
+    ReflectionTestUtils.setField(cache, "diskDir", cacheDir.toString());
+    ReflectionTestUtils.setField(cache, "diskMaxBytes", 1024L * 1024L);
+    ReflectionTestUtils.setField(cache, "freshForMs", freshForMs);
+    ReflectionTestUtils.setField(cache, "fetchDeadlineMs", 5000L);
+    return cache;
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  private static double outcome(SimpleMeterRegistry meterRegistry, String outcome) {
+    return meterRegistry.get("match.ai.image.cache").tag("outcome", outcome).counter().count();
+  }
+}
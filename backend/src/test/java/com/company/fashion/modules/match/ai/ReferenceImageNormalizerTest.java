@@ -0,0 +1,134 @@
+package com.company.fashion.modules.match.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ReferenceImageNormalizerTest {
+
+  @TempDir
+  Path dir;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ReferenceImageNormalizer normalizer = new ReferenceImageNormalizer(meterRegistry);
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(normalizer, "enabled", true);
+    ReflectionTestUtils.setField(normalizer, "maxEdgePx", 256);
+    ReflectionTestUtils.setField(normalizer, "maxAspectRatio", 3.0);
+    ReflectionTestUtils.setField(normalizer, "jpegQuality", 0.85f);
+  }
+
+  @Test
+  void largePngShouldBeResizedToJpegWithinMaxEdge() throws Exception {
+    Path source = write("photo.png", image(1200, 800, BufferedImage.TYPE_INT_ARGB), "png");
+
+    ReferenceImageNormalizer.NormalizedImage normalized = normalizer.normalize(source, "image/png");
+
+    BufferedImage result = decode(normalized);
+    assertThat(normalized.mimeType()).isEqualTo("image/jpeg");
+    assertThat(result.getWidth()).isEqualTo(256);
+    assertThat(result.getHeight()).isEqualTo(171);
+    assertThat(normalized.bytes().length).isLessThan((int) Files.size(source));
+  }
+
+  @Test
+  void extremeAspectRatioShouldBeCenterCropped() throws Exception {
+    Path source = write("banner.png", image(2000, 200, BufferedImage.TYPE_INT_RGB), "png");
+
+    BufferedImage result = decode(normalizer.normalize(source, "image/png"));
+
+    // Cropped to 600x200 (3:1), then fitted into 256px.
+    assertThat(result.getWidth()).isEqualTo(256);
+    assertThat(result.getHeight()).isEqualTo(85);
+  }
+
+  @Test
+  void exifOrientationShouldBeApplied() throws Exception {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    ImageIO.write(image(200, 100, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+    Path source = dir.resolve("rotated.jpg");
+    Files.write(source, withExifOrientation(jpeg.toByteArray(), 6));
+
+    assertThat(ReferenceImageNormalizer.exifOrientation(source)).isEqualTo(6);
+    BufferedImage result = decode(normalizer.normalize(source, "image/jpeg"));
+
+    assertThat(result.getWidth()).isEqualTo(100);
+    assertThat(result.getHeight()).isEqualTo(200);
+  }
+
+  @Test
+  void smallJpegAndUndecodableImagesShouldPassThrough() throws Exception {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    ImageIO.write(image(120, 80, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+    Path small = dir.resolve("small.jpg");
+    Files.write(small, jpeg.toByteArray());
+    Path webp = dir.resolve("photo.webp");
+    Files.write(webp, "RIFF0000WEBPVP8 not-really".getBytes(StandardCharsets.US_ASCII));
+
+    assertThat(normalizer.normalize(small, "image/jpeg").bytes()).isEqualTo(jpeg.toByteArray());
+    ReferenceImageNormalizer.NormalizedImage passed = normalizer.normalize(webp, "image/webp");
+    assertThat(passed.mimeType()).isEqualTo("image/webp");
+    assertThat(passed.bytes()).isEqualTo(Files.readAllBytes(webp));
+    assertThat(meterRegistry.get("match.ai.image.normalize").tag("outcome", "within_bounds").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  private Path write(String name, BufferedImage image, String format) throws Exception {
+    Path path = dir.resolve(name);
+    ImageIO.write(image, format, path.toFile());
+    return path;
+  }
+
+  private static BufferedImage image(int width, int height, int type) {
+    BufferedImage image = new BufferedImage(width, height, type);
+    Graphics2D graphics = image.createGraphics();
+    for (int x = 0; x < width; x += 10) {
+      graphics.setColor(new Color((x * 7) % 256, (x * 13) % 256, (x * 29) % 256));
+      graphics.fillRect(x, 0, 10, height);
+    }
+    graphics.dispose();
+    return image;
+  }
+
+  private static BufferedImage decode(ReferenceImageNormalizer.NormalizedImage normalized) throws Exception {
+    return ImageIO.read(new ByteArrayInputStream(normalized.bytes()));
+  }
+
+  /** Inserts a big-endian APP1/Exif segment whose IFD0 holds only the orientation tag. */
+  private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+    byte[] tiff = {
+        'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+        0x00, 0x01,
+        0x01, 0x12, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, (byte) orientation, 0x00, 0x00,
+        0x00, 0x00, 0x00, 0x00
+    };
+    int length = 2 + 6 + tiff.length;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(jpeg, 0, 2);
+    out.write(0xFF);
+    out.write(0xE1);
+    out.write(length >> 8);
+    out.write(length & 0xFF);
+    out.writeBytes("Exif".getBytes(StandardCharsets.US_ASCII));
+    out.write(0);
+    out.write(0);
+    out.writeBytes(tiff);
+    out.write(jpeg, 2, jpeg.length - 2);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,31 @@
+package com.company.fashion.modules.match.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.mapping.Column;
+import org.junit.jupiter.api.Test;
+
+class MatchTaskMappingTest {
+
+  @Test
+  void statusShouldBeAVarcharOnMysqlSoNewStatusesNeedNoMigration() {
+    StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+        .applySetting("hibernate.dialect", "org.hibernate.dialect.MySQLDialect")
+        .applySetting("jakarta.persistence.database-product-name", "MySQL")
+        .applySetting("jakarta.persistence.database-product-version", "8.0")
+        .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+        .build();
+    try {
+      Metadata metadata = new MetadataSources(registry).addAnnotatedClass(MatchTask.class).buildMetadata();
+      Column status = metadata.getEntityBinding(MatchTask.class.getName()).getProperty("status").getColumns().get(0);
+
+      assertThat(status.getSqlType(metadata)).isEqualTo("varchar(32)");
+    } finally {
+      StandardServiceRegistryBuilder.destroy(registry);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.company.fashion.modules.match.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.company.fashion.modules.match.repository.OperatorQueueStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MatchTaskSchedulerTest {
+
+  @Test
+  void shouldSplitSlotsByOperatorWeight() {
+    MatchTaskScheduler scheduler = new MatchTaskScheduler("alice=3", 1, new SimpleMeterRegistry());
+
+    Map<String, Integer> allocation = scheduler.allocate(List.of(stats("alice", 100), stats("bob", 100)), 8);
+
+    assertThat(allocation).containsEntry("alice", 6).containsEntry("bob", 2);
+  }
+
+  @Test
+  void shouldRotateSingleSlotAcrossRounds() {
+    MatchTaskScheduler scheduler = new MatchTaskScheduler("", 1, new SimpleMeterRegistry());
+    List<OperatorQueueStats> backlog = List.of(stats("alice", 50), stats("bob", 1), stats("carol", 1));
+
+    Map<String, Integer> picks = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      scheduler.allocate(backlog, 1).forEach((operator, count) -> picks.merge(operator, count, Integer::sum));
+    }
+
+    assertThat(picks).containsEntry("alice", 1).containsEntry("bob", 1).containsEntry("carol", 1);
+  }
+
+  @Test
+  void shouldGiveUnusedShareToOperatorsWithBacklog() {
+    MatchTaskScheduler scheduler = new MatchTaskScheduler("", 1, new SimpleMeterRegistry());
+
+    Map<String, Integer> allocation = scheduler.allocate(List.of(stats("alice", 10), stats("bob", 1)), 5);
+
+    assertThat(allocation).containsEntry("alice", 4).containsEntry("bob", 1);
+  }
+
+  private static OperatorQueueStats stats(String operator, long depth) {
+    return new OperatorQueueStats() {
+      @Override
+      public String getOperatorUsername() {
+        return operator;
+      }
+
+      @Override
+      public long getDepth() {
+        return depth;
+      }
+
+      @Override
+      public LocalDateTime getOldestCreatedAt() {
+        return LocalDateTime.now();
+      }
+    };
+  }
+}
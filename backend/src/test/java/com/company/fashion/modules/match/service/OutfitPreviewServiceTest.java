@@ -21,7 +21,7 @@ class OutfitPreviewServiceTest {
   @Test
   void shouldDegradeWhenMemberPhotoMissing() {
     AiClientRouter router = mock(AiClientRouter.class);
-    OutfitPreviewService service = new OutfitPreviewService(router);
+    OutfitPreviewService service = new OutfitPreviewService(router, mock(OutfitPreviewCache.class));
     Member member = new Member();
     member.setPhotoUrl(null);
     Clothing clothing = new Clothing();
@@ -37,7 +37,7 @@ class OutfitPreviewServiceTest {
   @Test
   void shouldDegradeWhenClothingImageMissing() {
     AiClientRouter router = mock(AiClientRouter.class);
-    OutfitPreviewService service = new OutfitPreviewService(router);
+    OutfitPreviewService service = new OutfitPreviewService(router, mock(OutfitPreviewCache.class));
     Member member = new Member();
     member.setPhotoUrl("https://img.test/member.jpg");
     Clothing clothing = new Clothing();
@@ -53,7 +53,7 @@ class OutfitPreviewServiceTest {
   @Test
   void shouldReturnPreviewWhenImagesReady() {
     AiClientRouter router = mock(AiClientRouter.class);
-    OutfitPreviewService service = new OutfitPreviewService(router);
+    OutfitPreviewService service = new OutfitPreviewService(router, mock(OutfitPreviewCache.class));
     Member member = new Member();
     member.setPhotoUrl("https://img.test/member.jpg");
     Clothing clothing = new Clothing();
@@ -0,0 +1,93 @@
+package com.company.fashion.modules.match.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.company.fashion.modules.match.ai.AiClientRouter;
+import com.company.fashion.modules.match.ai.PromptBuilder;
+import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
+import com.company.fashion.modules.match.dto.TaskStage;
+import com.company.fashion.modules.match.sse.SseService;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class TaskProgressReporterTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldPublishOneEventPerStageWithDetails() {
+    SseService sseService = mock(SseService.class);
+    TaskProgressReporter reporter = new TaskProgressReporter("task-1", sseService);
+
+    reporter.onStage(TaskStage.CONTEXT_LOADED, Map.of("candidateCount", 4));
+    reporter.onStage(TaskStage.PROMPT_BUILT, new PromptBuilder.SuggestionPrompt("prompt", 900, 1500, 3, 1).details());
+    reporter.onStage(TaskStage.PARSED);
+
+    ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+    verify(sseService, times(3)).publish(eq("task-1"), eq("task_progress"), payloads.capture());
+    List<Object> events = payloads.getAllValues();
+    Map<String, Object> first = (Map<String, Object>) events.get(0);
+    Map<String, Object> prompt = (Map<String, Object>) events.get(1);
+    Map<String, Object> second = (Map<String, Object>) events.get(2);
+
+    assertThat(first).containsEntry("stage", "CONTEXT_LOADED")
+        .containsEntry("progress", TaskStage.CONTEXT_LOADED.progress())
+        .containsEntry("candidateCount", 4)
+        .containsKey("elapsedMs");
+    assertThat(second).containsEntry("stage", "PARSED").containsEntry("progress", 85);
+    assertThat(prompt).containsEntry("promptTokens", 900).containsEntry("promptTokensBeforeTrim", 1500);
+    assertThat(reporter.timeline()).startsWith("CONTEXT_LOADED=").contains(", PARSED=")
+        .endsWith("PROMPT_TOKENS=900/1500 (trimmed 1 candidates)");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldPublishOutfitReadyPerStreamedOutfit() {
+    SseService sseService = mock(SseService.class);
+    TaskProgressReporter reporter = new TaskProgressReporter("task-1", sseService);
+
+    reporter.onOutfit(new AiClientRouter.AiOutfitSuggestion(3L, 4L, 88, "fits"), 1);
+
+    ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+    verify(sseService).publish(eq("task-1"), eq("outfit_ready"), payload.capture());
+    assertThat((Map<String, Object>) payload.getValue())
+        .containsEntry("sequence", 1)
+        .containsEntry("topClothingId", 3L)
+        .containsEntry("bottomClothingId", 4L)
+        .containsEntry("score", 88)
+        .containsKey("elapsedMs");
+    assertThat(reporter.timeline()).contains("FIRST_OUTFIT=");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldPublishProvisionalResultOnlyOnceStored() {
+    SseService sseService = mock(SseService.class);
+    List<OutfitRecommendationResponse> outfits = List.of(
+        new OutfitRecommendationResponse(1, 3L, 4L, 70, "rule", null, null, null, null)
+    );
+    TaskProgressReporter stale = new TaskProgressReporter("task-1", sseService, (strategyName, items) -> false);
+    stale.onProvisionalResult("RULE_BASED", outfits);
+    verify(sseService, never()).publish(anyString(), anyString(), any());
+
+    TaskProgressReporter reporter = new TaskProgressReporter("task-1", sseService, (strategyName, items) -> true);
+    reporter.onProvisionalResult("RULE_BASED", outfits);
+
+    ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+    verify(sseService).publish(eq("task-1"), eq("task_provisional"), payload.capture());
+    assertThat((Map<String, Object>) payload.getValue())
+        .containsEntry("status", "RUNNING")
+        .containsEntry("strategy", "RULE_BASED")
+        .containsEntry("outfits", outfits)
+        .containsEntry("provisional", true);
+    assertThat(reporter.timeline()).contains("PROVISIONAL=");
+  }
+}
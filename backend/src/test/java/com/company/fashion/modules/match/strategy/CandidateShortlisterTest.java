@@ -0,0 +1,91 @@
+package com.company.fashion.modules.match.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.clothing.entity.ClothingType;
+import com.company.fashion.modules.member.entity.Member;
+import com.company.fashion.modules.member.service.BodyProfileService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CandidateShortlisterTest {
+
+  private static final String BODY_DATA = "{\"version\":2,\"measurements\":{\"heightCm\":170,\"weightKg\":52,"
+      + "\"shoulderWidthCm\":38,\"bustCm\":86,\"waistCm\":64,\"hipCm\":90,\"bodyShape\":\"H\","
+      + "\"legRatio\":\"regular\",\"topSize\":\"M\",\"bottomSize\":\"M\"}}";
+
+  private final CandidateShortlister shortlister = new CandidateShortlister(new BodyProfileService(new ObjectMapper()));
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(shortlister, "enabled", true);
+    ReflectionTestUtils.setField(shortlister, "topK", 2);
+  }
+
+  @Test
+  void smallCatalogsShouldPassThroughUnchanged() {
+    List<Clothing> candidates = List.of(
+        clothing(1L, ClothingType.TOP, "formal", null),
+        clothing(2L, ClothingType.BOTTOM, "formal", null)
+    );
+
+    assertThat(shortlister.shortlist(member(), candidates, "daily-live")).isSameAs(candidates);
+  }
+
+  @Test
+  void bestTopsAndBottomsShouldBeKeptInOriginalOrder() {
+    List<Clothing> candidates = new ArrayList<>();
+    candidates.add(clothing(1L, ClothingType.TOP, "formal", null));
+    candidates.add(clothing(2L, ClothingType.BOTTOM, "formal", "{\"waistCm\":60,\"bottomSize\":\"S\"}"));
+    // Style overlap outranks size fit.
+    candidates.add(clothing(3L, ClothingType.TOP, "casual", null));
+    // Size label and measurements within ease: +12.
+    candidates.add(clothing(4L, ClothingType.TOP, "formal", "{\"shoulderWidthCm\":39,\"bustCm\":92,\"topSize\":\"M\"}"));
+    candidates.add(clothing(5L, ClothingType.BOTTOM, "casual,live", null));
+    candidates.add(clothing(6L, ClothingType.BOTTOM, "formal", "{\"waistCm\":66,\"hipCm\":95}"));
+    candidates.add(clothing(7L, ClothingType.TOP, "formal", null));
+
+    List<Clothing> shortlist = shortlister.shortlist(member(), candidates, "daily-live");
+
+    assertThat(shortlist).extracting(Clothing::getId).containsExactly(3L, 4L, 5L, 6L);
+    assertThat(shortlister.scores(member(), candidates, "daily-live"))
+        .containsEntry(2L, -4)
+        .containsEntry(3L, 10)
+        .containsEntry(4L, 12)
+        .containsEntry(5L, 16)
+        .containsEntry(6L, 8);
+  }
+
+  @Test
+  void disabledShortlistShouldKeepEveryCandidate() {
+    ReflectionTestUtils.setField(shortlister, "enabled", false);
+    List<Clothing> candidates = List.of(
+        clothing(1L, ClothingType.TOP, null, null),
+        clothing(2L, ClothingType.TOP, null, null),
+        clothing(3L, ClothingType.TOP, null, null)
+    );
+
+    assertThat(shortlister.shortlist(member(), candidates, null)).hasSize(3);
+  }
+
+  private static Member member() {
+    Member member = new Member();
+    member.setStyleTags("casual");
+    member.setBodyData(BODY_DATA);
+    return member;
+  }
+
+  private static Clothing clothing(Long id, ClothingType type, String styleTags, String sizeData) {
+    Clothing clothing = new Clothing();
+    ReflectionTestUtils.setField(clothing, "id", id);
+    clothing.setClothingType(type);
+    clothing.setStyleTags(styleTags);
+    clothing.setSizeData(sizeData);
+    return clothing;
+  }
+}
@@ -3,6 +3,7 @@ package com.company.fashion.modules.match.strategy;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -12,6 +13,8 @@ import com.company.fashion.modules.clothing.entity.Clothing;
 import com.company.fashion.modules.clothing.entity.ClothingType;
 import com.company.fashion.modules.match.ai.AiLanguage;
 import com.company.fashion.modules.match.ai.AiClientRouter;
+import com.company.fashion.modules.match.ai.AiProgressListener;
+import com.company.fashion.modules.match.dto.OutfitRecommendationResponse;
 import com.company.fashion.modules.member.entity.Member;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -39,7 +42,7 @@ class HybridRecommendationStrategyTest {
         new AiClientRouter.AiOutfitSuggestion(5L, 6L, 94, "pair-3"),
         new AiClientRouter.AiOutfitSuggestion(7L, 8L, 92, "pair-4")
     );
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class))).thenReturn(aiResult);
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any())).thenReturn(aiResult);
 
     RecommendationStrategy.RecommendationDecision decision = strategy.recommend(
         new RecommendationRequest(
@@ -47,7 +50,9 @@ class HybridRecommendationStrategyTest {
             List.of(top, bottom, top2, bottom2, top3, bottom3, top4, bottom4),
             List.of(),
             "daily-live",
-            AiLanguage.EN
+            AiLanguage.EN,
+            8,
+            AiProgressListener.NOOP
         )
     );
 
@@ -72,25 +77,50 @@ class HybridRecommendationStrategyTest {
         new AiClientRouter.AiOutfitSuggestion(1L, 2L, 95, "look-1"),
         new AiClientRouter.AiOutfitSuggestion(3L, 4L, 90, "look-2")
     );
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class))).thenReturn(aiResult);
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any())).thenReturn(aiResult);
 
     RecommendationStrategy.RecommendationDecision decision = strategy.recommend(
-        new RecommendationRequest(new Member(), List.of(top1, bottom1, top2, bottom2), List.of(), "daily-live", AiLanguage.EN)
+        new RecommendationRequest(new Member(), List.of(top1, bottom1, top2, bottom2), List.of(), "daily-live", AiLanguage.EN, 8, AiProgressListener.NOOP)
     );
 
     assertThat(decision.outfits()).hasSize(2);
     assertThat(decision.warning()).isNull();
   }
 
+  @Test
+  void shouldKeepOnlyDesiredNumberOfTopRankedOutfits() {
+    AiClientRouter aiClientRouter = mock(AiClientRouter.class);
+    HybridRecommendationStrategy strategy = new HybridRecommendationStrategy(aiClientRouter);
+
+    List<AiClientRouter.AiOutfitSuggestion> aiResult = List.of(
+        new AiClientRouter.AiOutfitSuggestion(1L, 2L, 80, "look-1"),
+        new AiClientRouter.AiOutfitSuggestion(3L, 4L, 95, "look-2"),
+        new AiClientRouter.AiOutfitSuggestion(1L, 4L, 70, "look-3")
+    );
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any())).thenReturn(aiResult);
+
+    RecommendationStrategy.RecommendationDecision decision = strategy.recommend(new RecommendationRequest(
+        new Member(),
+        List.of(clothing(1L, ClothingType.TOP), clothing(2L, ClothingType.BOTTOM), clothing(3L, ClothingType.TOP), clothing(4L, ClothingType.BOTTOM)),
+        List.of(),
+        "daily-live",
+        AiLanguage.EN,
+        2,
+        AiProgressListener.NOOP
+    ));
+
+    assertThat(decision.outfits()).extracting(OutfitRecommendationResponse::reason).containsExactly("look-2", "look-1");
+  }
+
   @Test
   void shouldThrowWhenAiReturnsNoUsableRecommendation() {
     AiClientRouter aiClientRouter = mock(AiClientRouter.class);
     HybridRecommendationStrategy strategy = new HybridRecommendationStrategy(aiClientRouter);
 
-    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class))).thenReturn(List.of());
+    when(aiClientRouter.suggest(any(), anyList(), anyList(), anyString(), any(AiLanguage.class), anyInt(), any())).thenReturn(List.of());
 
     assertThatThrownBy(() -> strategy.recommend(
-        new RecommendationRequest(new Member(), List.of(clothing(1L, ClothingType.TOP)), List.of(), "daily-live", AiLanguage.EN)
+        new RecommendationRequest(new Member(), List.of(clothing(1L, ClothingType.TOP)), List.of(), "daily-live", AiLanguage.EN, 8, AiProgressListener.NOOP)
     )).isInstanceOf(IllegalStateException.class)
         .hasMessageContaining("AI outfit recommendation unavailable or invalid");
   }
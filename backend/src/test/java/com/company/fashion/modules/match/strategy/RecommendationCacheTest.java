@@ -0,0 +1,71 @@
+package com.company.fashion.modules.match.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.company.fashion.modules.clothing.event.ClothingChangedEvent;
+import com.company.fashion.modules.member.event.MemberChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RecommendationCacheTest {
+
+  private static final RecommendationService.RecommendationOutput OUTPUT =
+      new RecommendationService.RecommendationOutput("AI_ONLY", List.of(), null);
+
+  @Test
+  void shouldCountHitsAndMisses() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RecommendationCache cache = newCache(registry, 600);
+
+    assertThat(cache.get("key")).isEmpty();
+    cache.put("key", 1L, List.of(10L, 11L), OUTPUT, cache.generation());
+    assertThat(cache.get("key")).contains(OUTPUT);
+
+    assertThat(registry.counter("match.recommendation.cache", "result", "hit").count()).isEqualTo(1.0);
+    assertThat(registry.counter("match.recommendation.cache", "result", "miss").count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void shouldInvalidateEntriesOfChangedMemberOrClothing() {
+    RecommendationCache cache = newCache(new SimpleMeterRegistry(), 600);
+    cache.put("member-1", 1L, List.of(10L), OUTPUT, cache.generation());
+    cache.put("member-2", 2L, List.of(20L), OUTPUT, cache.generation());
+    cache.put("member-3", 3L, List.of(30L), OUTPUT, cache.generation());
+
+    cache.onMemberChanged(new MemberChangedEvent(1L, false));
+    cache.onClothingChanged(new ClothingChangedEvent(20L, false));
+
+    assertThat(cache.get("member-1")).isEmpty();
+    assertThat(cache.get("member-2")).isEmpty();
+    assertThat(cache.get("member-3")).contains(OUTPUT);
+  }
+
+  @Test
+  void shouldNotStoreResultComputedBeforeInvalidation() {
+    RecommendationCache cache = newCache(new SimpleMeterRegistry(), 600);
+    long generation = cache.generation();
+
+    cache.onClothingChanged(new ClothingChangedEvent(99L, false));
+    cache.put("key", 1L, List.of(10L), OUTPUT, generation);
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void shouldSkipStoringWhenTtlDisabled() {
+    RecommendationCache cache = newCache(new SimpleMeterRegistry(), 0);
+
+    cache.put("key", 1L, List.of(10L), OUTPUT, cache.generation());
+
+    assertThat(cache.get("key")).isEmpty();
+  }
+
+  private static RecommendationCache newCache(SimpleMeterRegistry registry, long ttlSeconds) {
+    RecommendationCache cache = new RecommendationCache(registry);
+    ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+    ReflectionTestUtils.setField(cache, "maxEntries", 100);
+    return cache;
+  }
+}
@@ -0,0 +1,145 @@
+package com.company.fashion.modules.match.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.company.fashion.modules.clothing.entity.Clothing;
+import com.company.fashion.modules.match.ai.AiLanguage;
+import com.company.fashion.modules.member.entity.Member;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RecommendationSingleFlightTest {
+
+  @Test
+  void shouldShareOneCallAcrossConcurrentDuplicates() throws Exception {
+    RecommendationSingleFlight singleFlight = new RecommendationSingleFlight();
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    RecommendationService.RecommendationOutput output =
+        new RecommendationService.RecommendationOutput("AI_ONLY", List.of(), null);
+
+    List<Future<RecommendationSingleFlight.Result>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 5; i++) {
+        results.add(executor.submit(() -> singleFlight.execute("same-key", () -> {
+          calls.incrementAndGet();
+          await(release);
+          return output;
+        })));
+      }
+      waitUntilAllWaiting(singleFlight, calls);
+      release.countDown();
+
+      int coalesced = 0;
+      for (Future<RecommendationSingleFlight.Result> result : results) {
+        RecommendationSingleFlight.Result value = result.get(5, TimeUnit.SECONDS);
+        assertThat(value.output()).isSameAs(output);
+        coalesced += value.coalesced() ? 1 : 0;
+      }
+      assertThat(coalesced).isEqualTo(4);
+    }
+
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(singleFlight.inFlightCount()).isZero();
+  }
+
+  @Test
+  void shouldNotCacheFailures() {
+    RecommendationSingleFlight singleFlight = new RecommendationSingleFlight();
+
+    assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+      throw new IllegalStateException("AI down");
+    })).hasMessage("AI down");
+
+    RecommendationSingleFlight.Result retry = singleFlight.execute(
+        "key",
+        () -> new RecommendationService.RecommendationOutput("AI_ONLY", List.of(), null)
+    );
+    assertThat(retry.coalesced()).isFalse();
+  }
+
+  @Test
+  void waitersShouldRetryWhenLeaderIsInterrupted() throws Exception {
+    RecommendationSingleFlight singleFlight = new RecommendationSingleFlight();
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch leaderStarted = new CountDownLatch(1);
+    RecommendationService.RecommendationOutput output =
+        new RecommendationService.RecommendationOutput("AI_ONLY", List.of(), null);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<?> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+        calls.incrementAndGet();
+        leaderStarted.countDown();
+        try {
+          Thread.sleep(30_000);
+        } catch (InterruptedException ex) {
+          throw new IllegalStateException("cancelled", ex);
+        }
+        return output;
+      }));
+      assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+      Future<RecommendationSingleFlight.Result> follower = executor.submit(() -> singleFlight.execute("key", () -> {
+        calls.incrementAndGet();
+        return output;
+      }));
+      Thread.sleep(100);
+      leader.cancel(true);
+
+      RecommendationSingleFlight.Result result = follower.get(5, TimeUnit.SECONDS);
+      assertThat(result.output()).isSameAs(output);
+      assertThat(result.coalesced()).isFalse();
+    }
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  void fingerprintShouldIgnoreCandidateOrderButNotScene() {
+    Member member = new Member();
+    ReflectionTestUtils.setField(member, "id", 7L);
+    Clothing first = clothing(1L);
+    Clothing second = clothing(2L);
+
+    String key = RecommendationFingerprint.of(member, List.of(first, second), List.of(), "daily-live", AiLanguage.EN, 8);
+
+    assertThat(RecommendationFingerprint.of(member, List.of(second, first), List.of(), "daily-live", AiLanguage.EN, 8))
+        .isEqualTo(key);
+    assertThat(RecommendationFingerprint.of(member, List.of(first, second), List.of(), "show", AiLanguage.EN, 8))
+        .isNotEqualTo(key);
+    assertThat(RecommendationFingerprint.of(member, List.of(first, second), List.of(), "daily-live", AiLanguage.ZH, 8))
+        .isNotEqualTo(key);
+    assertThat(RecommendationFingerprint.of(member, List.of(first, second), List.of(), "daily-live", AiLanguage.EN, 3))
+        .isNotEqualTo(key);
+  }
+
+  private static Clothing clothing(Long id) {
+    Clothing clothing = new Clothing();
+    ReflectionTestUtils.setField(clothing, "id", id);
+    return clothing;
+  }
+
+  private static void waitUntilAllWaiting(RecommendationSingleFlight singleFlight, AtomicInteger calls)
+      throws InterruptedException {
+    // Callers arriving after the leader are parked on its future; give them time to get there.
+    for (int i = 0; i < 100 && (calls.get() == 0 || singleFlight.inFlightCount() == 0); i++) {
+      Thread.sleep(5);
+    }
+    Thread.sleep(100);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -12,6 +12,7 @@ import type {
 export interface CreateTaskResponse {
   taskId: string;
   status: TaskStatus;
+  estimatedStartAt: string;
 }
 
 export interface MatchHistoryResponse {
@@ -19,12 +20,26 @@ export interface MatchHistoryResponse {
   total: number;
 }
 
-export type TaskEventName = 'task_started' | 'task_progress' | 'task_completed' | 'task_failed';
+export type TaskEventName =
+  | 'task_started'
+  | 'task_progress'
+  | 'task_provisional'
+  | 'outfit_ready'
+  | 'task_completed'
+  | 'task_failed'
+  | 'task_cancelled'
+  | 'preview_started'
+  | 'preview_completed'
+  | 'preview_failed';
+
+const PREVIEW_POLL_INTERVAL_MS = 1000;
+const PREVIEW_POLL_TIMEOUT_MS = 5 * 60 * 1000;
 
 export async function createMatchTask(payload: {
   memberId: number;
   clothingIds: number[];
   scene?: string;
+  desiredOutfits?: number;
 }): Promise<CreateTaskResponse> {
   const { data } = await http.post<ApiResult<CreateTaskResponse>>('/api/match/tasks', payload);
   return data.data;
@@ -35,11 +50,31 @@ export async function fetchTask(taskId: string): Promise<MatchTaskDetail> {
   return data.data;
 }
 
+export async function cancelMatchTask(taskId: string): Promise<void> {
+  await http.delete<ApiResult<null>>(`/api/match/tasks/${taskId}`);
+}
+
+/**
+ * Starts the preview job of one outfit and resolves once it is no longer RUNNING.
+ */
 export async function generateTaskOutfitPreview(taskId: string, outfitNo: number): Promise<MatchTaskDetail> {
   const { data } = await http.post<ApiResult<MatchTaskDetail>>(
     `/api/match/tasks/${taskId}/outfits/${outfitNo}/preview`
   );
-  return data.data;
+  let detail = data.data;
+  const deadline = Date.now() + PREVIEW_POLL_TIMEOUT_MS;
+  while (isPreviewRunning(detail, outfitNo)) {
+    if (Date.now() > deadline) {
+      throw new Error(`Preview of outfit #${outfitNo} did not finish in time`);
+    }
+    await new Promise((resolve) => setTimeout(resolve, PREVIEW_POLL_INTERVAL_MS));
+    detail = await fetchTask(taskId);
+  }
+  return detail;
+}
+
+function isPreviewRunning(detail: MatchTaskDetail, outfitNo: number): boolean {
+  return detail.outfits.some((outfit) => outfit.outfitNo === outfitNo && outfit.previewStatus === 'RUNNING');
 }
 
 export async function fetchTaskList(memberId?: number, page = 0, size = 10): Promise<PageResponse<MatchTaskSummary>> {
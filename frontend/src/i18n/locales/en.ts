@@ -176,6 +176,7 @@ export default {
     regeneratePreview: 'Regenerate Preview',
     generatePreviewSuccess: 'Preview generated',
     generatePreviewFailed: 'Failed to generate preview',
+    provisional: 'Provisional',
     outfitNo: 'Outfit',
     topClothingId: 'Top Clothing ID',
     bottomClothingId: 'Bottom Clothing ID',
@@ -217,7 +218,8 @@ export default {
     QUEUED: 'Queued',
     RUNNING: 'Running',
     SUCCEEDED: 'Succeeded',
-    FAILED: 'Failed'
+    FAILED: 'Failed',
+    CANCELLED: 'Cancelled'
   },
   history: {
     title: 'Match History',
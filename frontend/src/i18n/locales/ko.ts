@@ -176,6 +176,7 @@ export default {
     regeneratePreview: '미리보기 재생성',
     generatePreviewSuccess: '미리보기가 생성되었습니다',
     generatePreviewFailed: '미리보기 생성 실패',
+    provisional: '임시 결과',
     outfitNo: '코디',
     topClothingId: '상의 ID',
     bottomClothingId: '하의 ID',
@@ -217,7 +218,8 @@ export default {
     QUEUED: '대기 중',
     RUNNING: '진행 중',
     SUCCEEDED: '성공',
-    FAILED: '실패'
+    FAILED: '실패',
+    CANCELLED: '취소됨'
   },
   history: {
     title: '스타일링 히스토리',
@@ -176,6 +176,7 @@ export default {
     regeneratePreview: '重新生成预览',
     generatePreviewSuccess: '预览已生成',
     generatePreviewFailed: '生成预览失败',
+    provisional: '临时结果',
     outfitNo: '穿搭',
     topClothingId: '上装ID',
     bottomClothingId: '下装ID',
@@ -217,7 +218,8 @@ export default {
     QUEUED: '排队中',
     RUNNING: '运行中',
     SUCCEEDED: '成功',
-    FAILED: '失败'
+    FAILED: '失败',
+    CANCELLED: '已取消'
   },
   history: {
     title: '搭配历史',
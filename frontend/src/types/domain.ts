@@ -75,9 +75,13 @@ export interface OutfitRecommendation {
   reason: string;
   preview: OutfitPreview | null;
   warning: string | null;
+  previewStatus: PreviewStatus | null;
+  previewStartedAt: string | null;
 }
 
-export type TaskStatus = 'QUEUED' | 'RUNNING' | 'SUCCEEDED' | 'FAILED';
+export type PreviewStatus = 'RUNNING' | 'SUCCEEDED' | 'FAILED';
+
+export type TaskStatus = 'QUEUED' | 'RUNNING' | 'SUCCEEDED' | 'FAILED' | 'CANCELLED';
 
 export interface MatchTaskDetail {
   taskId: string;
@@ -87,6 +91,7 @@ export interface MatchTaskDetail {
   result: MatchResultItem[];
   preview: OutfitPreview | null;
   errorMessage: string | null;
+  provisional: boolean;
 }
 
 export interface MatchTaskSummary {